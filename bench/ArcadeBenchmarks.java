@@ -0,0 +1,104 @@
+import java.io.*;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+// ArcadeBenchmarks class - benchmark suite for parsing, pricing, transactions and analytics
+// Generates synthetic input files of the requested size, then times each of BenchmarkCases' operations
+// with BenchmarkRunner - a quick run needing nothing but javac (the JMH module in jmh/ runs the same cases).
+// Run with --save to keep a baseline and --compare on the next version to flag regressions.
+public class ArcadeBenchmarks {
+
+    // Benchmark configuration, see usage()
+    private int games = 10_000;
+    private int customers = 100_000;
+    private int transactions = 1_000_000;
+    private int warmup = 5;
+    private int iterations = 5;
+    private long iterationMillis = 1000;
+    private String filter;
+    private File dataDir;
+    private File saveFile;
+    private File compareFile;
+    private double tolerance = 10;
+
+    public static void main(String[] args) throws Exception {
+        ArcadeBenchmarks benchmarks = new ArcadeBenchmarks();
+        if (!benchmarks.parseArguments(args)) {
+            usage();
+            System.exit(2);
+        }
+        System.exit(benchmarks.runAll());
+    }
+
+    private static void usage() {
+        System.out.println("Usage: java ArcadeBenchmarks [options]");
+        System.out.println("  --games N          games in the synthetic catalogue (default 10000)");
+        System.out.println("  --customers N      customers in the synthetic customer file (default 100000)");
+        System.out.println("  --transactions N   lines in the synthetic transaction file (default 1000000)");
+        System.out.println("  --warmup N         warm-up iterations per benchmark (default 5)");
+        System.out.println("  --iterations N     measured iterations per benchmark (default 5)");
+        System.out.println("  --time MS          length of one iteration in milliseconds (default 1000)");
+        System.out.println("  --filter TEXT      only run benchmarks whose name contains TEXT");
+        System.out.println("  --data DIR         where to write the synthetic files (default: a temporary directory)");
+        System.out.println("  --save FILE        save results as CSV");
+        System.out.println("  --compare FILE     compare with saved results, exit code 1 on regression");
+        System.out.println("  --tolerance PCT    slowdown allowed by --compare (default 10)");
+    }
+
+    private boolean parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length) return false;
+            String value = args[++i];
+            switch (args[i - 1]) {
+                case "--games": games = Integer.parseInt(value); break;
+                case "--customers": customers = Integer.parseInt(value); break;
+                case "--transactions": transactions = Integer.parseInt(value); break;
+                case "--warmup": warmup = Integer.parseInt(value); break;
+                case "--iterations": iterations = Integer.parseInt(value); break;
+                case "--time": iterationMillis = Long.parseLong(value); break;
+                case "--filter": filter = value; break;
+                case "--data": dataDir = new File(value); break;
+                case "--save": saveFile = new File(value); break;
+                case "--compare": compareFile = new File(value); break;
+                case "--tolerance": tolerance = Double.parseDouble(value); break;
+                default: return false;
+            }
+        }
+        return games >= 3 && customers >= 1 && transactions >= 1 && iterations >= 1;
+    }
+
+    // Runs every selected benchmark, returns the process exit code
+    private int runAll() throws Exception {
+        BenchmarkCases cases = new BenchmarkCases(dataDir, games, customers, transactions);
+        BenchmarkRunner runner = new BenchmarkRunner(warmup, iterations, iterationMillis, filter);
+
+        System.out.println("Benchmarks: " + games + " games, " + customers + " customers, " + transactions
+                + " transactions, " + warmup + "x" + iterationMillis + "ms warm-up, " + iterations + "x" + iterationMillis + "ms measured\n");
+
+        cases.addParserCases();
+        cases.addTransactionCases();
+        cases.addPricingCases();
+        cases.addAnalyticsCases();
+        for (Map.Entry<String, LongSupplier> entry : cases.operations().entrySet()) {
+            LongSupplier operation = entry.getValue();
+            Runnable setup = cases.setupFor(entry.getKey());
+            if (setup == null) {
+                runner.run(entry.getKey(), operation::getAsLong);
+            } else {
+                runner.run(entry.getKey(), () -> {
+                    setup.run();
+                    return operation;
+                }, LongSupplier::getAsLong);
+            }
+        }
+
+        if (saveFile != null) {
+            runner.save(saveFile);
+            System.out.println("\nSaved results to " + saveFile);
+        }
+        if (compareFile != null && runner.compare(compareFile, tolerance) > 0) {
+            return 1;
+        }
+        return 0;
+    }
+}
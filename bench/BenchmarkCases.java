@@ -0,0 +1,321 @@
+import java.io.*;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+// BenchmarkCases class - the benchmarked operations, shared by ArcadeBenchmarks and the JMH module (jmh/)
+// Generates synthetic input files of the requested size, then each add...Cases method loads what its
+// group needs and registers its operations by name. Operations are plain LongSuppliers (their result is
+// there so the JIT cannot drop the work) because the JMH benchmarks live in a named package and cannot
+// refer to the arcade's classes directly. Operations that consume their state (a whole transaction file
+// against one arcade) also have an untimed setup that must run before every call.
+public class BenchmarkCases {
+
+    private static final long SEED = 42;
+
+    // An operation body; checked exceptions are rethrown unchecked by add()
+    private interface Body {
+        long run() throws Exception;
+    }
+
+    private final int customers;
+    private final File dataDir;
+    private final File gamesFile;
+    private final File customersFile;
+    private final File transactionsFile;
+
+    // Every parser and loader reports here rather than on the console, so problems are counted, not printed
+    private final CountingDiagnostics diagnostics = new CountingDiagnostics();
+
+    private final Map<String, LongSupplier> operations = new LinkedHashMap<>();
+    private final Map<String, Runnable> setups = new HashMap<>();
+
+    // Writes the synthetic files to 'dataDir', or to a temporary directory when it is null
+    public BenchmarkCases(File dataDir, int games, int customers, int transactions) throws IOException {
+        this.customers = customers;
+        boolean temporary = dataDir == null;
+        if (temporary) {
+            dataDir = java.nio.file.Files.createTempDirectory("arcade-bench").toFile();
+            dataDir.deleteOnExit();
+        }
+        dataDir.mkdirs();
+        this.dataDir = dataDir;
+        gamesFile = new File(dataDir, "games.txt");
+        customersFile = new File(dataDir, "customers.txt");
+        transactionsFile = new File(dataDir, "transactions.txt");
+
+        WorkloadGenerator generator = WorkloadGenerator.wellFormed(SEED, games, customers, transactions);
+        generator.writeGames(gamesFile);
+        generator.writeCustomers(customersFile);
+        generator.writeTransactions(transactionsFile);
+        if (temporary) {
+            gamesFile.deleteOnExit();
+            customersFile.deleteOnExit();
+            transactionsFile.deleteOnExit();
+        }
+    }
+
+    // Registered operations by name, in the order they were added
+    public Map<String, LongSupplier> operations() {
+        return operations;
+    }
+
+    // Untimed setup to run before every call of an operation, or null if it needs none
+    public Runnable setupFor(String name) {
+        return setups.get(name);
+    }
+
+    private void add(String name, Body body) {
+        operations.put(name, () -> {
+            try {
+                return body.run();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(name + " failed", e);
+            }
+        });
+    }
+
+    // --- Parsers: whole synthetic files per operation ---
+
+    public void addParserCases() throws IOException {
+        add("parse.games", () -> {
+            try (BufferedReader reader = new BufferedReader(new FileReader(gamesFile))) {
+                return GameParser.parseGames(reader, diagnostics).size();
+            }
+        });
+        add("parse.customers", () -> {
+            try (BufferedReader reader = new BufferedReader(new FileReader(customersFile))) {
+                return CustomerParser.parseCustomers(reader, diagnostics).size();
+            }
+        });
+
+        // Same catalogues in the binary columnar format
+        File gameCatalogue = new File(dataDir, "games.cat");
+        File customerCatalogue = new File(dataDir, "customers.cat");
+        BinaryCatalogue.convertGames(gamesFile, gameCatalogue, diagnostics);
+        BinaryCatalogue.convertCustomers(customersFile, customerCatalogue, diagnostics);
+        gameCatalogue.deleteOnExit();
+        customerCatalogue.deleteOnExit();
+        add("load.catalogue.binary", () -> Simulation.initialiseArcadeBinary("Bench", gameCatalogue, customerCatalogue, diagnostics).getMedianGamePrice());
+        add("load.catalogue.text", () -> Simulation.initialiseArcade("Bench", gamesFile, customersFile, diagnostics).getMedianGamePrice());
+        add("analytics.medianPrice.columns", () -> BinaryCatalogue.open(gameCatalogue).medianOffPeakPrice());
+
+        List<ArcadeGame> gameList = loadGames();
+        List<Customer> customerList = loadCustomers();
+        add("parse.validateIds", () -> {
+            int valid = 0;
+            for (ArcadeGame g : gameList) if (IdValidator.checkGameId(g.getGameID()).isValid()) valid++;
+            for (Customer c : customerList) if (IdValidator.checkCustomerId(c.getCustomerID()).isValid()) valid++;
+            return valid;
+        });
+
+        // Transactions change the arcade, so every run starts from a freshly loaded one
+        Arcade[] arcade = new Arcade[1];
+        Runnable freshArcade = () -> arcade[0] = newArcade(gameList, customerList, false);
+        add("parse.transactions", () -> {
+            try (BufferedReader reader = new BufferedReader(new FileReader(transactionsFile))) {
+                TransactionParser.processTransactions(reader, arcade[0], diagnostics);
+            }
+            return arcade[0].getArcadeRevenue();
+        });
+        add("parse.transactions.batched", () -> {
+            try (BufferedReader reader = new BufferedReader(new FileReader(transactionsFile))) {
+                TransactionParser.processTransactions(reader, arcade[0], diagnostics, 64);
+            }
+            return arcade[0].getArcadeRevenue();
+        });
+        add("parse.transactions.streaming", () -> {
+            try (Reader reader = new FileReader(transactionsFile)) {
+                StreamingTransactionParser.processTransactions(reader, arcade[0], diagnostics);
+            }
+            return arcade[0].getArcadeRevenue();
+        });
+        setups.put("parse.transactions", freshArcade);
+        setups.put("parse.transactions.batched", freshArcade);
+        setups.put("parse.transactions.streaming", freshArcade);
+    }
+
+    // --- Arcade.processTransaction: one PLAY per operation, cycling through customers and games ---
+
+    public void addTransactionCases() throws Exception {
+        List<ArcadeGame> gameList = loadGames();
+        String[] gameIds = new String[gameList.size()];
+        for (int i = 0; i < gameIds.length; i++) gameIds[i] = gameList.get(i).getGameID();
+
+        // Adult customers with large balances, so every play succeeds
+        Arcade arcade = newArcade(gameList, Collections.emptyList(), false);
+        String[] customerIds = new String[customers];
+        Customer.DiscountType[] discounts = Customer.DiscountType.values();
+        for (int i = 0; i < customers; i++) {
+            customerIds[i] = WorkloadGenerator.customerId(i);
+            arcade.addCustomer(new Customer(customerIds[i], "Customer " + i, 40, discounts[i % discounts.length], 1_000_000_000));
+        }
+
+        for (boolean peak : new boolean[] {true, false}) {
+            int[] cursor = new int[1];
+            add(peak ? "arcade.processTransaction.peak" : "arcade.processTransaction.offpeak", () -> {
+                int i = cursor[0]++ & Integer.MAX_VALUE;
+                String customerId = customerIds[i % customerIds.length];
+                try {
+                    arcade.processTransaction(customerId, gameIds[i % gameIds.length], peak);
+                } catch (InsufficientBalanceException e) {
+                    // Long runs can drain a balance, top it up and carry on
+                    arcade.addFunds(customerId, 1_000_000_000);
+                }
+                return i;
+            });
+        }
+
+        // Till bursts: a top-up and seven plays on one card, one call at a time or as one batch
+        int[] burstCursor = new int[1];
+        add("arcade.burst.single", () -> {
+            int i = burstCursor[0]++ & Integer.MAX_VALUE;
+            String customerId = customerIds[i % customerIds.length];
+            arcade.addFunds(customerId, 10_000);
+            int charged = 0;
+            for (int p = 0; p < 7; p++) charged += arcade.tryChargeCustomer(customerId, gameIds[(i + p) % gameIds.length], true);
+            return charged;
+        });
+        TransactionBatch burst = new TransactionBatch(8);
+        add("arcade.burst.batch", () -> {
+            int i = burstCursor[0]++ & Integer.MAX_VALUE;
+            String customerId = customerIds[i % customerIds.length];
+            burst.clear();
+            burst.addFunds(customerId, 10_000);
+            for (int p = 0; p < 7; p++) burst.addPlay(customerId, gameIds[(i + p) % gameIds.length], true);
+            int charged = 0;
+            for (int result : arcade.processBatch(burst)) charged += result;
+            return charged;
+        });
+
+        // Rejected plays: a customer with no funds, through the throwing and the result-code APIs
+        String brokeId = WorkloadGenerator.customerId(customers);
+        arcade.addCustomer(new Customer(brokeId, "No Funds", 40, Customer.DiscountType.NONE, 0));
+        int[] rejectedCursor = new int[1];
+        add("arcade.processTransaction.rejected", () -> {
+            int i = rejectedCursor[0]++ & Integer.MAX_VALUE;
+            try {
+                arcade.processTransaction(brokeId, gameIds[i % gameIds.length], true);
+                return 0;
+            } catch (InsufficientBalanceException e) {
+                return 1;
+            }
+        });
+        int[] codeCursor = new int[1];
+        add("arcade.tryChargeCustomer.rejected", () -> {
+            int i = codeCursor[0]++ & Integer.MAX_VALUE;
+            return arcade.tryChargeCustomer(brokeId, gameIds[i % gameIds.length], true);
+        });
+    }
+
+    // --- ArcadeGame.calculatePrice per subclass, alternating peak and off-peak ---
+
+    public void addPricingCases() throws IOException {
+        List<CabinetGame> cabinet = new ArrayList<>();
+        List<ActiveGame> active = new ArrayList<>();
+        List<VirtualRealityGame> vr = new ArrayList<>();
+        for (ArcadeGame g : loadGames()) {
+            if (g instanceof VirtualRealityGame) vr.add((VirtualRealityGame) g);
+            else if (g instanceof ActiveGame) active.add((ActiveGame) g);
+            else if (g instanceof CabinetGame) cabinet.add((CabinetGame) g);
+        }
+
+        CabinetGame[] cabinetGames = cabinet.toArray(new CabinetGame[0]);
+        int[] cabinetCursor = new int[1];
+        add("price.cabinet", () -> {
+            int i = cabinetCursor[0]++ & Integer.MAX_VALUE;
+            return cabinetGames[i % cabinetGames.length].calculatePrice((i & 1) == 0);
+        });
+
+        ActiveGame[] activeGames = active.toArray(new ActiveGame[0]);
+        int[] activeCursor = new int[1];
+        add("price.active", () -> {
+            int i = activeCursor[0]++ & Integer.MAX_VALUE;
+            return activeGames[i % activeGames.length].calculatePrice((i & 1) == 0);
+        });
+
+        VirtualRealityGame[] vrGames = vr.toArray(new VirtualRealityGame[0]);
+        int[] vrCursor = new int[1];
+        add("price.virtualReality", () -> {
+            int i = vrCursor[0]++ & Integer.MAX_VALUE;
+            return vrGames[i % vrGames.length].calculatePrice((i & 1) == 0);
+        });
+
+        // Report amounts: Money's digit table into a reused builder, and the String.format way it replaced
+        StringBuilder line = new StringBuilder(32);
+        long[] amount = {0};
+        add("report.formatMoney", () -> {
+            line.setLength(0);
+            amount[0] += 1_234_567;
+            return Money.appendTo(line, amount[0]).length();
+        });
+        add("report.formatMoney.stringFormat", () -> {
+            long pence = amount[0] += 1_234_567;
+            return ("£" + (pence / 100) + "." + String.format("%02d", pence % 100)).length();
+        });
+    }
+
+    // --- Analytics queries on the fully loaded arcade ---
+
+    public void addAnalyticsCases() throws IOException {
+        Arcade arcade = newArcade(loadGames(), loadCustomers(), false);
+
+        add("analytics.findRichestCustomer", () -> arcade.findRichestCustomer().getBalance());
+        add("analytics.getMedianGamePrice", arcade::getMedianGamePrice);
+        add("analytics.countArcadeGames", () -> arcade.countArcadeGames()[0]);
+
+        // Read views: taking one, then the first write after it (which copies one customer page)
+        String someCustomer = arcade.findRichestCustomer().getCustomerID();
+        add("analytics.readView", () -> arcade.readView().getCustomerCount());
+        add("analytics.readView.thenWrite", () -> {
+            ArcadeView view = arcade.readView();
+            arcade.addFunds(someCustomer, 1);
+            return view.getCustomerCount();
+        });
+        ArcadeView view = arcade.readView();
+        add("analytics.readView.totalBalance", view::getTotalBalance);
+
+        // Rankings: exact top 100 and deciles by selection, approximate deciles from a sketch
+        add("analytics.topCustomers.100", () -> view.findTopCustomers(100).size());
+        // The same from the live balance index, and one customer's rank
+        add("analytics.topCustomers.100.index", () -> arcade.findTopCustomers(100).size());
+        add("analytics.balanceRank", () -> arcade.getBalanceRank(someCustomer));
+        add("analytics.balanceDeciles.exact", () -> view.getBalanceDeciles(null)[4]);
+        add("analytics.balanceDeciles.sketch", () -> view.sketchBalances(null, QuantileSketch.DEFAULT_ACCURACY).quantile(0.5));
+        // The same straight from the arcade's balance column, no view taken
+        add("analytics.balanceDeciles.exact.live", () -> arcade.getBalanceDeciles(null)[4]);
+        add("analytics.balanceDeciles.sketch.live", () -> arcade.sketchBalances(null).quantile(0.5));
+
+        // Kiosk query: games a 12-year-old can play for £4.00 or less off-peak
+        GameQuery kiosk = new GameQuery().playableAt(12).offPeakPrice(0, 400);
+        List<ArcadeGame> catalogue = arcade.findGames(new GameQuery());
+        add("analytics.findGames.indexed", () -> arcade.countGames(kiosk));
+        add("analytics.findGames.scan", () -> {
+            int matches = 0;
+            for (ArcadeGame g : catalogue) {
+                if (kiosk.matches(g)) matches++;
+            }
+            return matches;
+        });
+    }
+
+    private List<ArcadeGame> loadGames() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(gamesFile))) {
+            return GameParser.parseGames(reader, diagnostics);
+        }
+    }
+
+    private List<Customer> loadCustomers() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(customersFile))) {
+            return CustomerParser.parseCustomers(reader, diagnostics);
+        }
+    }
+
+    private static Arcade newArcade(List<ArcadeGame> gameList, List<Customer> customerList, boolean concurrent) {
+        Arcade arcade = new Arcade("Benchmark", concurrent);
+        for (ArcadeGame game : gameList) arcade.addArcadeGame(game);
+        for (Customer customer : customerList) arcade.addCustomer(customer);
+        return arcade;
+    }
+}
@@ -0,0 +1,173 @@
+import java.io.*;
+import java.util.*;
+
+// BenchmarkRunner class - small warm-up / measure loop for the arcade benchmarks
+// Every benchmark gets timed warm-up iterations (so the JIT has compiled the hot code) followed by
+// measured iterations, and reports the mean time per operation and its spread across iterations.
+// Results can be saved and compared with a previous run to spot regressions.
+public class BenchmarkRunner {
+
+    // One benchmarked operation; its result is folded into a sink so the JIT cannot drop the work
+    public interface Operation {
+        long run() throws Exception;
+    }
+
+    // Untimed per-invocation setup for operations that consume their state (e.g. a fresh arcade)
+    public interface Setup<T> {
+        T create() throws Exception;
+    }
+
+    public interface Invocation<T> {
+        long run(T state) throws Exception;
+    }
+
+    // Mean and standard deviation of nanoseconds per operation across measured iterations
+    public static final class Result {
+        private final String name;
+        private final double nanosPerOp;
+        private final double deviation;
+
+        Result(String name, double nanosPerOp, double deviation) {
+            this.name = name;
+            this.nanosPerOp = nanosPerOp;
+            this.deviation = deviation;
+        }
+
+        public String getName() { return name; }
+        public double getNanosPerOp() { return nanosPerOp; }
+        public double getDeviation() { return deviation; }
+    }
+
+    private static volatile long sink;
+
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final long iterationNanos;
+    private final String filter;
+    private final PrintStream report;
+    private final List<Result> results = new ArrayList<>();
+
+    public BenchmarkRunner(int warmupIterations, int measureIterations, long iterationMillis, String filter) {
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        this.filter = filter;
+        this.report = System.out;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    // Benchmarks a cheap operation: calls are batched so the clock is not read on every call
+    public void run(String name, Operation operation) throws Exception {
+        if (!selected(name)) return;
+
+        double[] samples = new double[measureIterations];
+        int batch = 1;
+        for (int i = 0; i < warmupIterations + measureIterations; i++) {
+            long ops = 0;
+            long acc = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                for (int b = 0; b < batch; b++) {
+                    acc += operation.run();
+                }
+                ops += batch;
+                elapsed = System.nanoTime() - start;
+                // Grow the batch until the clock is read about a hundred times per iteration
+                if (elapsed < iterationNanos / 100) batch *= 2;
+            } while (elapsed < iterationNanos);
+            sink += acc;
+
+            if (i >= warmupIterations) samples[i - warmupIterations] = (double) elapsed / ops;
+        }
+        record(name, samples);
+    }
+
+    // Benchmarks an expensive operation that needs fresh state: only the operation itself is timed
+    public <T> void run(String name, Setup<T> setup, Invocation<T> invocation) throws Exception {
+        if (!selected(name)) return;
+
+        double[] samples = new double[measureIterations];
+        for (int i = 0; i < warmupIterations + measureIterations; i++) {
+            long ops = 0;
+            long timed = 0;
+            long acc = 0;
+            do {
+                T state = setup.create();
+                long start = System.nanoTime();
+                acc += invocation.run(state);
+                timed += System.nanoTime() - start;
+                ops++;
+            } while (timed < iterationNanos);
+            sink += acc;
+
+            if (i >= warmupIterations) samples[i - warmupIterations] = (double) timed / ops;
+        }
+        record(name, samples);
+    }
+
+    private boolean selected(String name) {
+        return filter == null || name.contains(filter);
+    }
+
+    private void record(String name, double[] samples) {
+        double mean = 0;
+        for (double s : samples) mean += s;
+        mean /= samples.length;
+
+        double variance = 0;
+        for (double s : samples) variance += (s - mean) * (s - mean);
+        double deviation = samples.length > 1 ? Math.sqrt(variance / (samples.length - 1)) : 0;
+
+        Result result = new Result(name, mean, deviation);
+        results.add(result);
+        report.printf(Locale.ROOT, "%-34s %14s/op  +- %s%n", name, formatNanos(mean), formatNanos(deviation));
+    }
+
+    // Writes results as "name,nanosPerOp,deviation" lines
+    public void save(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            for (Result r : results) {
+                out.printf(Locale.ROOT, "%s,%.3f,%.3f%n", r.getName(), r.getNanosPerOp(), r.getDeviation());
+            }
+        }
+    }
+
+    // Compares results with a saved run and returns the number of benchmarks more than
+    // 'tolerancePercent' slower than before
+    public int compare(File baseline, double tolerancePercent) throws IOException {
+        Map<String, Double> previous = new HashMap<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(baseline))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length < 2) continue;
+                previous.put(parts[0], Double.parseDouble(parts[1]));
+            }
+        }
+
+        int regressions = 0;
+        report.println("\n--- Compared with " + baseline.getName() + " (tolerance " + tolerancePercent + "%) ---");
+        for (Result r : results) {
+            Double before = previous.get(r.getName());
+            if (before == null) {
+                report.printf(Locale.ROOT, "%-34s %14s%n", r.getName(), "new");
+                continue;
+            }
+            double change = (r.getNanosPerOp() - before) / before * 100;
+            boolean regressed = change > tolerancePercent;
+            if (regressed) regressions++;
+            report.printf(Locale.ROOT, "%-34s %+13.1f%%%s%n", r.getName(), change, regressed ? "  REGRESSION" : "");
+        }
+        return regressions;
+    }
+
+    static String formatNanos(double nanos) {
+        if (nanos >= 1_000_000) return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000);
+        if (nanos >= 1_000) return String.format(Locale.ROOT, "%.3f us", nanos / 1_000);
+        return String.format(Locale.ROOT, "%.2f ns", nanos);
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// TillLoadGenerator class - drives a TillServer over loopback and reports command latency percentiles
+// Opens a number of idle till connections (which only hold a socket open) and a number of active ones,
+// each sending PLAY and ADD_FUNDS commands in pipelined batches of --depth and timing every reply.
+// Without --port it starts its own server on a synthetic arcade.
+public class TillLoadGenerator {
+
+    private static final long SEED = 42;
+
+    // Load configuration, see usage()
+    private int port = -1;
+    private int games = 1_000;
+    private int customers = 10_000;
+    private int active = 32;
+    private int idle = 1_000;
+    private int commands = 20_000;
+    private int depth = 8;
+    private int maxInFlight = 4 * Runtime.getRuntime().availableProcessors();
+    private long busyTimeout = 100;
+    // Writes the synthetic arcade's files and names its games and customers
+    private WorkloadGenerator workload;
+
+    public static void main(String[] args) throws Exception {
+        TillLoadGenerator generator = new TillLoadGenerator();
+        if (!generator.parseArguments(args)) {
+            usage();
+            System.exit(2);
+        }
+        generator.run();
+    }
+
+    private static void usage() {
+        System.out.println("Usage: java TillLoadGenerator [options]");
+        System.out.println("  --port N           till server to load (default: start one on a synthetic arcade)");
+        System.out.println("                     (its games and customers must be WorkloadGenerator's, with --seed 42)");
+        System.out.println("  --games N          games in the synthetic arcade (default 1000)");
+        System.out.println("  --customers N      customers in the synthetic arcade (default 10000)");
+        System.out.println("  --active N         connections sending commands (default 32)");
+        System.out.println("  --idle N           connections that stay open and silent (default 1000)");
+        System.out.println("  --commands N       commands per active connection (default 20000)");
+        System.out.println("  --depth N          commands sent before reading their replies (default 8)");
+        System.out.println("  --in-flight N      server limit on commands running at once (default 4 x CPUs)");
+        System.out.println("  --busy-timeout MS  server wait before answering BUSY, -1 to wait forever (default 100)");
+    }
+
+    private boolean parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length) return false;
+            String value = args[++i];
+            switch (args[i - 1]) {
+                case "--port": port = Integer.parseInt(value); break;
+                case "--games": games = Integer.parseInt(value); break;
+                case "--customers": customers = Integer.parseInt(value); break;
+                case "--active": active = Integer.parseInt(value); break;
+                case "--idle": idle = Integer.parseInt(value); break;
+                case "--commands": commands = Integer.parseInt(value); break;
+                case "--depth": depth = Integer.parseInt(value); break;
+                case "--in-flight": maxInFlight = Integer.parseInt(value); break;
+                case "--busy-timeout": busyTimeout = Long.parseLong(value); break;
+                default: return false;
+            }
+        }
+        return games >= 3 && customers >= 1 && active >= 1 && idle >= 0 && commands >= 1 && depth >= 1 && maxInFlight >= 1;
+    }
+
+    private void run() throws Exception {
+        workload = WorkloadGenerator.wellFormed(SEED, games, customers, 0);
+        TillServer server = null;
+        if (port < 0) {
+            server = startServer();
+            port = server.getPort();
+        }
+
+        // Idle tills: connect and say nothing
+        List<Socket> idleSockets = new ArrayList<>();
+        for (int i = 0; i < idle; i++) {
+            idleSockets.add(new Socket(InetAddress.getLoopbackAddress(), port));
+        }
+        System.out.println(idleSockets.size() + " idle tills connected");
+
+        Client[] clients = new Client[active];
+        Thread[] threads = new Thread[active];
+        long start = System.nanoTime();
+        for (int i = 0; i < active; i++) {
+            clients[i] = new Client(i);
+            threads[i] = new Thread(clients[i], "till-client-" + i);
+            threads[i].start();
+        }
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - start;
+
+        report(clients, elapsed);
+        for (Socket s : idleSockets) s.close();
+        if (server != null) {
+            System.out.println("Server: " + server.getCommands() + " commands, " + server.getBusyReplies() + " busy, "
+                    + server.getRefusedConnections() + " connections refused");
+            server.close();
+        }
+    }
+
+    private TillServer startServer() throws IOException {
+        File dir = java.nio.file.Files.createTempDirectory("till-load").toFile();
+        File gamesFile = new File(dir, "games.txt");
+        File customersFile = new File(dir, "customers.txt");
+        workload.writeGames(gamesFile);
+        workload.writeCustomers(customersFile);
+
+        Arcade arcade = new Arcade("Load test", true);
+        MappedCatalogueLoader.loadGames(gamesFile, arcade);
+        MappedCatalogueLoader.loadCustomers(customersFile, arcade);
+        gamesFile.delete();
+        customersFile.delete();
+        dir.delete();
+
+        TillServer server = new TillServer(arcade, 0, idle + active + 16, maxInFlight, busyTimeout);
+        System.out.println("Started till server on port " + server.getPort()
+                + (server.usesVirtualThreads() ? " (virtual threads)" : " (platform threads)"));
+        return server;
+    }
+
+    // One active till: batches of 'depth' commands, then their replies
+    private final class Client implements Runnable {
+        final long[] latencies = new long[commands];
+        final Map<String, Integer> replies = new TreeMap<>();
+        final Random random;
+        IOException failure;
+
+        Client(int index) {
+            random = new Random(SEED + index);
+        }
+
+        @Override
+        public void run() {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                socket.setTcpNoDelay(true);
+                Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+                for (int sent = 0; sent < commands; ) {
+                    int batch = Math.min(depth, commands - sent);
+                    for (int i = 0; i < batch; i++) {
+                        out.write(nextCommand());
+                        out.write('\n');
+                    }
+                    long batchStart = System.nanoTime();
+                    out.flush();
+
+                    for (int i = 0; i < batch; i++) {
+                        String reply = in.readLine();
+                        if (reply == null) throw new EOFException("Server closed the connection");
+                        latencies[sent + i] = System.nanoTime() - batchStart;
+                        int space = reply.indexOf(' ');
+                        replies.merge(space < 0 ? reply : reply.substring(0, space), 1, Integer::sum);
+                    }
+                    sent += batch;
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        private String nextCommand() {
+            String customer = WorkloadGenerator.customerId(random.nextInt(customers));
+            if (random.nextInt(10) == 0) {
+                return "ADD_FUNDS," + customer + "," + (100 + random.nextInt(5000));
+            }
+            return "PLAY," + customer + "," + workload.gameId(random.nextInt(games)) + "," + (random.nextBoolean() ? "PEAK" : "OFFPEAK");
+        }
+    }
+
+    private void report(Client[] clients, long elapsedNanos) {
+        long[] all = new long[clients.length * commands];
+        Map<String, Integer> replies = new TreeMap<>();
+        int count = 0;
+        for (Client c : clients) {
+            if (c.failure != null) {
+                System.out.println("Client failed: " + c.failure.getMessage());
+                continue;
+            }
+            System.arraycopy(c.latencies, 0, all, count, commands);
+            count += commands;
+            c.replies.forEach((k, v) -> replies.merge(k, v, Integer::sum));
+        }
+        if (count == 0) return;
+        long[] sorted = Arrays.copyOf(all, count);
+        Arrays.sort(sorted);
+
+        System.out.printf("%d commands on %d connections (depth %d) in %.1f ms: %.0f commands/s%n",
+                count, clients.length, depth, elapsedNanos / 1e6, count / (elapsedNanos / 1e9));
+        System.out.printf("Latency p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999), sorted[count - 1] / 1e3);
+        System.out.println("Replies: " + replies);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e3;
+    }
+}
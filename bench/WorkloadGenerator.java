@@ -0,0 +1,517 @@
+import java.io.*;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+// WorkloadGenerator class - writes production-sized games.txt, customers.txt and transactions.txt for
+// load testing Simulation, with a configurable share of deliberately bad records
+// Every line is built and written on its own: a game's type comes from hashing the seed with its index
+// and IDs come from the index, so transactions can name any game or customer without either file being
+// kept in memory, and 10^8 transactions need no more heap than 10. The same options and seed always
+// give the same files. Bad records are chosen per line from the faults below, each one aimed at a
+// particular parser diagnostic, and the totals are printed at the end.
+// The benchmarks (BenchmarkCases, TillLoadGenerator) use a wellFormed() generator for their files and IDs.
+public class WorkloadGenerator {
+
+    // Deliberate faults, with the diagnostic each one should produce when the files are loaded
+    enum Fault {
+        GAME_MISSING_FIELDS(Diagnostic.GAME_MALFORMED),
+        GAME_UNKNOWN_TYPE(Diagnostic.GAME_UNKNOWN_TYPE),
+        GAME_BAD_PRICE(Diagnostic.GAME_ERROR),
+        GAME_WRONG_ID_PREFIX(Diagnostic.GAME_ERROR),
+        GAME_NO_EQUIPMENT(Diagnostic.GAME_INCOMPLETE_VR),
+        GAME_UNKNOWN_EQUIPMENT(Diagnostic.GAME_ERROR),
+        CUSTOMER_MISSING_FIELDS(Diagnostic.CUSTOMER_MALFORMED),
+        CUSTOMER_UNKNOWN_DISCOUNT(Diagnostic.CUSTOMER_UNKNOWN_DISCOUNT),
+        CUSTOMER_BAD_AGE(Diagnostic.CUSTOMER_BAD_NUMBER),
+        CUSTOMER_BAD_ID(Diagnostic.CUSTOMER_INVALID),
+        CUSTOMER_NEGATIVE_BALANCE(Diagnostic.CUSTOMER_INVALID),
+        TRANSACTION_UNKNOWN_ACTION(Diagnostic.UNKNOWN_TRANSACTION),
+        TRANSACTION_MISSING_FIELDS(Diagnostic.TRANSACTION_ERROR),
+        TRANSACTION_BAD_AMOUNT(Diagnostic.TRANSACTION_ERROR),
+        TRANSACTION_BAD_CUSTOMER_ID(Diagnostic.TRANSACTION_ERROR),
+        // Well-formed lines naming IDs that never exist
+        PLAY_UNKNOWN_CUSTOMER(Diagnostic.PLAY_UNKNOWN_CUSTOMER),
+        PLAY_UNKNOWN_GAME(Diagnostic.PLAY_UNKNOWN_GAME),
+        ADD_FUNDS_UNKNOWN_CUSTOMER(Diagnostic.TRANSACTION_ERROR);
+
+        final Diagnostic expected;
+
+        Fault(Diagnostic expected) {
+            this.expected = expected;
+        }
+    }
+
+    private static final Fault[] GAME_FAULTS = {Fault.GAME_MISSING_FIELDS, Fault.GAME_UNKNOWN_TYPE,
+            Fault.GAME_BAD_PRICE, Fault.GAME_WRONG_ID_PREFIX, Fault.GAME_NO_EQUIPMENT, Fault.GAME_UNKNOWN_EQUIPMENT};
+    private static final Fault[] CUSTOMER_FAULTS = {Fault.CUSTOMER_MISSING_FIELDS, Fault.CUSTOMER_UNKNOWN_DISCOUNT,
+            Fault.CUSTOMER_BAD_AGE, Fault.CUSTOMER_BAD_ID, Fault.CUSTOMER_NEGATIVE_BALANCE};
+    private static final Fault[] TRANSACTION_FAULTS = {Fault.TRANSACTION_UNKNOWN_ACTION, Fault.TRANSACTION_MISSING_FIELDS,
+            Fault.TRANSACTION_BAD_AMOUNT, Fault.TRANSACTION_BAD_CUSTOMER_ID};
+
+    private static final String[] GAME_TYPES = {"cabinet", "active", "virtualReality"};
+    private static final String[] GAME_NAMES = {"Cabinet ", "Active ", "Virtual "};
+    private static final String[] EQUIPMENT = {"headsetOnly", "headsetAndController", "fullBodyTracking"};
+    private static final String[] DISCOUNTS = {"", "STAFF", "STUDENT"};
+    private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    // Largest game index that fits a VR ID ("AV" and 8 digits), and customer index that fits 6 base-36 digits
+    static final int MAX_GAMES = 100_000_000;
+    static final long MAX_CUSTOMERS = 2_176_782_336L;
+    private static final int GAME_ID_LENGTH = 10;
+    private static final int CUSTOMER_ID_LENGTH = 6;
+
+    // Workload configuration, see usage()
+    private File outputDir = new File(".");
+    private long seed = 42;
+    private int games = 10_000;
+    private int customers = 100_000;
+    private long transactions = 1_000_000;
+    private double[] gameMix = cumulative(new double[] {1, 1, 1});
+    private double[] discountMix = cumulative(new double[] {2, 1, 1});
+    private double[] actionMix = cumulative(new double[] {80, 15, 5});
+    private double zipfExponent = 1.0;
+    private double peakRatio = 0.3;
+    private double gameErrors = 0.001;
+    private double customerErrors = 0.001;
+    private double transactionErrors = 0.001;
+    private double unknownIds = 0.001;
+
+    private final Map<Fault, Long> faults = new EnumMap<>(Fault.class);
+    private final StringBuilder line = new StringBuilder(128);
+    private char[] lineChars = new char[128];
+
+    // Generator of well-formed files only - no bad records or unknown IDs, uniform game popularity and
+    // half the plays at peak time - as the benchmarks use
+    static WorkloadGenerator wellFormed(long seed, int games, int customers, long transactions) {
+        if (games < 1 || games > MAX_GAMES || customers < 1 || transactions < 0) {
+            throw new IllegalArgumentException("Cannot generate " + games + " games, " + customers + " customers and "
+                    + transactions + " transactions");
+        }
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.seed = seed;
+        generator.games = games;
+        generator.customers = customers;
+        generator.transactions = transactions;
+        generator.zipfExponent = 0;
+        generator.peakRatio = 0.5;
+        generator.gameErrors = generator.customerErrors = generator.transactionErrors = generator.unknownIds = 0;
+        return generator;
+    }
+
+    public static void main(String[] args) throws IOException {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        if (!generator.parseArguments(args)) {
+            usage();
+            System.exit(2);
+        }
+        generator.run();
+    }
+
+    private static void usage() {
+        System.out.println("Usage: java WorkloadGenerator [options]");
+        System.out.println("  --out DIR                 where to write games.txt, customers.txt and transactions.txt (default .)");
+        System.out.println("  --seed N                  random seed (default 42)");
+        System.out.println("  --games N                 games, at most 100000000 (default 10000)");
+        System.out.println("  --customers N             customers before any NEW_CUSTOMER (default 100000)");
+        System.out.println("  --transactions N          transaction lines (default 1000000)");
+        System.out.println("  --game-mix C,A,V          relative shares of cabinet, active and VR games (default 1,1,1)");
+        System.out.println("  --discount-mix N,S,T      relative shares of no discount, staff and student (default 2,1,1)");
+        System.out.println("  --action-mix P,F,N        relative shares of PLAY, ADD_FUNDS and NEW_CUSTOMER (default 80,15,5)");
+        System.out.println("  --zipf S                  game popularity exponent, 0 for uniform (default 1.0)");
+        System.out.println("  --peak R                  share of plays at peak time (default 0.3)");
+        System.out.println("  --errors R                share of bad lines in every file (default 0.001)");
+        System.out.println("  --game-errors R           share of bad lines in games.txt");
+        System.out.println("  --customer-errors R       share of bad lines in customers.txt");
+        System.out.println("  --transaction-errors R    share of bad lines in transactions.txt");
+        System.out.println("  --unknown-ids R           share of PLAY and ADD_FUNDS lines naming a missing ID (default 0.001)");
+    }
+
+    private boolean parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length) return false;
+            String value = args[++i];
+            switch (args[i - 1]) {
+                case "--out": outputDir = new File(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--games": games = Integer.parseInt(value); break;
+                case "--customers": customers = Integer.parseInt(value); break;
+                case "--transactions": transactions = Long.parseLong(value); break;
+                case "--game-mix": gameMix = cumulative(weights(value)); break;
+                case "--discount-mix": discountMix = cumulative(weights(value)); break;
+                case "--action-mix": actionMix = cumulative(weights(value)); break;
+                case "--zipf": zipfExponent = Double.parseDouble(value); break;
+                case "--peak": peakRatio = Double.parseDouble(value); break;
+                case "--errors": gameErrors = customerErrors = transactionErrors = Double.parseDouble(value); break;
+                case "--game-errors": gameErrors = Double.parseDouble(value); break;
+                case "--customer-errors": customerErrors = Double.parseDouble(value); break;
+                case "--transaction-errors": transactionErrors = Double.parseDouble(value); break;
+                case "--unknown-ids": unknownIds = Double.parseDouble(value); break;
+                default: return false;
+            }
+        }
+        return games >= 1 && games <= MAX_GAMES && customers >= 1 && transactions >= 0 && zipfExponent >= 0
+                && gameMix != null && discountMix != null && actionMix != null
+                && isShare(peakRatio) && isShare(gameErrors) && isShare(customerErrors)
+                && isShare(transactionErrors) && isShare(unknownIds);
+    }
+
+    private static boolean isShare(double r) {
+        return r >= 0 && r <= 1;
+    }
+
+    // Comma-separated non-negative weights, three of them
+    private static double[] weights(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 3) return null;
+        double[] weights = new double[3];
+        for (int i = 0; i < 3; i++) weights[i] = Double.parseDouble(parts[i].trim());
+        return weights;
+    }
+
+    // Running totals of the weights scaled to end at 1, or null if they are negative or all zero
+    private static double[] cumulative(double[] weights) {
+        if (weights == null) return null;
+        double total = 0;
+        for (double w : weights) {
+            if (!(w >= 0)) return null;
+            total += w;
+        }
+        if (total <= 0) return null;
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum / total;
+        }
+        return cumulative;
+    }
+
+    // Index of the share a uniform value in [0, 1) falls in
+    private static int pick(double[] cumulative, double u) {
+        int i = 0;
+        while (i < cumulative.length - 1 && u >= cumulative[i]) i++;
+        return i;
+    }
+
+    private void run() throws IOException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create " + outputDir);
+        }
+        long start = System.nanoTime();
+        writeGames(new File(outputDir, "games.txt"));
+        writeCustomers(new File(outputDir, "customers.txt"));
+        long registered = writeTransactions(new File(outputDir, "transactions.txt"));
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Wrote %d games, %d customers (%d after NEW_CUSTOMER) and %d transactions to %s in %.1f s%n",
+                games, customers, registered, transactions, outputDir, elapsed / 1e9);
+        long total = 0;
+        for (Map.Entry<Fault, Long> e : faults.entrySet()) {
+            System.out.printf("  %-28s %,12d  -> %s%n", e.getKey(), e.getValue(), e.getKey().expected);
+            total += e.getValue();
+        }
+        System.out.printf("  %-28s %,12d%n", "bad records", total);
+        // Bad game and customer lines leave IDs that later transactions still name
+        System.out.println("Plays of games and customers whose lines were bad, and plays that are refused for age or"
+                + " funds, are reported on top of these");
+    }
+
+    // --- Games ---
+
+    // Type of game i: 0 cabinet, 1 active, 2 VR (as ArcadeSnapshot.gameType), fixed by the seed and the index
+    int gameType(int i) {
+        return pick(gameMix, unit(seed, i));
+    }
+
+    // Game i's ID, as games.txt and transactions.txt have it (safe to call from any thread)
+    String gameId(int i) {
+        int type = gameType(i);
+        StringBuilder sb = new StringBuilder(GAME_ID_LENGTH);
+        appendGameId(sb, i, type);
+        return sb.toString();
+    }
+
+    void writeGames(File file) throws IOException {
+        Random random = new Random(seed);
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            for (int i = 0; i < games; i++) {
+                line.setLength(0);
+                int type = gameType(i);
+                if (random.nextDouble() < gameErrors) {
+                    badGame(i, type, random);
+                } else {
+                    appendGame(i, type, random);
+                }
+                emit(out);
+            }
+        }
+    }
+
+    private void appendGame(int i, int type, Random random) {
+        appendGameId(i, type);
+        line.append("@\"").append(GAME_NAMES[type]).append(i).append("\"@").append(GAME_TYPES[type])
+                .append('@').append(20 + random.nextInt(1000)).append('@');
+        if (type == 0) {
+            line.append(random.nextBoolean() ? "yes" : "no");
+        } else {
+            line.append(random.nextInt(19));
+            if (type == 2) line.append('@').append(EQUIPMENT[random.nextInt(EQUIPMENT.length)]);
+        }
+    }
+
+    private void badGame(int i, int type, Random random) {
+        Fault fault = GAME_FAULTS[random.nextInt(GAME_FAULTS.length)];
+        count(fault);
+        switch (fault) {
+            case GAME_MISSING_FIELDS:
+                appendGameId(i, type);
+                line.append("@\"Broken ").append(i).append("\"@").append(GAME_TYPES[type]);
+                break;
+            case GAME_UNKNOWN_TYPE:
+                appendGameId(i, type);
+                line.append("@\"Pinball ").append(i).append("\"@pinball@").append(20 + random.nextInt(1000)).append("@no");
+                break;
+            case GAME_BAD_PRICE:
+                appendGameId(i, 0);
+                line.append("@\"Cabinet ").append(i).append("\"@cabinet@").append(random.nextInt(10)).append(".99@no");
+                break;
+            case GAME_WRONG_ID_PREFIX:
+                // An active game's ID on a cabinet line
+                appendGameId(i, 1);
+                line.append("@\"Cabinet ").append(i).append("\"@cabinet@").append(20 + random.nextInt(1000)).append("@yes");
+                break;
+            case GAME_NO_EQUIPMENT:
+                appendGame(i, 2, random);
+                line.setLength(line.lastIndexOf("@"));
+                break;
+            default:
+                appendGame(i, 2, random);
+                line.setLength(line.lastIndexOf("@") + 1);
+                line.append("jetpack");
+                break;
+        }
+    }
+
+    // Cabinet "C" and active "A" with 9 digits, VR "AV" with 8; the digits are the index
+    private void appendGameId(int i, int type) {
+        appendGameId(line, i, type);
+    }
+
+    private static void appendGameId(StringBuilder sb, int i, int type) {
+        sb.append(type == 0 ? "C" : type == 1 ? "A" : "AV");
+        appendPadded(sb, i, 10, type == 2 ? 8 : 9);
+    }
+
+    // --- Customers ---
+
+    void writeCustomers(File file) throws IOException {
+        Random random = new Random(seed + 1);
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            for (int i = 0; i < customers; i++) {
+                line.setLength(0);
+                if (random.nextDouble() < customerErrors) {
+                    badCustomer(i, random);
+                } else {
+                    appendCustomer(i, random);
+                }
+                emit(out);
+            }
+        }
+    }
+
+    private void appendCustomer(int i, Random random) {
+        appendCustomerId(i);
+        line.append("#Customer ").append(i).append('#').append(random.nextInt(20000)).append('#').append(10 + random.nextInt(60));
+        int discount = pick(discountMix, random.nextDouble());
+        if (discount > 0) line.append('#').append(DISCOUNTS[discount]);
+    }
+
+    private void badCustomer(int i, Random random) {
+        Fault fault = CUSTOMER_FAULTS[random.nextInt(CUSTOMER_FAULTS.length)];
+        count(fault);
+        switch (fault) {
+            case CUSTOMER_MISSING_FIELDS:
+                appendCustomerId(i);
+                line.append("#Customer ").append(i).append('#').append(random.nextInt(20000));
+                break;
+            case CUSTOMER_UNKNOWN_DISCOUNT:
+                appendCustomerId(i);
+                line.append("#Customer ").append(i).append('#').append(random.nextInt(20000)).append('#')
+                        .append(10 + random.nextInt(60)).append("#PENSIONER");
+                break;
+            case CUSTOMER_BAD_AGE:
+                appendCustomerId(i);
+                line.append("#Customer ").append(i).append('#').append(random.nextInt(20000)).append("#forty");
+                break;
+            case CUSTOMER_BAD_ID:
+                appendCustomerId(i);
+                line.setCharAt(line.length() - 1, '-');
+                line.append("#Customer ").append(i).append('#').append(random.nextInt(20000)).append('#').append(10 + random.nextInt(60));
+                break;
+            default:
+                appendCustomerId(i);
+                line.append("#Customer ").append(i).append("#-").append(1 + random.nextInt(500)).append('#').append(10 + random.nextInt(60));
+                break;
+        }
+    }
+
+    // Customer i: 6 upper-case base-36 digits, "000000", "000001", ...
+    static String customerId(long i) {
+        StringBuilder sb = new StringBuilder(CUSTOMER_ID_LENGTH);
+        appendPadded(sb, i, 36, CUSTOMER_ID_LENGTH);
+        return sb.toString();
+    }
+
+    private void appendCustomerId(long i) {
+        appendPadded(line, i, 36, CUSTOMER_ID_LENGTH);
+    }
+
+    // --- Transactions ---
+
+    // Writes the transactions and returns the number of customers once every NEW_CUSTOMER has registered
+    long writeTransactions(File file) throws IOException {
+        Random random = new Random(seed + 2);
+        ZipfSampler popularity = new ZipfSampler(games, zipfExponent);
+        long registered = customers;
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            for (long t = 0; t < transactions; t++) {
+                line.setLength(0);
+                if (random.nextDouble() < transactionErrors) {
+                    badTransaction(registered, random);
+                } else {
+                    switch (pick(actionMix, random.nextDouble())) {
+                        case 0:
+                            appendPlay(registered, popularity, random);
+                            break;
+                        case 1:
+                            appendAddFunds(registered, random);
+                            break;
+                        default:
+                            if (registered == MAX_CUSTOMERS) throw new IllegalStateException("Out of customer IDs");
+                            appendNewCustomer(registered++, random);
+                            break;
+                    }
+                }
+                emit(out);
+            }
+        }
+        return registered;
+    }
+
+    private void appendPlay(long registered, ZipfSampler popularity, Random random) {
+        line.append("PLAY,");
+        boolean unknown = random.nextDouble() < unknownIds;
+        boolean unknownCustomer = unknown && random.nextBoolean();
+        if (unknownCustomer) {
+            count(Fault.PLAY_UNKNOWN_CUSTOMER);
+            appendUnknownCustomerId(random);
+        } else {
+            appendCustomerId(nextLong(random, registered));
+        }
+        line.append(',');
+        if (unknown && !unknownCustomer) {
+            // A cabinet-shaped ID that no index produces
+            count(Fault.PLAY_UNKNOWN_GAME);
+            line.append("CX");
+            appendPadded(line, random.nextInt(100_000_000), 10, 8);
+        } else {
+            int game = popularity.sample(random) - 1;
+            appendGameId(game, gameType(game));
+        }
+        line.append(random.nextDouble() < peakRatio ? ",PEAK" : ",OFF_PEAK");
+    }
+
+    private void appendAddFunds(long registered, Random random) {
+        line.append("ADD_FUNDS,");
+        if (random.nextDouble() < unknownIds) {
+            count(Fault.ADD_FUNDS_UNKNOWN_CUSTOMER);
+            appendUnknownCustomerId(random);
+        } else {
+            appendCustomerId(nextLong(random, registered));
+        }
+        line.append(',').append(100 + random.nextInt(5000));
+    }
+
+    private void appendNewCustomer(long id, Random random) {
+        line.append("NEW_CUSTOMER,");
+        appendCustomerId(id);
+        line.append(",New Customer ").append(id).append(',').append(DISCOUNTS[pick(discountMix, random.nextDouble())])
+                .append(',').append(random.nextInt(5000)).append(',').append(10 + random.nextInt(60));
+    }
+
+    private void badTransaction(long registered, Random random) {
+        Fault fault = TRANSACTION_FAULTS[random.nextInt(TRANSACTION_FAULTS.length)];
+        count(fault);
+        switch (fault) {
+            case TRANSACTION_UNKNOWN_ACTION:
+                line.append("REFUND,");
+                appendCustomerId(nextLong(random, registered));
+                line.append(',').append(100 + random.nextInt(5000));
+                break;
+            case TRANSACTION_MISSING_FIELDS:
+                line.append("PLAY,");
+                appendCustomerId(nextLong(random, registered));
+                break;
+            case TRANSACTION_BAD_AMOUNT:
+                line.append("ADD_FUNDS,");
+                appendCustomerId(nextLong(random, registered));
+                line.append(",").append(1 + random.nextInt(50)).append(".50");
+                break;
+            default:
+                // One character too many, so it cannot take a registered customer's ID
+                line.append("NEW_CUSTOMER,");
+                appendCustomerId(registered);
+                line.append("X,New Customer,STUDENT,").append(random.nextInt(5000)).append(',').append(10 + random.nextInt(60));
+                break;
+        }
+    }
+
+    // "z" and 5 lower-case base-36 digits: a well-formed customer ID that appendCustomerId never writes
+    private void appendUnknownCustomerId(Random random) {
+        line.append('z');
+        int start = line.length();
+        appendPadded(line, random.nextInt(60_466_176), 36, 5);
+        for (int i = start; i < line.length(); i++) line.setCharAt(i, Character.toLowerCase(line.charAt(i)));
+    }
+
+    // --- Helpers ---
+
+    private void count(Fault fault) {
+        faults.merge(fault, 1L, Long::sum);
+    }
+
+    // Appends value in the given radix, upper case, zero-padded to 'width' digits
+    private static void appendPadded(StringBuilder sb, long value, int radix, int width) {
+        int end = sb.length() + width;
+        sb.setLength(end);
+        for (int i = end - 1; i >= end - width; i--) {
+            sb.setCharAt(i, DIGITS[(int) (value % radix)]);
+            value /= radix;
+        }
+    }
+
+    // Writes the line without turning it into a String
+    private void emit(Writer out) throws IOException {
+        int length = line.length();
+        if (length > lineChars.length) lineChars = new char[2 * length];
+        line.getChars(0, length, lineChars, 0);
+        out.write(lineChars, 0, length);
+        out.write('\n');
+    }
+
+    // Uniform in [0, bound)
+    private static long nextLong(Random random, long bound) {
+        if (bound <= Integer.MAX_VALUE) return random.nextInt((int) bound);
+        return (random.nextLong() >>> 1) % bound;
+    }
+
+    // Uniform in [0, 1), from a SplitMix64 hash of the seed and an index
+    private static double unit(long seed, long index) {
+        long z = seed * 0x9E3779B97F4A7C15L + index;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.Random;
+
+// ZipfSampler class - draws ranks 1..n with probability proportional to 1 / rank^exponent
+// Uses rejection-inversion (Hormann and Derflinger, "Rejection-inversion to generate variates from
+// monotone discrete distributions", 1996): a continuous hat function is inverted in closed form and a
+// draw is only rejected when it lands outside the histogram bar of its rank, which happens rarely.
+// Every sample takes constant time and nothing is stored per rank, so a catalogue of 10^8 games costs
+// no more than one of ten. An exponent of 0 gives uniform ranks.
+public class ZipfSampler {
+
+    private final int n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    public ZipfSampler(int n, double exponent) {
+        if (n < 1) throw new IllegalArgumentException("Number of ranks must be at least 1: " + n);
+        if (!(exponent >= 0)) throw new IllegalArgumentException("Exponent cannot be negative: " + exponent);
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    // A rank from 1 (most likely) to n
+    public int sample(Random random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) k = 1;
+            else if (k > n) k = n;
+            // Accept at once when x is close to k, otherwise only under the bar of rank k
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) return k;
+        }
+    }
+
+    // The hat function's integral H(x) = (x^(1 - e) - 1) / (1 - e), or log(x) when e is 1
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    // h(x) = 1 / x^e
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1 - exponent);
+        if (t < -1) t = -1; // only reached through rounding error
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log(1 + x) / x, kept accurate near 0
+    private static double helper1(double x) {
+        if (Math.abs(x) > 1e-8) return Math.log1p(x) / x;
+        return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    // (exp(x) - 1) / x, kept accurate near 0
+    private static double helper2(double x) {
+        if (Math.abs(x) > 1e-8) return Math.expm1(x) / x;
+        return 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+    }
+}
@@ -0,0 +1,142 @@
+package arcade.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+// AnalyticsBenchmarks class - findRichestCustomer, getMedianGamePrice, countArcadeGames, read views,
+// rankings, percentiles and indexed game queries on a fully loaded arcade
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyticsBenchmarks {
+
+    @Param("10000")
+    public int games;
+
+    @Param("100000")
+    public int customers;
+
+    private LongSupplier findRichestCustomer;
+    private LongSupplier getMedianGamePrice;
+    private LongSupplier countArcadeGames;
+    private LongSupplier readView;
+    private LongSupplier readViewThenWrite;
+    private LongSupplier readViewTotalBalance;
+    private LongSupplier topCustomers;
+    private LongSupplier topCustomersIndex;
+    private LongSupplier balanceRank;
+    private LongSupplier balanceDecilesExact;
+    private LongSupplier balanceDecilesSketch;
+    private LongSupplier balanceDecilesExactLive;
+    private LongSupplier balanceDecilesSketchLive;
+    private LongSupplier findGamesIndexed;
+    private LongSupplier findGamesScan;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Cases cases = new Cases("Analytics", games, customers, 1);
+        findRichestCustomer = cases.operation("analytics.findRichestCustomer");
+        getMedianGamePrice = cases.operation("analytics.getMedianGamePrice");
+        countArcadeGames = cases.operation("analytics.countArcadeGames");
+        readView = cases.operation("analytics.readView");
+        readViewThenWrite = cases.operation("analytics.readView.thenWrite");
+        readViewTotalBalance = cases.operation("analytics.readView.totalBalance");
+        topCustomers = cases.operation("analytics.topCustomers.100");
+        topCustomersIndex = cases.operation("analytics.topCustomers.100.index");
+        balanceRank = cases.operation("analytics.balanceRank");
+        balanceDecilesExact = cases.operation("analytics.balanceDeciles.exact");
+        balanceDecilesSketch = cases.operation("analytics.balanceDeciles.sketch");
+        balanceDecilesExactLive = cases.operation("analytics.balanceDeciles.exact.live");
+        balanceDecilesSketchLive = cases.operation("analytics.balanceDeciles.sketch.live");
+        findGamesIndexed = cases.operation("analytics.findGames.indexed");
+        findGamesScan = cases.operation("analytics.findGames.scan");
+    }
+
+    @Benchmark
+    public long findRichestCustomer() {
+        return findRichestCustomer.getAsLong();
+    }
+
+    @Benchmark
+    public long getMedianGamePrice() {
+        return getMedianGamePrice.getAsLong();
+    }
+
+    @Benchmark
+    public long countArcadeGames() {
+        return countArcadeGames.getAsLong();
+    }
+
+    @Benchmark
+    public long readView() {
+        return readView.getAsLong();
+    }
+
+    @Benchmark
+    public long readViewThenWrite() {
+        return readViewThenWrite.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long readViewTotalBalance() {
+        return readViewTotalBalance.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long topCustomers() {
+        return topCustomers.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long topCustomersIndex() {
+        return topCustomersIndex.getAsLong();
+    }
+
+    @Benchmark
+    public long balanceRank() {
+        return balanceRank.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long balanceDecilesExact() {
+        return balanceDecilesExact.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long balanceDecilesSketch() {
+        return balanceDecilesSketch.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long balanceDecilesExactLive() {
+        return balanceDecilesExactLive.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long balanceDecilesSketchLive() {
+        return balanceDecilesSketchLive.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long findGamesIndexed() {
+        return findGamesIndexed.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long findGamesScan() {
+        return findGamesScan.getAsLong();
+    }
+}
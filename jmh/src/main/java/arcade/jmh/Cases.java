@@ -0,0 +1,41 @@
+package arcade.jmh;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+// Cases class - one group of the arcade's benchmark operations (bench/BenchmarkCases) for a JMH benchmark
+// JMH will not generate code for benchmarks in the default package, and a named package cannot refer to
+// the arcade's default-package classes, so BenchmarkCases is created by name once per trial and its
+// operations are called through LongSupplier. Every @Benchmark method calls its own operation from its
+// own call site, so the JIT still sees a single target and inlines it.
+final class Cases {
+
+    private final Object cases;
+    private final Map<String, LongSupplier> operations;
+    private final Method setupFor;
+
+    // 'group' picks BenchmarkCases.add<group>Cases, e.g. "Parser" or "Analytics"
+    @SuppressWarnings("unchecked")
+    Cases(String group, int games, int customers, int transactions) throws ReflectiveOperationException {
+        Class<?> type = Class.forName("BenchmarkCases");
+        cases = type.getConstructor(File.class, int.class, int.class, int.class).newInstance(null, games, customers, transactions);
+        type.getMethod("add" + group + "Cases").invoke(cases);
+        operations = (Map<String, LongSupplier>) type.getMethod("operations").invoke(cases);
+        setupFor = type.getMethod("setupFor", String.class);
+    }
+
+    LongSupplier operation(String name) {
+        LongSupplier operation = operations.get(name);
+        if (operation == null) throw new IllegalArgumentException("No benchmark case " + name);
+        return operation;
+    }
+
+    // Untimed setup an operation needs before every call
+    Runnable setup(String name) throws ReflectiveOperationException {
+        Runnable setup = (Runnable) setupFor.invoke(cases, name);
+        if (setup == null) throw new IllegalArgumentException("Benchmark case " + name + " has no setup");
+        return setup;
+    }
+}
@@ -0,0 +1,72 @@
+package arcade.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+// ParserBenchmarks class - GameParser, CustomerParser and the catalogue loaders on whole synthetic files
+// File sizes are parameters, e.g. -p games=100000 -p customers=1000000
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmarks {
+
+    @Param("10000")
+    public int games;
+
+    @Param("100000")
+    public int customers;
+
+    private LongSupplier parseGames;
+    private LongSupplier parseCustomers;
+    private LongSupplier loadCatalogueBinary;
+    private LongSupplier loadCatalogueText;
+    private LongSupplier medianPriceColumns;
+    private LongSupplier validateIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Cases cases = new Cases("Parser", games, customers, 1);
+        parseGames = cases.operation("parse.games");
+        parseCustomers = cases.operation("parse.customers");
+        loadCatalogueBinary = cases.operation("load.catalogue.binary");
+        loadCatalogueText = cases.operation("load.catalogue.text");
+        medianPriceColumns = cases.operation("analytics.medianPrice.columns");
+        validateIds = cases.operation("parse.validateIds");
+    }
+
+    @Benchmark
+    public long parseGames() {
+        return parseGames.getAsLong();
+    }
+
+    @Benchmark
+    public long parseCustomers() {
+        return parseCustomers.getAsLong();
+    }
+
+    @Benchmark
+    public long loadCatalogueBinary() {
+        return loadCatalogueBinary.getAsLong();
+    }
+
+    @Benchmark
+    public long loadCatalogueText() {
+        return loadCatalogueText.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long medianPriceColumns() {
+        return medianPriceColumns.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long validateIds() {
+        return validateIds.getAsLong();
+    }
+}
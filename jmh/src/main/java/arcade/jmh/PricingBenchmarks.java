@@ -0,0 +1,60 @@
+package arcade.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+// PricingBenchmarks class - ArcadeGame.calculatePrice per subclass, alternating peak and off-peak, and
+// formatting report amounts with Money against the String.format version it replaced
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmarks {
+
+    @Param("10000")
+    public int games;
+
+    private LongSupplier priceCabinet;
+    private LongSupplier priceActive;
+    private LongSupplier priceVirtualReality;
+    private LongSupplier formatMoney;
+    private LongSupplier formatMoneyStringFormat;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Cases cases = new Cases("Pricing", games, 1, 1);
+        priceCabinet = cases.operation("price.cabinet");
+        priceActive = cases.operation("price.active");
+        priceVirtualReality = cases.operation("price.virtualReality");
+        formatMoney = cases.operation("report.formatMoney");
+        formatMoneyStringFormat = cases.operation("report.formatMoney.stringFormat");
+    }
+
+    @Benchmark
+    public long priceCabinet() {
+        return priceCabinet.getAsLong();
+    }
+
+    @Benchmark
+    public long priceActive() {
+        return priceActive.getAsLong();
+    }
+
+    @Benchmark
+    public long priceVirtualReality() {
+        return priceVirtualReality.getAsLong();
+    }
+
+    @Benchmark
+    public long formatMoney() {
+        return formatMoney.getAsLong();
+    }
+
+    @Benchmark
+    public long formatMoneyStringFormat() {
+        return formatMoneyStringFormat.getAsLong();
+    }
+}
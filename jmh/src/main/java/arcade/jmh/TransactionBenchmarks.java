@@ -0,0 +1,70 @@
+package arcade.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+// TransactionBenchmarks class - Arcade.processTransaction at peak and off-peak, one PLAY per call cycling
+// through customers and games, till bursts (a top-up and seven plays) and rejected plays
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionBenchmarks {
+
+    @Param("10000")
+    public int games;
+
+    @Param("100000")
+    public int customers;
+
+    private LongSupplier processTransactionPeak;
+    private LongSupplier processTransactionOffPeak;
+    private LongSupplier burstSingle;
+    private LongSupplier burstBatch;
+    private LongSupplier processTransactionRejected;
+    private LongSupplier tryChargeCustomerRejected;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Cases cases = new Cases("Transaction", games, customers, 1);
+        processTransactionPeak = cases.operation("arcade.processTransaction.peak");
+        processTransactionOffPeak = cases.operation("arcade.processTransaction.offpeak");
+        burstSingle = cases.operation("arcade.burst.single");
+        burstBatch = cases.operation("arcade.burst.batch");
+        processTransactionRejected = cases.operation("arcade.processTransaction.rejected");
+        tryChargeCustomerRejected = cases.operation("arcade.tryChargeCustomer.rejected");
+    }
+
+    @Benchmark
+    public long processTransactionPeak() {
+        return processTransactionPeak.getAsLong();
+    }
+
+    @Benchmark
+    public long processTransactionOffPeak() {
+        return processTransactionOffPeak.getAsLong();
+    }
+
+    @Benchmark
+    public long burstSingle() {
+        return burstSingle.getAsLong();
+    }
+
+    @Benchmark
+    public long burstBatch() {
+        return burstBatch.getAsLong();
+    }
+
+    @Benchmark
+    public long processTransactionRejected() {
+        return processTransactionRejected.getAsLong();
+    }
+
+    @Benchmark
+    public long tryChargeCustomerRejected() {
+        return tryChargeCustomerRejected.getAsLong();
+    }
+}
@@ -0,0 +1,61 @@
+package arcade.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+// TransactionFileBenchmarks class - TransactionParser.processTransactions (line by line and batched) and
+// StreamingTransactionParser over a whole synthetic transactions file, e.g. -p transactions=10000000
+// Every call changes the arcade's balances, so each starts from a freshly loaded arcade (not timed).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionFileBenchmarks {
+
+    @Param("10000")
+    public int games;
+
+    @Param("100000")
+    public int customers;
+
+    @Param("1000000")
+    public int transactions;
+
+    private Runnable freshArcade;
+    private LongSupplier processTransactions;
+    private LongSupplier processTransactionsBatched;
+    private LongSupplier processTransactionsStreaming;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Cases cases = new Cases("Parser", games, customers, transactions);
+        freshArcade = cases.setup("parse.transactions");
+        processTransactions = cases.operation("parse.transactions");
+        processTransactionsBatched = cases.operation("parse.transactions.batched");
+        processTransactionsStreaming = cases.operation("parse.transactions.streaming");
+    }
+
+    // A file takes far longer than this setup, so running it per invocation does not skew the timings
+    @Setup(Level.Invocation)
+    public void loadArcade() {
+        freshArcade.run();
+    }
+
+    @Benchmark
+    public long processTransactions() {
+        return processTransactions.getAsLong();
+    }
+
+    @Benchmark
+    public long processTransactionsBatched() {
+        return processTransactionsBatched.getAsLong();
+    }
+
+    @Benchmark
+    public long processTransactionsStreaming() {
+        return processTransactionsStreaming.getAsLong();
+    }
+}
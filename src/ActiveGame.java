@@ -6,9 +6,7 @@ class ActiveGame extends ArcadeGame {
     // Constructor taking values of all fields
     public ActiveGame(String gameID, String gameName, int price, int minimumAge) throws InvalidGameIdException {
         super(gameID, gameName, price);
-        if (!gameID.startsWith("A")){
-            throw new InvalidGameIdException("Invalid Active Game ID: must start with 'A' and be 10 alphanumeric characters");
-        }
+        checkGameType(gameID, IdCheck.ACTIVE_GAME);
         this.minimumAge = minimumAge;
     }
 
@@ -20,8 +18,12 @@ class ActiveGame extends ArcadeGame {
 
     @Override
     public int calculatePrice(boolean peak){
-        // Active games are discounted 20% off
-        return peak ? getPrice() : (int) (getPrice() * 0.8);
+        return peak ? getPrice() : offPeakPrice(getPrice());
+    }
+
+    // Active games are discounted 20% off
+    static int offPeakPrice(int price) {
+        return (int) (price * 0.8);
     }
 
     // toString method
@@ -1,154 +1,744 @@
-import java.util.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 public class Arcade {
 
     // Private Fields
     private String arcadeName;
-    private int arcadeRevenue;
-    private Map<String, ArcadeGame> games = new HashMap<>();
-    private Map<String, Customer> customers = new HashMap<>();
+    private final LongAdder arcadeRevenue = new LongAdder();
+    // Rejected PLAY transactions, indexed by TransactionStatus ordinal
+    private final LongAdder[] rejections = new LongAdder[TransactionStatus.values().length];
+
+    // Games: packed game ID (see IdCodec) -> ordinal in the price table, which also holds the game itself
+    private final IdIndex gameIds = new IdIndex();
+    private final PriceTable prices = new PriceTable();
+
+    // Customers: packed customer ID -> slot in the primitive customer store
+    private final IdIndex customerIds = new IdIndex();
+    private final CustomerStore customerStore = new CustomerStore();
+
+    // Concurrent mode: changes to a customer are serialised per lock stripe (null when single-threaded)
+    // and registrations also take the registration lock
+    private final boolean concurrent;
+    private final StripedLocks customerLocks;
+    private final Object registrationLock = new Object();
+
+    // Analytics kept up to date on every change instead of scanning per query
+    private final BalanceIndex balanceIndex;
+    private final GameCatalogueStats catalogueStats = new GameCatalogueStats();
+    private final GameIndex gameIndex = new GameIndex();
+
+    // Name search: customer slots and game ordinals by the words of their names
+    private final NameIndex customerNames = new NameIndex(this::customerName);
+    private final NameIndex gameNames = new NameIndex(ordinal -> prices.game(ordinal).getGameName());
+
+    // Told about every applied change, e.g. a TransactionJournal (null when nothing is listening)
+    private volatile TransactionListener listener;
+
+    // Windowed revenue and play counts, kept up to date on every charge (null when not wanted)
+    private volatile RevenueRollup rollup;
+
+    // Latencies, plays and rejections are recorded here (the process-wide metrics unless replaced)
+    private ArcadeMetrics metrics = ArcadeMetrics.global();
 
     // Constructor
     public Arcade(String arcadeName){
+        this(arcadeName, false);
+    }
+
+    // Constructor - a concurrent arcade can be driven by many threads (tills) at once
+    public Arcade(String arcadeName, boolean concurrent){
         this.arcadeName = arcadeName;
-        this.arcadeRevenue = 0;
+        this.concurrent = concurrent;
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] = new LongAdder();
+        }
 
-        // HashMaps - more efficient than ArrayLists in this case: allows for fast lookup by ID
-        this.games = new HashMap<>();
-        this.customers = new HashMap<>();
+        if (concurrent) {
+            this.customerLocks = StripedLocks.forAvailableProcessors();
+            this.balanceIndex = new BalanceIndex(customerStore, customerLocks);
+        } else {
+            this.customerLocks = null;
+            this.balanceIndex = new BalanceIndex(customerStore, null);
+        }
     }
 
     // Accessor methods
     public String getArcadeName() {
         return arcadeName;
     }
-    public int getArcadeRevenue() {
-        return arcadeRevenue;
+    public long getArcadeRevenue() {
+        return arcadeRevenue.sum();
+    }
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    // Sets the listener told about every change from now on (null to stop)
+    public void setTransactionListener(TransactionListener listener) {
+        this.listener = listener;
+    }
+
+    // Adds every charge from now on to the given rollup (null to stop)
+    public void setRevenueRollup(RevenueRollup rollup) {
+        this.rollup = rollup;
+    }
+
+    public RevenueRollup getRevenueRollup() {
+        return rollup;
+    }
+
+    // Records into other metrics from now on; set before the arcade is shared between threads
+    public void setMetrics(ArcadeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public ArcadeMetrics getMetrics() {
+        return metrics;
     }
 
     // Adds a game to the arcade system
     public void addArcadeGame(ArcadeGame g){
-        games.put(g.getGameID(), g);
+        long key = IdCodec.encode(g.getGameID());
+        synchronized (catalogueStats) {
+            // Journaled before it is applied, so a listener failure leaves the catalogue as it was. A charge
+            // that read the old price can still be journaled after this; replay debits what was journaled
+            TransactionListener l = listener;
+            if (l != null) l.gameAdded(key, g);
+
+            int ordinal = gameIds.get(key);
+            if (ordinal >= 0) {
+                ArcadeGame old = prices.game(ordinal);
+                catalogueStats.remove(old);
+                gameIndex.remove(ordinal, old);
+                prices.set(ordinal, g);
+                if (!old.getGameName().equals(g.getGameName())) gameNames.rename(ordinal, old.getGameName(), g.getGameName());
+            } else {
+                ordinal = prices.add(g);
+                gameIds.put(key, ordinal);
+                gameNames.add(ordinal, g.getGameName());
+            }
+            catalogueStats.add(g);
+            gameIndex.add(ordinal, g);
+        }
     }
 
     // Adds a customer to the arcade system
+    // (the arcade keeps its own copy of the details, later changes to 'c' are not seen)
     public void addCustomer(Customer c){
-        customers.put(c.getCustomerID(), c);
+        long key = IdCodec.encode(c.getCustomerID());
+        if (concurrent) {
+            synchronized (registrationLock) {
+                putCustomer(key, c);
+            }
+        } else {
+            putCustomer(key, c);
+        }
+    }
+
+    // Adds a customer from stored columns that were validated when written (see BinaryCatalogue)
+    void addCustomer(long key, String name, int age, Customer.DiscountType discount, long balance){
+        if (concurrent) {
+            synchronized (registrationLock) {
+                putCustomer(key, name, age, discount, balance, null);
+            }
+        } else {
+            putCustomer(key, name, age, discount, balance, null);
+        }
+    }
+
+    private void putCustomer(long key, Customer c){
+        putCustomer(key, c.getCustomerName(), c.getAge(), c.discountType(), c.getBalance(), c);
+    }
+
+    private void putCustomer(long key, String name, int age, Customer.DiscountType discount, long balance, Customer c){
+        int slot = customerIds.get(key);
+        if (slot < 0) {
+            // Nobody can charge the customer before the ID is published, so the journal sees it first
+            journalCustomer(key, name, age, discount, balance, c);
+            // Fill the slot before publishing the ID, so readers never see a half-written customer
+            slot = customerStore.add(key, name, age, discount, balance);
+            rankBalance(slot);
+            customerIds.put(key, slot);
+            customerNames.add(slot, name);
+            return;
+        }
+
+        // Journaled under the customer's lock, like charges and top-ups, so none of them can be
+        // journaled before the new details but applied to the old ones (or the other way round)
+        String oldName = customerName(slot);
+        if (concurrent) {
+            synchronized (customerLocks.lockFor(slot)) {
+                replaceCustomer(slot, key, name, age, discount, balance, c);
+            }
+        } else {
+            replaceCustomer(slot, key, name, age, discount, balance, c);
+        }
+        if (!name.equals(oldName)) customerNames.rename(slot, oldName, name);
+    }
+
+    private void replaceCustomer(int slot, long key, String name, int age, Customer.DiscountType discount, long balance, Customer c){
+        journalCustomer(key, name, age, discount, balance, c);
+        customerStore.set(slot, key, name, age, discount, balance);
+        balanceIndex.update(slot);
+    }
+
+    private void journalCustomer(long key, String name, int age, Customer.DiscountType discount, long balance, Customer c){
+        TransactionListener l = listener;
+        if (l != null) l.customerAdded(key, c != null ? c : Customer.restore(IdCodec.decode(key), name, age, discount, balance));
+    }
+
+    private String customerName(int slot){
+        if (concurrent) {
+            synchronized (customerLocks.lockFor(slot)) {
+                return customerStore.name(slot);
+            }
+        }
+        return customerStore.name(slot);
+    }
+
+    // Number of customer slots (see ArcadeChain)
+    int customerCount(){
+        return customerStore.size();
+    }
+
+    // Adds revenue restored from a snapshot
+    void restoreRevenue(long pence){
+        arcadeRevenue.add(pence);
+    }
+
+    // Runs 'action' while no game, customer or revenue change can be in progress
+    // (in concurrent mode that means holding every lock, so the action should be short)
+    public void quiesce(Runnable action){
+        synchronized (catalogueStats) {
+            if (concurrent) {
+                synchronized (registrationLock) {
+                    customerLocks.runWithAll(action);
+                }
+            } else {
+                action.run();
+            }
+        }
+    }
+
+    // Consistent read-only view of balances, revenue and the catalogue (see ArcadeView), taken without
+    // copying customer data - writers pause only while the view's page list is put together.
+    // A concurrent arcade can be viewed from any thread; otherwise take the view on the thread using
+    // the arcade, then hand it to whichever threads report from it.
+    // (Revenue from TransactionPipeline batches is included once their account stage has run.)
+    public ArcadeView readView(){
+        return readView(() -> 0);
+    }
+
+    // Same as above, also reading the journal sequence the view covers (see ArcadeSnapshot)
+    ArcadeView readView(LongSupplier journalSequence){
+        ArcadeView[] view = new ArcadeView[1];
+        quiesce(() -> view[0] = new ArcadeView(arcadeName, customerStore.snapshot(), prices.snapshot(),
+                arcadeRevenue.sum(), balanceIndex.richest(), catalogueStats.getMedianPrice(), catalogueStats.getCounts(),
+                journalSequence.getAsLong(), customerIds, gameIds));
+        return view[0];
+    }
+
+    private void rankBalance(int slot){
+        if (concurrent) {
+            synchronized (customerLocks.lockFor(slot)) {
+                balanceIndex.update(slot);
+            }
+        } else {
+            balanceIndex.update(slot);
+        }
     }
 
     // Retrieve a customer by ID, or throw exception if not found
+    // Deprecated: this used to return the live customer, but it now returns a detached copy - edits to
+    // it do not reach the arcade, and it does not follow later charges or top-ups; use getCustomerSnapshot
+    @Deprecated
     public Customer getCustomer(String customerID) throws InvalidCustomerException{
-        if (!customers.containsKey(customerID)){
+        return getCustomerSnapshot(customerID);
+    }
+
+    // A detached copy of a customer's current details, or throw exception if not found
+    // (balances only change through the arcade, e.g. chargeCustomer and addFunds)
+    public Customer getCustomerSnapshot(String customerID) throws InvalidCustomerException{
+        return customerAt(slotOf(customerID));
+    }
+
+    // Position of a customer by balance, 1 for the richest (ties go to the most recently added customer)
+    public int getBalanceRank(String customerID) throws InvalidCustomerException{
+        return balanceIndex.rankOf(slotOf(customerID));
+    }
+
+    private int slotOf(String customerID) throws InvalidCustomerException{
+        int slot = customerIds.get(IdCodec.encode(customerID));
+        if (slot < 0){
             throw new InvalidCustomerException("Customer with ID " + customerID + " does not exist");
         }
-        return customers.get(customerID);
+        return slot;
+    }
+
+    private Customer customerAt(int slot){
+        if (concurrent) {
+            synchronized (customerLocks.lockFor(slot)) {
+                return customerStore.toCustomer(slot);
+            }
+        }
+        return customerStore.toCustomer(slot);
+    }
+
+    // Slot of a customer by packed ID (see IdCodec), or -1 if there is no such customer
+    public int findCustomer(long customerKey){
+        return customerIds.get(customerKey);
+    }
+
+    // Ordinal of a game by packed ID (see IdCodec), or -1 if there is no such game
+    public int findGame(long gameKey){
+        return gameIds.get(gameKey);
     }
 
     // Rerieve a game by ID, or throw an exception if not found
     public ArcadeGame getArcadeGame(String gameID) throws InvalidGameIdException{
-        if (!games.containsKey(gameID)){
+        return prices.game(getGameOrdinal(gameID));
+    }
+
+    // Retrieve a game's price table ordinal by ID, or throw an exception if not found
+    private int getGameOrdinal(String gameID) throws InvalidGameIdException{
+        int ordinal = gameIds.get(IdCodec.encode(gameID));
+        if (ordinal < 0){
             throw new InvalidGameIdException("Game with ID " + gameID + " does not exist");
         }
-        return games.get(gameID);
+        return ordinal;
+    }
+
+    // Games matching every condition of the query, in the order they were added (see GameIndex)
+    public List<ArcadeGame> findGames(GameQuery query){
+        BitSet ordinals = gameIndex.select(query);
+        List<ArcadeGame> games = new ArrayList<>(ordinals.cardinality());
+        for (int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)) {
+            games.add(prices.game(i));
+        }
+        return games;
+    }
+
+    // Number of games matching the query, without building the list
+    public int countGames(GameQuery query){
+        return gameIndex.select(query).cardinality();
+    }
+
+    // Customers with a word of their name starting with each word of 'prefix' (e.g. "mant tob")
+    public List<Customer> findCustomersByName(String prefix, int limit){
+        return customersAt(customerNames.complete(prefix, limit));
+    }
+
+    // Customers with a word of their name within 'maxEdits' typos of each word of the query
+    public List<Customer> searchCustomersByName(String query, int maxEdits, int limit){
+        return customersAt(customerNames.search(query, maxEdits, limit));
+    }
+
+    // Games with a word of their title starting with each word of 'prefix'
+    public List<ArcadeGame> findGamesByName(String prefix, int limit){
+        return gamesAt(gameNames.complete(prefix, limit));
+    }
+
+    // Games with a word of their title within 'maxEdits' typos of each word of the query
+    public List<ArcadeGame> searchGamesByName(String query, int maxEdits, int limit){
+        return gamesAt(gameNames.search(query, maxEdits, limit));
+    }
+
+    private List<Customer> customersAt(int[] slots){
+        List<Customer> customers = new ArrayList<>(slots.length);
+        for (int slot : slots) customers.add(customerAt(slot));
+        return customers;
+    }
+
+    private List<ArcadeGame> gamesAt(int[] ordinals){
+        List<ArcadeGame> games = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) games.add(prices.game(ordinal));
+        return games;
+    }
+
+    // Checks the precomputed price table against every game's calculatePrice
+    public boolean verifyPriceTable(){
+        return prices.verify();
     }
 
     // Handles a full game transaction - charges customer and adds payment to arcade revenue
     public boolean processTransaction(String customerID, String gameID, boolean peak) throws InvalidCustomerException, InvalidGameIdException, InsufficientBalanceException, AgeLimitException{
-        Customer c = getCustomer(customerID);
-        ArcadeGame g = getArcadeGame(gameID);
-
-        int charged = c.chargeAccount(g, peak);
-        arcadeRevenue += charged;
+        chargeCustomer(customerID, gameID, peak);
         return true;
     }
 
-    // GamesCo required result //
+    // Same as processTransaction, but returns the amount charged in pence
+    public int chargeCustomer(String customerID, String gameID, boolean peak) throws InvalidCustomerException, InvalidGameIdException, InsufficientBalanceException, AgeLimitException{
+        int result = tryChargeCustomer(customerID, gameID, peak);
+        if (result < 0){
+            TransactionStatus.of(result).raise(customerID, gameID);
+        }
+        return result;
+    }
 
-    // Finds customer with the highest balance
-    public Customer findRichestCustomer(){
-        Customer richest = null;
-        int max = Integer.MIN_VALUE;
+    // Charges without throwing: returns pence charged, or a negative code for TransactionStatus.of
+    public int tryChargeCustomer(String customerID, String gameID, boolean peak){
+        return tryChargeCustomer(customerIds.get(IdCodec.encode(customerID)), gameIds.get(IdCodec.encode(gameID)), peak);
+    }
+
+    // Same as above for a customer slot and game ordinal (see findCustomer / findGame, -1 means unknown)
+    public int tryChargeCustomer(int customer, int game, boolean peak){
+        ArcadeMetrics m = metrics;
+        long start = m.start();
+        int result = tryCharge(customer, game, peak);
+        m.record(TransactionAction.PLAY, start);
+        return result;
+    }
 
-        for (Customer c : customers.values()){
-            if (c.getBalance() > max){
-                max = c.getBalance();
-                richest = c;
+    private int tryCharge(int customer, int game, boolean peak){
+        if (customer < 0) return reject(TransactionStatus.UNKNOWN_CUSTOMER);
+        if (game < 0) return reject(TransactionStatus.UNKNOWN_GAME);
+
+        if (concurrent) {
+            synchronized (customerLocks.lockFor(customer)) {
+                return charge(customer, game, peak);
             }
-            if (customers.isEmpty()) return null;
         }
-        return richest;
+        return charge(customer, game, peak);
     }
 
+    // Applies a burst of PLAY and ADD_FUNDS transactions with the same results as applying them one at a
+    // time in order. Items are grouped by customer - a customer's items keep their order, and different
+    // customers never affect each other - so each customer is looked up, locked and re-ranked once per
+    // group, each game once per run of the same game, and revenue is added once per batch (once per
+    // group in concurrent mode).
+    // Returns the batch's result array, valid up to batch.size() (see TransactionBatch.result).
+    // Plays and rejections are counted in the metrics; batched items are not timed one by one.
+    public int[] processBatch(TransactionBatch batch){
+        int[] results = batch.results;
+        int[] order = batch.order;
+        int groups = batch.groupByCustomer();
+        long revenue = 0;
+
+        try {
+            for (int g = 0, from = 0; g < groups; from = batch.groupEnds[g++]) {
+                int to = batch.groupEnds[g];
+                int customer = customerIds.get(batch.customerKeys[order[from]]);
+                if (customer < 0) {
+                    for (int k = from; k < to; k++) {
+                        int i = order[k];
+                        results[i] = batch.action(i) == TransactionAction.PLAY
+                                ? reject(TransactionStatus.UNKNOWN_CUSTOMER)
+                                : TransactionStatus.UNKNOWN_CUSTOMER.code();
+                    }
+                } else if (concurrent) {
+                    // Revenue goes in with the balances it came from, so a read view never sees one without the other
+                    synchronized (customerLocks.lockFor(customer)) {
+                        long taken = applyGroup(batch, from, to, customer);
+                        if (taken > 0) arcadeRevenue.add(taken);
+                    }
+                } else {
+                    revenue += applyGroup(batch, from, to, customer);
+                }
+            }
+        } finally {
+            // Also when a listener fails part-way: the groups before it were applied
+            if (revenue > 0) arcadeRevenue.add(revenue);
+        }
+        return results;
+    }
 
-    // Calculates median price (off-peak) across all games
-    public int getMedianGamePrice(){
-        List<Integer> prices = new ArrayList<>();
+    // One customer's items of a batch, the same checks as charge and topUp against a running balance
+    // that is stored (and ranked) once at the end; returns the revenue taken
+    private long applyGroup(TransactionBatch batch, int from, int to, int customer){
+        long customerKey = customerStore.key(customer);
+        Customer.DiscountType discount = customerStore.discount(customer);
+        int age = customerStore.age(customer);
+        long balance = customerStore.balance(customer);
+        long startBalance = balance;
+        long revenue = 0;
+
+        RevenueRollup r = rollup;
+        TransactionListener l = listener;
+        long gameKey = IdCodec.INVALID;
+        int game = -1;
+        try {
+            for (int k = from; k < to; k++) {
+                int i = batch.order[k];
+                if (batch.action(i) == TransactionAction.ADD_FUNDS) {
+                    // Same rule as Customer.addFunds: only positive amounts are added
+                    int amount = batch.amounts[i];
+                    if (amount > 0) {
+                        if (l != null) l.fundsAdded(customerKey, amount);
+                        balance += amount;
+                    }
+                    batch.results[i] = 0;
+                    continue;
+                }
+
+                if (batch.gameKeys[i] != gameKey) {
+                    gameKey = batch.gameKeys[i];
+                    game = gameIds.get(gameKey);
+                }
+                if (game < 0) {
+                    batch.results[i] = reject(TransactionStatus.UNKNOWN_GAME);
+                    continue;
+                }
+                boolean peak = batch.peak[i];
+                // One row array per charge, so a game re-registered meanwhile is seen whole or not at all
+                int[] rows = prices.rows();
+                int price = PriceTable.price(rows, game, discount, peak);
+                TransactionStatus status = Customer.chargeStatus(discount, age, balance, price, PriceTable.minimumAge(rows, game));
+                if (status.isRejection()) {
+                    batch.results[i] = reject(status);
+                    continue;
+                }
+
+                if (l != null) l.charged(customerKey, gameKey, peak, price);
+                balance -= price;
+                revenue += price;
+                batch.results[i] = price;
+                int gameType = PriceTable.gameType(rows, game);
+                metrics.played(gameType);
+                if (r != null) r.record(game, gameType, discount, peak, price);
+            }
+        } catch (RuntimeException e) {
+            // The listener failed before its item changed anything; the items it was told about stand
+            storeBalance(customer, startBalance, balance);
+            arcadeRevenue.add(revenue);
+            throw e;
+        }
+        storeBalance(customer, startBalance, balance);
+        return revenue;
+    }
 
-        for (ArcadeGame g : games.values()){
-            prices.add(g.calculatePrice(false)); // Off-peak price
+    private void storeBalance(int customer, long startBalance, long balance){
+        if (balance != startBalance) {
+            customerStore.setBalance(customer, balance);
+            balanceIndex.update(customer);
         }
+    }
 
-        Collections.sort(prices);
-        int size = prices.size();
+    // Unknown-ID and age checks of tryChargeCustomer without touching the balance (rejections are counted)
+    TransactionStatus admit(int customer, int game){
+        if (customer < 0) return rejected(TransactionStatus.UNKNOWN_CUSTOMER);
+        if (game < 0) return rejected(TransactionStatus.UNKNOWN_GAME);
+        if (customerStore.age(customer) < prices.minimumAge(game)) return rejected(TransactionStatus.AGE_LIMIT);
+        return TransactionStatus.APPLIED;
+    }
 
-        // If there is even number of games
-        if (size == 0) return 0;
-        if (size % 2 == 1){
-            return prices.get(size / 2);
+    // tryChargeCustomer for an admitted customer and game (see TransactionPipeline). The revenue is added
+    // under the customer's lock with the balance change, so a checkpoint (which quiesces) sees both or neither
+    int debit(int customer, int game, boolean peak){
+        ArcadeMetrics m = metrics;
+        long start = m.start();
+        int result;
+        if (concurrent) {
+            synchronized (customerLocks.lockFor(customer)) {
+                result = charge(customer, game, peak);
+            }
         } else {
-            int mid1 = prices.get((size / 2) - 1);
-            int mid2 = prices.get(size / 2);
-            return (mid1 + mid2) / 2; // Averages the price of two middle games
+            result = charge(customer, game, peak);
         }
+        m.record(TransactionAction.PLAY, start);
+        return result;
     }
 
-    // Returns number of each game type
-    public int[] countArcadeGames(){
-        int cabinet = 0 , active = 0, vr = 0;
+    private int charge(int customer, int game, boolean peak){
+        Customer.DiscountType discount = customerStore.discount(customer);
+        long balance = customerStore.balance(customer);
+
+        // Precomputed price for this customer's discount, no calculatePrice call; every value of the
+        // game comes from one row array, so a game re-registered meanwhile is seen whole or not at all
+        int[] rows = prices.rows();
+        int price = PriceTable.price(rows, game, discount, peak);
+        TransactionStatus status = Customer.chargeStatus(discount, customerStore.age(customer), balance, price, PriceTable.minimumAge(rows, game));
+        if (status.isRejection()) return reject(status);
+
+        // Journaled before anything changes, so a listener failure leaves the charge unapplied
+        TransactionListener l = listener;
+        if (l != null) l.charged(customerStore.key(customer), IdCodec.encode(prices.game(game).getGameID()), peak, price);
+        take(customer, game, rows, discount, peak, price);
+        return price;
+    }
+
+    private void take(int customer, int game, int[] rows, Customer.DiscountType discount, boolean peak, int price){
+        customerStore.setBalance(customer, customerStore.balance(customer) - price);
+        balanceIndex.update(customer);
+        arcadeRevenue.add(price);
+        int gameType = PriceTable.gameType(rows, game);
+        metrics.played(gameType);
+        RevenueRollup r = rollup;
+        if (r != null) r.record(game, gameType, discount, peak, price);
+    }
 
-        for (ArcadeGame g : games.values()){
-            if (g instanceof VirtualRealityGame) vr++;
-            else if (g instanceof ActiveGame) active++;
-            else cabinet++;
+    // Applies a charge read back from a journal at the price it was journaled with, without pricing or
+    // checking it again: a game re-registered while the charge was under way is journaled before it,
+    // so today's price can differ from what was taken (see TransactionJournal.replay)
+    void replayCharge(int customer, int game, boolean peak, int price){
+        if (concurrent) {
+            synchronized (customerLocks.lockFor(customer)) {
+                take(customer, game, prices.rows(), customerStore.discount(customer), peak, price);
+            }
+        } else {
+            take(customer, game, prices.rows(), customerStore.discount(customer), peak, price);
         }
-        return new int[]{cabinet, active, vr};
+    }
+
+    private int reject(TransactionStatus status){
+        return rejected(status).code();
+    }
+
+    private TransactionStatus rejected(TransactionStatus status){
+        rejections[status.ordinal()].increment();
+        metrics.rejected(status);
+        return status;
+    }
+
+    // Number of PLAY transactions rejected for the given reason
+    public long getRejectionCount(TransactionStatus status){
+        return rejections[status.ordinal()].sum();
+    }
+
+    // Rejected PLAY transactions per reason (reasons with none are left out)
+    public Map<TransactionStatus, Long> getRejectionCounts(){
+        Map<TransactionStatus, Long> counts = new EnumMap<>(TransactionStatus.class);
+        for (TransactionStatus status : TransactionStatus.values()) {
+            long count = rejections[status.ordinal()].sum();
+            if (count > 0) counts.put(status, count);
+        }
+        return counts;
+    }
+
+    // GamesCo required result //
+
+    // Finds customer with the highest balance (ties go to the most recently added customer)
+    // (in concurrent mode balances may be mid-update, so this is a best-effort view)
+    public Customer findRichestCustomer(){
+        int slot = balanceIndex.richest();
+        return slot < 0 ? null : customerAt(slot);
+    }
+
+
+    // The k customers with the highest balances, richest first (same order as findRichestCustomer)
+    public List<Customer> findTopCustomers(int k){
+        List<Customer> top = new ArrayList<>();
+        for (int slot : balanceIndex.top(k)) top.add(customerAt(slot));
+        return top;
+    }
+
+    // Number of customers with at least this balance
+    public int countCustomersWithBalanceAtLeast(long balance){
+        return balanceIndex.countAtLeast(balance);
+    }
+
+    // Percentiles, worked out exactly from the live balance and price columns: no locks are taken, so
+    // charges made meanwhile may or may not be counted - ask a readView for figures from one instant
+
+    // 'discount' null means every customer
+    public long[] getBalancePercentiles(Customer.DiscountType discount, double... percentiles){
+        long[] balances = customerStore.balances(discount);
+        return RankStats.percentiles(balances, balances.length, percentiles);
+    }
+
+    public long[] getBalanceDeciles(Customer.DiscountType discount){
+        return getBalancePercentiles(discount, ArcadeView.DECILES);
+    }
+
+    // Approximate, mergeable balance distribution for very large customer bases (see QuantileSketch)
+    public QuantileSketch sketchBalances(Customer.DiscountType discount){
+        QuantileSketch sketch = new QuantileSketch(QuantileSketch.DEFAULT_ACCURACY);
+        customerStore.forEachBalance(discount, sketch::add);
+        return sketch;
+    }
+
+    // Off-peak prices, as ArcadeView.getGamePricePercentiles; 'type' null means every game
+    public long[] getGamePricePercentiles(GameQuery.GameType type, double... percentiles){
+        int count = prices.size();
+        int[] rows = prices.rows();
+        long[] values = new long[count];
+        int n = 0;
+        for (int game = 0; game < count; game++) {
+            if (type == null || PriceTable.gameType(rows, game) == type.ordinal()) {
+                values[n++] = PriceTable.price(rows, game, Customer.DiscountType.NONE, false);
+            }
+        }
+        return RankStats.percentiles(values, n, percentiles);
+    }
+
+    // Calculates median price (off-peak) across all games
+    public int getMedianGamePrice(){
+        return catalogueStats.getMedianPrice();
+    }
+
+    // Returns number of each game type
+    public int[] countArcadeGames(){
+        return catalogueStats.getCounts();
     }
 
 
     // Returns the formatted total revenue earned by the arcade
     public String getFormattedRevenue() {
-        return formatMoney(arcadeRevenue);
+        return formatMoney(getArcadeRevenue());
     }
 
     // Corporate Motto
+    public static final String CORPORATE_JARGON = "GamesCo does not take responsibility for any accidents or fits of rage that occur on the premises.";
+
     public static void printCorporateJargon(){
-        System.out.println("GamesCo does not take responsibility for any accidents or fits of rage that occur on the premises.");
+        System.out.println(CORPORATE_JARGON);
     }
 
     // Adds a new customer
     public void registerCustomer(Customer customer) {
-        customers.put(customer.getCustomerID(), customer);
+        ArcadeMetrics m = metrics;
+        long start = m.start();
+        addCustomer(customer);
+        m.record(TransactionAction.NEW_CUSTOMER, start);
     }
 
     // Increases a customer's balance
     public void addFunds(String customerID, int amount) throws InvalidCustomerException {
-        Customer customer = customers.get(customerID);
-        if (customer == null) {
+        int customer = customerIds.get(IdCodec.encode(customerID));
+        if (customer < 0) {
             throw new InvalidCustomerException("Customer not found: " + customerID);
         }
-            customer.addFunds(amount);
+        addFunds(customer, amount);
+    }
+
+    // Increases the balance of a customer slot (see findCustomer)
+    public void addFunds(int customer, int amount) {
+        ArcadeMetrics m = metrics;
+        long start = m.start();
+        if (concurrent) {
+            synchronized (customerLocks.lockFor(customer)) {
+                topUp(customer, amount);
+            }
+        } else {
+            topUp(customer, amount);
+        }
+        m.record(TransactionAction.ADD_FUNDS, start);
+    }
+
+    // Same rule as Customer.addFunds: only positive amounts are added
+    private void topUp(int customer, int amount) {
+        if (amount > 0) {
+            // Journaled before the balance changes, so a listener failure leaves it as it was
+            TransactionListener l = listener;
+            if (l != null) l.fundsAdded(customerStore.key(customer), amount);
+            customerStore.setBalance(customer, customerStore.balance(customer) + amount);
+            balanceIndex.update(customer);
+        }
     }
 
     @Override
     public String toString() {
-        return "Arcade{name='" + arcadeName + "', revenue=" + formatMoney(arcadeRevenue) + ", games=" + games.size() + ", customers=" + customers.size() + "}";
+        return "Arcade{name='" + arcadeName + "', revenue=" + formatMoney(getArcadeRevenue()) + ", games=" + gameIds.size() + ", customers=" + customerIds.size() + "}";
     }
 
-    // Converts amount in pence to formatted GBP string
-    public String formatMoney(int pence){
-        boolean negative = pence < 0;
-        pence = Math.abs(pence);
-        return (negative? "-£" : "£") + (pence / 100) + "." + String.format("%02d", pence % 100);
+    // Converts amount in pence to formatted GBP string (see Money.appendTo to format into a builder)
+    public String formatMoney(long pence){
+        return Money.format(pence);
     }
 
 
@@ -222,6 +812,12 @@ public class Arcade {
             int[] counts = myArcade.countArcadeGames();
             System.out.println("Cabinet: " + counts[0] + ", Active: " + counts[1] + ", VR: " + counts[2]);
 
+            // Rejections per reason
+            System.out.println("Rejections: " + myArcade.getRejectionCounts());
+
+            // Price table agrees with calculatePrice
+            System.out.println("Price table consistent: " + myArcade.verifyPriceTable());
+
             // Arcade Revenue
             System.out.println("\nArcade Revenue: " + myArcade.getArcadeRevenue()+ "\n");
 
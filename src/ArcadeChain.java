@@ -0,0 +1,326 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// ArcadeChain class - many arcade sites run as shards of one chain
+// Every customer belongs to one site, picked by consistent hashing of the packed customer ID: each
+// site owns POINTS_PER_SITE points on a hash ring and a customer goes to the next point clockwise,
+// so adding or removing a site between runs only moves about 1/n of the customers.
+// The game catalogue is replicated to every site, so any customer can play any game at their site.
+//
+// Each site is a single-threaded Arcade confined to its own executor thread: transactions are routed
+// to the customer's site and run there in submission order, sites run side by side. Chain analytics
+// are computed by each site on its own thread and the partial results merged (richest of the richest,
+// sum of revenues), so no customer data is ever copied between sites. Nothing here needs the sites to
+// share memory, which is what lets them move to separate JVMs later.
+public class ArcadeChain implements AutoCloseable {
+
+    // Points each site owns on the hash ring; more points spread customers more evenly
+    private static final int POINTS_PER_SITE = 128;
+    // Ring points keep their site number in the low bits
+    private static final int SITE_BITS = 12;
+    private static final int MAX_SITES = 1 << SITE_BITS;
+
+    private final String chainName;
+    private final Arcade[] sites;
+    private final ExecutorService[] executors;
+    private final DiagnosticsSink diagnostics;
+
+    // Hash ring: sorted point hashes and the site owning each point
+    private final long[] ringPoints;
+    private final int[] ringSites;
+
+    private int lineNumber;
+
+    // Creates a chain with one site per name; problems with transactions go to 'diagnostics'
+    public ArcadeChain(String chainName, List<String> siteNames, DiagnosticsSink diagnostics) {
+        if (siteNames.isEmpty() || siteNames.size() > MAX_SITES) {
+            throw new IllegalArgumentException("A chain needs between 1 and " + MAX_SITES + " sites");
+        }
+        this.chainName = chainName;
+        this.diagnostics = diagnostics;
+        this.sites = new Arcade[siteNames.size()];
+        this.executors = new ExecutorService[sites.length];
+        for (int i = 0; i < sites.length; i++) {
+            String name = siteNames.get(i);
+            sites[i] = new Arcade(name);
+            executors[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "site-" + name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        // Points are placed by hashing the site name, so a site keeps its points whatever the others are
+        long[] points = new long[sites.length * POINTS_PER_SITE];
+        for (int i = 0; i < sites.length; i++) {
+            long seed = siteNames.get(i).hashCode() * 0x9E3779B97F4A7C15L;
+            for (int p = 0; p < POINTS_PER_SITE; p++) {
+                points[i * POINTS_PER_SITE + p] = mix(seed + p) & -MAX_SITES | i;
+            }
+        }
+        Arrays.sort(points);
+        this.ringPoints = new long[points.length];
+        this.ringSites = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            ringPoints[i] = points[i];
+            ringSites[i] = (int) (points[i] & (MAX_SITES - 1));
+        }
+    }
+
+    // 64-bit finaliser from SplitMix64: spreads neighbouring IDs and names over the whole ring
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Accessor methods
+    public String getChainName() {
+        return chainName;
+    }
+    public int getSiteCount() {
+        return sites.length;
+    }
+
+    // The site's arcade; only safe to use directly once the chain is closed
+    public Arcade getSite(int site) {
+        return sites[site];
+    }
+
+    // Site a customer ID belongs to (IDs IdCodec cannot pack all go to the same site)
+    public int siteFor(String customerID) {
+        return siteFor(IdCodec.encode(customerID));
+    }
+
+    int siteFor(long customerKey) {
+        long hash = mix(customerKey);
+        int i = Arrays.binarySearch(ringPoints, hash);
+        if (i < 0) i = -i - 1;
+        return ringSites[i == ringPoints.length ? 0 : i];
+    }
+
+    // --- Loading ---
+
+    // Adds a game to every site
+    public void addArcadeGame(ArcadeGame g) {
+        for (int i = 0; i < sites.length; i++) {
+            Arcade site = sites[i];
+            executors[i].execute(() -> site.addArcadeGame(g));
+        }
+    }
+
+    // Adds a customer to the site it belongs to
+    public void addCustomer(Customer c) {
+        int i = siteFor(c.getCustomerID());
+        Arcade site = sites[i];
+        executors[i].execute(() -> site.addCustomer(c));
+    }
+
+    public void loadGames(File gamesFile) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(gamesFile))) {
+            for (ArcadeGame game : GameParser.parseGames(reader, diagnostics)) {
+                addArcadeGame(game);
+            }
+        }
+    }
+
+    public void loadCustomers(File customersFile) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(customersFile))) {
+            for (Customer customer : CustomerParser.parseCustomers(reader, diagnostics)) {
+                addCustomer(customer);
+            }
+        }
+    }
+
+    // --- Transactions ---
+
+    // Queues one transaction line at the site of the customer it names (line numbers count submissions)
+    // Lines without a valid customer ID all go to one site, which reports them like TransactionParser would
+    public synchronized void submit(String line) {
+        int number = ++lineNumber;
+        int i = siteFor(customerIdOf(line));
+        Arcade site = sites[i];
+        executors[i].execute(() -> TransactionParser.processLine(line, number, site, diagnostics));
+    }
+
+    // Second comma-separated field, trimmed, as TransactionParser reads it (null if there is none)
+    private static String customerIdOf(String line) {
+        int first = line.indexOf(',');
+        if (first < 0) return null;
+        int second = line.indexOf(',', first + 1);
+        return line.substring(first + 1, second < 0 ? line.length() : second).trim();
+    }
+
+    // Submits every line of a transactions file and waits for the sites to apply them
+    public void processTransactions(File transactionFile) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(transactionFile))) {
+            for (String line; (line = reader.readLine()) != null; ) {
+                submit(line);
+            }
+        }
+        awaitIdle();
+    }
+
+    // Waits until everything submitted so far has been applied
+    public void awaitIdle() {
+        gather(site -> null);
+    }
+
+    // --- Chain analytics, merged from per-site results ---
+
+    // Customer with the highest balance across all sites (ties go to the earlier site)
+    public Customer findRichestCustomer() {
+        Customer richest = null;
+        for (Customer c : gather(Arcade::findRichestCustomer)) {
+            if (c != null && (richest == null || c.getBalance() > richest.getBalance())) richest = c;
+        }
+        return richest;
+    }
+
+    // The k richest customers across all sites, merged from each site's own top k (ties between sites
+    // are broken arbitrarily)
+    public List<Customer> findTopCustomers(int k) {
+        List<Customer> candidates = new ArrayList<>();
+        for (List<Customer> top : gather(site -> site.findTopCustomers(k))) candidates.addAll(top);
+        long[] balances = new long[candidates.size()];
+        for (int i = 0; i < balances.length; i++) balances[i] = candidates.get(i).getBalance();
+        List<Customer> result = new ArrayList<>();
+        for (int i : RankStats.top(balances, balances.length, k)) result.add(candidates.get(i));
+        return result;
+    }
+
+    // Approximate balance percentiles across all sites, from the merged sketches of every site
+    // ('discount' null means every customer)
+    public long[] getBalancePercentiles(Customer.DiscountType discount, double... percentiles) {
+        QuantileSketch merged = new QuantileSketch();
+        for (QuantileSketch sketch : gather(site -> site.sketchBalances(discount))) merged.merge(sketch);
+        return merged.quantiles(percentiles);
+    }
+
+    // Every site holds the whole catalogue, so catalogue analytics are any one site's
+    public int getMedianGamePrice() {
+        return onSite(0, Arcade::getMedianGamePrice);
+    }
+
+    public int[] countArcadeGames() {
+        return onSite(0, Arcade::countArcadeGames);
+    }
+
+    // Sum of every site's revenue in pence
+    public long getChainRevenue() {
+        long total = 0;
+        for (long revenue : getSiteRevenues()) total = Money.add(total, revenue);
+        return total;
+    }
+
+    // Revenue of each site in pence, in site order
+    public long[] getSiteRevenues() {
+        List<Long> revenues = gather(Arcade::getArcadeRevenue);
+        long[] result = new long[revenues.size()];
+        for (int i = 0; i < result.length; i++) result[i] = revenues.get(i);
+        return result;
+    }
+
+    // Number of customers held by each site, in site order
+    public int[] getSiteCustomerCounts() {
+        List<Integer> counts = gather(Arcade::customerCount);
+        int[] result = new int[counts.size()];
+        for (int i = 0; i < result.length; i++) result[i] = counts.get(i);
+        return result;
+    }
+
+    public String getFormattedRevenue() {
+        return formatMoney(getChainRevenue());
+    }
+
+    // Same format as Arcade.formatMoney
+    public static String formatMoney(long pence) {
+        return Money.format(pence);
+    }
+
+    // Functional interface for work run on a site's own thread
+    public interface SiteQuery<T> {
+        T apply(Arcade site);
+    }
+
+    // Runs a query on every site's thread, after the work already queued there, and collects the results
+    public <T> List<T> gather(SiteQuery<T> query) {
+        List<Future<T>> futures = new ArrayList<>(sites.length);
+        for (int i = 0; i < sites.length; i++) {
+            Arcade site = sites[i];
+            Callable<T> task = () -> query.apply(site);
+            futures.add(executors[i].submit(task));
+        }
+        List<T> results = new ArrayList<>(sites.length);
+        for (Future<T> f : futures) results.add(await(f));
+        return results;
+    }
+
+    private <T> T onSite(int i, SiteQuery<T> query) {
+        Arcade site = sites[i];
+        Callable<T> task = () -> query.apply(site);
+        return await(executors[i].submit(task));
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a site", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Site task failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    // Lets queued work finish and stops the site threads
+    @Override
+    public void close() {
+        for (ExecutorService executor : executors) executor.shutdown();
+        try {
+            for (ExecutorService executor : executors) executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs the sample data across four sites and checks the chain totals against a single arcade
+    public static void main(String[] args) throws IOException {
+        File games = new File("games.txt");
+        File customers = new File("customers.txt");
+        File transactions = new File("transactions.txt");
+
+        CountingDiagnostics problems = new CountingDiagnostics();
+        try (ArcadeChain chain = new ArcadeChain("GamesCo", Arrays.asList("Level Up!", "Pixel Palace", "Joystick Junction", "Coin Op"), problems)) {
+            chain.loadGames(games);
+            chain.loadCustomers(customers);
+            chain.processTransactions(transactions);
+
+            long[] revenues = chain.getSiteRevenues();
+            int[] customerCounts = chain.getSiteCustomerCounts();
+            for (int i = 0; i < chain.getSiteCount(); i++) {
+                System.out.println(chain.getSite(i).getArcadeName() + ": " + customerCounts[i] + " customers, revenue " + formatMoney(revenues[i]));
+            }
+            System.out.println("Chain revenue: " + chain.getFormattedRevenue() + " (" + problems.getTotal() + " problems reported)");
+            System.out.println("Chain richest: " + chain.findRichestCustomer());
+            System.out.println("Median game price: " + formatMoney(chain.getMedianGamePrice()) + ", game counts " + Arrays.toString(chain.countArcadeGames()));
+        }
+
+        Arcade single = Simulation.initialiseArcade("Level Up!", games, customers, new CountingDiagnostics());
+        try (BufferedReader reader = new BufferedReader(new FileReader(transactions))) {
+            TransactionParser.processTransactions(reader, single, new CountingDiagnostics());
+        }
+        System.out.println("Single arcade: revenue " + single.getFormattedRevenue() + ", richest " + single.findRichestCustomer());
+    }
+}
@@ -15,7 +15,7 @@ public abstract class ArcadeGame {
     // Constructor taking values of all fields
     public ArcadeGame(String gameID, String gameName, int price) throws InvalidGameIdException {
         if (!isValidGameID(gameID)) {
-            throw new InvalidGameIdException("Invalid Game ID" + gameID);
+            throw new InvalidGameIdException(IdValidator.GAME_ID + gameID);
         }
         this.gameID = gameID;
         this.gameName = gameName;
@@ -24,7 +24,15 @@ public abstract class ArcadeGame {
 
     // Validation method for Game ID
     private boolean isValidGameID(String gameID) {
-        return gameID != null && gameID.matches("[a-zA-Z0-9]{10}");
+        return IdValidator.checkGameId(gameID).isWellFormedGameId();
+    }
+
+    // Throws if a game of the given type cannot have this ID, with IdValidator's message for it
+    static void checkGameType(String gameID, IdCheck type) throws InvalidGameIdException {
+        String problem = IdValidator.gameIdProblem(gameID, IdValidator.checkGameId(gameID), type);
+        if (problem != null) {
+            throw new InvalidGameIdException(problem);
+        }
     }
 
     // Accessor Methods
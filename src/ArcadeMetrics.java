@@ -0,0 +1,335 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// ArcadeMetrics class - always-on counters and latency histograms for the hot paths
+// Arcade records the latency of every PLAY charge, top-up and registration (see LatencyHistogram),
+// plays per game type and rejections per reason; the parsers record lines parsed and time taken.
+// Recording is lock-free and allocation-free (nanoTime, a bucket increment and striped adders);
+// reading formats text and may see recordings that are still in progress.
+// One process-wide instance (global()) is shared by the parsers and every Arcade by default.
+// It can be published over JMX (registerMBean) and dumped as text on a timer (startDump).
+public class ArcadeMetrics implements ArcadeMetricsMBean {
+
+    // Parsers whose throughput is tracked
+    public enum Parser { GAMES, CUSTOMERS, TRANSACTIONS }
+
+    private static final String OBJECT_NAME = "arcade:type=Metrics";
+    private static final String[] GAME_TYPES = {"Cabinet", "Active", "Virtual Reality"};
+    private static final ArcadeMetrics GLOBAL = new ArcadeMetrics();
+
+    private volatile boolean enabled = true;
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[TransactionAction.values().length];
+    private final LongAdder[] plays = new LongAdder[GAME_TYPES.length];
+    private final LongAdder[] rejections = new LongAdder[TransactionStatus.values().length];
+    private final LongAdder[] parsedLines = new LongAdder[Parser.values().length];
+    private final LongAdder[] parseNanos = new LongAdder[Parser.values().length];
+
+    // Action counts at the previous dump, for rates between dumps
+    private final long[] dumpedCounts = new long[TransactionAction.values().length];
+    private long dumpedAt = System.nanoTime();
+    private ScheduledExecutorService dumper;
+
+    public ArcadeMetrics() {
+        for (int i = 0; i < latencies.length; i++) latencies[i] = new LatencyHistogram();
+        for (int i = 0; i < plays.length; i++) plays[i] = new LongAdder();
+        for (int i = 0; i < rejections.length; i++) rejections[i] = new LongAdder();
+        for (int i = 0; i < parsedLines.length; i++) {
+            parsedLines[i] = new LongAdder();
+            parseNanos[i] = new LongAdder();
+        }
+    }
+
+    // The instance the parsers and new Arcades record into
+    public static ArcadeMetrics global() {
+        return GLOBAL;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Turns recording off (or back on); reads carry on returning what was recorded
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // --- Recording ---
+
+    // Start time to pass to record (0 when disabled, so a disabled recording costs one volatile read)
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // Records the latency of an action that began at 'start'
+    public void record(TransactionAction action, long start) {
+        if (start != 0) latencies[action.ordinal()].record(System.nanoTime() - start);
+    }
+
+    // A PLAY was charged; gameType as ArcadeSnapshot.gameType (cabinet, active, VR)
+    public void played(int gameType) {
+        if (enabled) plays[gameType].increment();
+    }
+
+    public void rejected(TransactionStatus status) {
+        if (enabled) rejections[status.ordinal()].increment();
+    }
+
+    public void parsed(Parser parser, long lines, long nanos) {
+        if (enabled) {
+            parsedLines[parser.ordinal()].add(lines);
+            parseNanos[parser.ordinal()].add(nanos);
+        }
+    }
+
+    // --- Reading ---
+
+    public LatencyHistogram getLatency(TransactionAction action) {
+        return latencies[action.ordinal()];
+    }
+
+    public long getPlays(int gameType) {
+        return plays[gameType].sum();
+    }
+
+    public long getRejections(TransactionStatus status) {
+        return rejections[status.ordinal()].sum();
+    }
+
+    // Rejections that the exception-based API reports with the given exception
+    public long getRejections(Class<? extends Exception> exceptionType) {
+        long total = 0;
+        for (TransactionStatus status : TransactionStatus.values()) {
+            if (status.exceptionType() == exceptionType) total += rejections[status.ordinal()].sum();
+        }
+        return total;
+    }
+
+    // Lines per second spent in the parser (0 if it has not run)
+    public double getParseRate(Parser parser) {
+        long nanos = parseNanos[parser.ordinal()].sum();
+        return nanos == 0 ? 0 : parsedLines[parser.ordinal()].sum() * 1e9 / nanos;
+    }
+
+    public long getParsedLines(Parser parser) {
+        return parsedLines[parser.ordinal()].sum();
+    }
+
+    // Percentiles of every action's latency, one line each, in microseconds
+    public String percentileSummary() {
+        StringBuilder sb = new StringBuilder("--- Transaction Latency (microseconds) ---");
+        for (TransactionAction action : TransactionAction.values()) {
+            LatencyHistogram h = latencies[action.ordinal()];
+            sb.append(String.format("%n%-13s count %-8d p50 %-8.1f p90 %-8.1f p99 %-8.1f p99.9 %-8.1f max %.1f",
+                    action, h.getCount(), micros(h.getPercentile(0.5)), micros(h.getPercentile(0.9)),
+                    micros(h.getPercentile(0.99)), micros(h.getPercentile(0.999)), micros(h.getMax())));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public synchronized String dump() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - dumpedAt) / 1e9);
+        StringBuilder sb = new StringBuilder(percentileSummary());
+
+        sb.append(String.format("%n--- Throughput (per second since last dump) ---"));
+        for (TransactionAction action : TransactionAction.values()) {
+            long count = latencies[action.ordinal()].getCount();
+            sb.append(String.format("%n%-13s %.1f", action, (count - dumpedCounts[action.ordinal()]) / seconds));
+            dumpedCounts[action.ordinal()] = count;
+        }
+        dumpedAt = now;
+
+        sb.append(String.format("%n--- Plays by game type ---"));
+        for (int type = 0; type < GAME_TYPES.length; type++) {
+            sb.append(String.format("%n%-16s %d", GAME_TYPES[type], plays[type].sum()));
+        }
+
+        sb.append(String.format("%n--- Rejections ---"));
+        for (TransactionStatus status : TransactionStatus.values()) {
+            if (!status.isRejection()) continue;
+            sb.append(String.format("%n%-18s %-30s %d", status, status.exceptionType().getSimpleName(), rejections[status.ordinal()].sum()));
+        }
+
+        sb.append(String.format("%n--- Parsers (lines per second) ---"));
+        for (Parser parser : Parser.values()) {
+            sb.append(String.format("%n%-13s %d lines, %.0f/s", parser, parsedLines[parser.ordinal()].sum(), getParseRate(parser)));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram h : latencies) h.reset();
+        for (LongAdder a : plays) a.reset();
+        for (LongAdder a : rejections) a.reset();
+        for (LongAdder a : parsedLines) a.reset();
+        for (LongAdder a : parseNanos) a.reset();
+        synchronized (this) {
+            java.util.Arrays.fill(dumpedCounts, 0);
+            dumpedAt = System.nanoTime();
+        }
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    // --- Publishing ---
+
+    // Registers this instance with the platform MBean server; returns false if one is already there
+    public boolean registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) return false;
+            server.registerMBean(this, name);
+            return true;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register arcade metrics: " + e.getMessage(), e);
+        }
+    }
+
+    // Writes dump() to 'out' every 'periodMillis' on a background thread
+    public synchronized void startDump(long periodMillis, PrintStream out) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> out.println(dump() + System.lineSeparator()), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    // --- ArcadeMetricsMBean ---
+
+    @Override
+    public long getPlayCount() {
+        return latencies[TransactionAction.PLAY.ordinal()].getCount();
+    }
+
+    @Override
+    public double getPlayP50Micros() {
+        return micros(latencies[TransactionAction.PLAY.ordinal()].getPercentile(0.5));
+    }
+
+    @Override
+    public double getPlayP99Micros() {
+        return micros(latencies[TransactionAction.PLAY.ordinal()].getPercentile(0.99));
+    }
+
+    @Override
+    public double getPlayP999Micros() {
+        return micros(latencies[TransactionAction.PLAY.ordinal()].getPercentile(0.999));
+    }
+
+    @Override
+    public double getPlayMaxMicros() {
+        return micros(latencies[TransactionAction.PLAY.ordinal()].getMax());
+    }
+
+    @Override
+    public long getAddFundsCount() {
+        return latencies[TransactionAction.ADD_FUNDS.ordinal()].getCount();
+    }
+
+    @Override
+    public double getAddFundsP50Micros() {
+        return micros(latencies[TransactionAction.ADD_FUNDS.ordinal()].getPercentile(0.5));
+    }
+
+    @Override
+    public double getAddFundsP99Micros() {
+        return micros(latencies[TransactionAction.ADD_FUNDS.ordinal()].getPercentile(0.99));
+    }
+
+    @Override
+    public double getAddFundsMaxMicros() {
+        return micros(latencies[TransactionAction.ADD_FUNDS.ordinal()].getMax());
+    }
+
+    @Override
+    public long getRegisterCustomerCount() {
+        return latencies[TransactionAction.NEW_CUSTOMER.ordinal()].getCount();
+    }
+
+    @Override
+    public double getRegisterCustomerP50Micros() {
+        return micros(latencies[TransactionAction.NEW_CUSTOMER.ordinal()].getPercentile(0.5));
+    }
+
+    @Override
+    public double getRegisterCustomerP99Micros() {
+        return micros(latencies[TransactionAction.NEW_CUSTOMER.ordinal()].getPercentile(0.99));
+    }
+
+    @Override
+    public double getRegisterCustomerMaxMicros() {
+        return micros(latencies[TransactionAction.NEW_CUSTOMER.ordinal()].getMax());
+    }
+
+    @Override
+    public long getCabinetPlays() {
+        return plays[ArcadeSnapshot.CABINET].sum();
+    }
+
+    @Override
+    public long getActivePlays() {
+        return plays[ArcadeSnapshot.ACTIVE].sum();
+    }
+
+    @Override
+    public long getVirtualRealityPlays() {
+        return plays[ArcadeSnapshot.VIRTUAL_REALITY].sum();
+    }
+
+    @Override
+    public long getInvalidCustomerRejections() {
+        return getRejections(InvalidCustomerException.class);
+    }
+
+    @Override
+    public long getInvalidGameIdRejections() {
+        return getRejections(InvalidGameIdException.class);
+    }
+
+    @Override
+    public long getInsufficientBalanceRejections() {
+        return getRejections(InsufficientBalanceException.class);
+    }
+
+    @Override
+    public long getAgeLimitRejections() {
+        return getRejections(AgeLimitException.class);
+    }
+
+    @Override
+    public double getGameParseRate() {
+        return getParseRate(Parser.GAMES);
+    }
+
+    @Override
+    public double getCustomerParseRate() {
+        return getParseRate(Parser.CUSTOMERS);
+    }
+
+    @Override
+    public double getTransactionParseRate() {
+        return getParseRate(Parser.TRANSACTIONS);
+    }
+}
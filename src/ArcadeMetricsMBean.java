@@ -0,0 +1,55 @@
+// Management interface of ArcadeMetrics, as seen through JMX (e.g. jconsole, under "arcade")
+// Latencies are in microseconds; parse rates in lines per second of parsing.
+public interface ArcadeMetricsMBean {
+
+    long getPlayCount();
+
+    double getPlayP50Micros();
+
+    double getPlayP99Micros();
+
+    double getPlayP999Micros();
+
+    double getPlayMaxMicros();
+
+    long getAddFundsCount();
+
+    double getAddFundsP50Micros();
+
+    double getAddFundsP99Micros();
+
+    double getAddFundsMaxMicros();
+
+    long getRegisterCustomerCount();
+
+    double getRegisterCustomerP50Micros();
+
+    double getRegisterCustomerP99Micros();
+
+    double getRegisterCustomerMaxMicros();
+
+    long getCabinetPlays();
+
+    long getActivePlays();
+
+    long getVirtualRealityPlays();
+
+    long getInvalidCustomerRejections();
+
+    long getInvalidGameIdRejections();
+
+    long getInsufficientBalanceRejections();
+
+    long getAgeLimitRejections();
+
+    double getGameParseRate();
+
+    double getCustomerParseRate();
+
+    double getTransactionParseRate();
+
+    // Full text dump, as written by the periodic dump
+    String dump();
+
+    void reset();
+}
@@ -0,0 +1,161 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// ArcadePersistence class - keeps an arcade durable in a directory of snapshots and journal segments
+// Every change is appended to a TransactionJournal; checkpoint() writes a snapshot, starts a new
+// journal segment and deletes segments no snapshot needs any more. recover() loads the newest
+// readable snapshot and replays only the journal records written after it.
+public class ArcadePersistence implements AutoCloseable {
+
+    // Snapshots kept on disk; the older one is the fallback if the newest turns out damaged
+    private static final int SNAPSHOTS_KEPT = 2;
+
+    private final File directory;
+    private final Arcade arcade;
+    private final TransactionJournal journal;
+    private ScheduledExecutorService checkpointer;
+
+    private ArcadePersistence(File directory, Arcade arcade, TransactionJournal journal) {
+        this.directory = directory;
+        this.arcade = arcade;
+        this.journal = journal;
+        arcade.setTransactionListener(journal);
+    }
+
+    // Starts persisting an arcade that is already loaded, writing a first snapshot of it
+    public static ArcadePersistence attach(File directory, Arcade arcade) throws IOException {
+        if (TransactionJournal.segmentStarts(directory).length > 0 || snapshotSequences(directory).length > 0) {
+            throw new IOException("Directory already holds an arcade, use recover: " + directory);
+        }
+        ArcadePersistence persistence = new ArcadePersistence(directory, arcade, new TransactionJournal(directory, 1));
+        persistence.checkpoint();
+        return persistence;
+    }
+
+    // Rebuilds the arcade kept in 'directory' (or starts an empty one called 'arcadeName')
+    public static ArcadePersistence recover(File directory, String arcadeName, boolean concurrent) throws IOException {
+        ArcadeSnapshot snapshot = null;
+        long[] sequences = snapshotSequences(directory);
+        for (int i = sequences.length - 1; i >= 0 && snapshot == null; i--) {
+            try {
+                snapshot = ArcadeSnapshot.read(snapshotFile(directory, sequences[i]));
+            } catch (IOException e) {
+                System.err.println("Skipping snapshot " + sequences[i] + ": " + e.getMessage());
+            }
+        }
+
+        Arcade arcade = snapshot != null ? snapshot.restore(concurrent) : new Arcade(arcadeName, concurrent);
+        long last = TransactionJournal.replay(directory, snapshot != null ? snapshot.getSequence() : 0, arcade);
+        return new ArcadePersistence(directory, arcade, new TransactionJournal(directory, last + 1));
+    }
+
+    public Arcade getArcade() {
+        return arcade;
+    }
+
+    public TransactionJournal getJournal() {
+        return journal;
+    }
+
+    // Writes a snapshot, starts a new journal segment and drops what older snapshots covered
+    public synchronized void checkpoint() throws IOException {
+        ArcadeSnapshot snapshot = ArcadeSnapshot.capture(arcade, journal::lastSequence);
+        // The snapshot must not be newer than the journal it sits on
+        journal.sync();
+        snapshot.write(snapshotFile(directory, snapshot.getSequence()));
+        journal.roll();
+
+        long[] sequences = snapshotSequences(directory);
+        int drop = sequences.length - SNAPSHOTS_KEPT;
+        for (int i = 0; i < drop; i++) {
+            snapshotFile(directory, sequences[i]).delete();
+        }
+        // Keep every record after the oldest snapshot still on disk
+        TransactionJournal.deleteSegmentsBefore(directory, sequences[Math.max(0, drop)] + 1);
+    }
+
+    // Takes a checkpoint every 'periodMillis' on a background thread
+    public synchronized void startCheckpoints(long periodMillis) {
+        if (checkpointer != null) return;
+        checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "arcade-checkpointer");
+            t.setDaemon(true);
+            return t;
+        });
+        checkpointer.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                System.err.println("Checkpoint failed: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Forces everything journaled so far to disk
+    public void sync() throws IOException {
+        journal.sync();
+    }
+
+    // Stops journaling and writes out what is left (no final snapshot; recovery replays the tail)
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (checkpointer != null) checkpointer.shutdownNow();
+        }
+        arcade.setTransactionListener(null);
+        journal.close();
+    }
+
+    static long[] snapshotSequences(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("snapshot-") && name.endsWith(".bin"));
+        if (files == null) return new long[0];
+        long[] sequences = new long[files.length];
+        int count = 0;
+        for (File f : files) {
+            String digits = f.getName().substring("snapshot-".length(), f.getName().length() - ".bin".length());
+            try {
+                sequences[count++] = Long.parseLong(digits);
+            } catch (NumberFormatException e) {
+                count--; // not one of ours
+            }
+        }
+        sequences = Arrays.copyOf(sequences, count);
+        Arrays.sort(sequences);
+        return sequences;
+    }
+
+    static File snapshotFile(File directory, long sequence) {
+        return new File(directory, String.format("snapshot-%020d.bin", sequence));
+    }
+
+    // Loads the sample files, journals the transactions with a checkpoint half way, then recovers
+    public static void main(String[] args) throws IOException {
+        File directory = args.length > 0 ? new File(args[0]) : Files.createTempDirectory("arcade-data").toFile();
+        Arcade arcade = Simulation.initialiseArcade("Level Up!", new File("games.txt"), new File("customers.txt"));
+
+        CountingDiagnostics rejected = new CountingDiagnostics();
+        try (ArcadePersistence persistence = attach(directory, arcade);
+             BufferedReader reader = new BufferedReader(new FileReader("transactions.txt"))) {
+            int lineNumber = 0;
+            for (String line; (line = reader.readLine()) != null; ) {
+                if (++lineNumber == 50) persistence.checkpoint();
+                TransactionParser.processLine(line, lineNumber, arcade, rejected);
+            }
+        }
+        System.out.println("Journaled " + arcade.getArcadeName() + " (" + rejected.getTotal() + " transactions rejected)");
+
+        try (ArcadePersistence recovered = recover(directory, "Level Up!", false)) {
+            Arcade copy = recovered.getArcade();
+            System.out.println("Revenue: " + arcade.getFormattedRevenue() + " / recovered " + copy.getFormattedRevenue());
+            System.out.println("Richest: " + arcade.findRichestCustomer() + " / recovered " + copy.findRichestCustomer());
+            System.out.println("Journal ends at record " + recovered.getJournal().lastSequence());
+        }
+    }
+}
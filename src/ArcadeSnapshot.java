@@ -0,0 +1,210 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+// ArcadeSnapshot class - point-in-time copy of an arcade's games, customers and revenue
+// The copy comes from a read view of the arcade, together with the journal sequence it covers,
+// so recovery is "load snapshot, replay journal records after that sequence".
+// On disk it is one memory-mapped file ending in a CRC32; it is written to a temporary file
+// and renamed into place, so a crash mid-write never leaves a half-written snapshot behind.
+public class ArcadeSnapshot {
+
+    private static final int MAGIC = 0x41534e50; // "ASNP"
+    private static final int VERSION = 1;
+
+    // Game types as stored in snapshots and journal records
+    static final byte CABINET = 0;
+    static final byte ACTIVE = 1;
+    static final byte VIRTUAL_REALITY = 2;
+
+    private final String arcadeName;
+    private final long sequence;
+    private final long revenue;
+    private final List<ArcadeGame> games;
+    private final List<Customer> customers;
+
+    ArcadeSnapshot(String arcadeName, long sequence, long revenue, List<ArcadeGame> games, List<Customer> customers) {
+        this.arcadeName = arcadeName;
+        this.sequence = sequence;
+        this.revenue = revenue;
+        this.games = games;
+        this.customers = customers;
+    }
+
+    // Copies the arcade's state; 'sequence' gives the last journal record already applied to it
+    public static ArcadeSnapshot capture(Arcade arcade, LongSupplier sequence) {
+        // The view is taken in a moment; copying out of it happens while transactions carry on
+        ArcadeView view = arcade.readView(sequence);
+        List<ArcadeGame> games = new ArrayList<>(view.getGames());
+        List<Customer> customers = new ArrayList<>(view.getCustomerCount());
+        for (int i = 0; i < view.getCustomerCount(); i++) customers.add(view.customerAt(i));
+        return new ArcadeSnapshot(arcade.getArcadeName(), view.getSequence(), view.getRevenue(), games, customers);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getArcadeName() {
+        return arcadeName;
+    }
+
+    // Builds a new arcade holding the snapshot's state (games and customers keep their order)
+    public Arcade restore(boolean concurrent) {
+        Arcade arcade = new Arcade(arcadeName, concurrent);
+        for (ArcadeGame g : games) arcade.addArcadeGame(g);
+        for (Customer c : customers) arcade.addCustomer(c);
+        arcade.restoreRevenue(revenue);
+        return arcade;
+    }
+
+    // Writes the snapshot to 'file' (atomically replacing any existing file)
+    public void write(File file) throws IOException {
+        byte[] name = arcadeName.getBytes(StandardCharsets.UTF_8);
+        byte[][] gameNames = new byte[games.size()][];
+        byte[][] customerNames = new byte[customers.size()][];
+
+        long size = 4 + 4 + 8 + 8 + 4 + name.length + 4 + 4 + 4;
+        for (int i = 0; i < gameNames.length; i++) {
+            gameNames[i] = games.get(i).getGameName().getBytes(StandardCharsets.UTF_8);
+            size += 8 + 1 + 1 + 4 + 4 + 4 + gameNames[i].length;
+        }
+        for (int i = 0; i < customerNames.length; i++) {
+            customerNames[i] = customers.get(i).getCustomerName().getBytes(StandardCharsets.UTF_8);
+            size += 8 + 8 + 4 + 1 + 4 + customerNames[i].length;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot too large to map: " + size + " bytes");
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC).putInt(VERSION).putLong(sequence).putLong(revenue);
+            out.putInt(name.length).put(name);
+            out.putInt(games.size()).putInt(customers.size());
+
+            for (int i = 0; i < gameNames.length; i++) {
+                ArcadeGame g = games.get(i);
+                out.putLong(IdCodec.encode(g.getGameID()));
+                out.put(gameType(g)).put(gameFlags(g));
+                out.putInt(g.getPrice()).putInt(g instanceof ActiveGame ? ((ActiveGame) g).getMinimumAge() : 0);
+                out.putInt(gameNames[i].length).put(gameNames[i]);
+            }
+            for (int i = 0; i < customerNames.length; i++) {
+                Customer c = customers.get(i);
+                out.putLong(IdCodec.encode(c.getCustomerID()));
+                out.putLong(c.getBalance()).putInt(c.getAge()).put((byte) c.discountType().ordinal());
+                out.putInt(customerNames[i].length).put(customerNames[i]);
+            }
+
+            out.putInt(checksum(out, out.position()));
+            out.force();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Reads a snapshot written by write, throwing IOException if it is damaged
+    public static ArcadeSnapshot read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 40 || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a snapshot: " + file);
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int end = (int) size - 4;
+            if (in.getInt(end) != checksum(in, end)) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a snapshot: " + file);
+            }
+
+            try {
+                long sequence = in.getLong();
+                long revenue = in.getLong();
+                String arcadeName = string(in);
+                int gameCount = in.getInt();
+                int customerCount = in.getInt();
+
+                List<ArcadeGame> games = new ArrayList<>(gameCount);
+                for (int i = 0; i < gameCount; i++) {
+                    long key = in.getLong();
+                    byte type = in.get();
+                    byte flags = in.get();
+                    int price = in.getInt();
+                    int minimumAge = in.getInt();
+                    games.add(buildGame(IdCodec.decode(key), string(in), type, flags, price, minimumAge));
+                }
+
+                List<Customer> customers = new ArrayList<>(customerCount);
+                Customer.DiscountType[] discounts = Customer.DiscountType.values();
+                for (int i = 0; i < customerCount; i++) {
+                    long key = in.getLong();
+                    long balance = in.getLong();
+                    int age = in.getInt();
+                    Customer.DiscountType discount = discounts[in.get()];
+                    customers.add(Customer.restore(IdCodec.decode(key), string(in), age, discount, balance));
+                }
+                return new ArcadeSnapshot(arcadeName, sequence, revenue, games, customers);
+            } catch (RuntimeException e) {
+                throw new IOException("Damaged snapshot " + file + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    static byte gameType(ArcadeGame g) {
+        if (g instanceof VirtualRealityGame) return VIRTUAL_REALITY;
+        if (g instanceof ActiveGame) return ACTIVE;
+        return CABINET;
+    }
+
+    // Reward flag for cabinet games, equipment ordinal for VR games
+    static byte gameFlags(ArcadeGame g) {
+        if (g instanceof VirtualRealityGame) return (byte) ((VirtualRealityGame) g).getVrEquipment().ordinal();
+        if (g instanceof CabinetGame) return (byte) (((CabinetGame) g).getPaysOutReward() ? 1 : 0);
+        return 0;
+    }
+
+    static ArcadeGame buildGame(String id, String name, byte type, byte flags, int price, int minimumAge) throws IOException {
+        try {
+            switch (type) {
+                case CABINET:
+                    return new CabinetGame(id, name, price, flags != 0);
+                case ACTIVE:
+                    return new ActiveGame(id, name, price, minimumAge);
+                case VIRTUAL_REALITY:
+                    return new VirtualRealityGame(id, name, price, minimumAge, VirtualRealityGame.Equipment.values()[flags]);
+                default:
+                    throw new IOException("Unknown stored game type " + type);
+            }
+        } catch (InvalidGameIdException e) {
+            throw new IOException("Invalid stored game: " + e.getMessage(), e);
+        }
+    }
+
+    private static String string(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer view = buffer.duplicate();
+        view.position(0).limit(length);
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+}
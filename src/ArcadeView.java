@@ -0,0 +1,219 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// ArcadeView class - consistent read-only picture of an arcade, taken by Arcade.readView
+// Balances, revenue, the richest customer and the catalogue all come from the same instant, and the
+// view can be read from any thread for as long as needed while transactions keep changing the arcade.
+// Taking one is cheap whatever the number of customers: the view shares the arcade's customer pages
+// and game array, which the arcade copies only when it next writes to them (see CustomerStore.snapshot).
+public class ArcadeView {
+
+    private final String arcadeName;
+    private final CustomerStore.View customers;
+    private final List<ArcadeGame> games;
+    private final long revenue;
+    private final int richest;
+    private final int medianGamePrice;
+    private final int[] gameCounts;
+    private final long sequence;
+
+    // Live ID indexes: slots and ordinals never move, so anything past the view's size is newer than it
+    private final IdIndex customerIds;
+    private final IdIndex gameIds;
+
+    ArcadeView(String arcadeName, CustomerStore.View customers, List<ArcadeGame> games, long revenue, int richest,
+               int medianGamePrice, int[] gameCounts, long sequence, IdIndex customerIds, IdIndex gameIds) {
+        this.arcadeName = arcadeName;
+        this.customers = customers;
+        this.games = games;
+        this.revenue = revenue;
+        this.richest = richest;
+        this.medianGamePrice = medianGamePrice;
+        this.gameCounts = gameCounts;
+        this.sequence = sequence;
+        this.customerIds = customerIds;
+        this.gameIds = gameIds;
+    }
+
+    // Accessor methods
+    public String getArcadeName() {
+        return arcadeName;
+    }
+    public long getRevenue() {
+        return revenue;
+    }
+    public int getCustomerCount() {
+        return customers.size();
+    }
+    public int getGameCount() {
+        return games.size();
+    }
+
+    // Journal sequence the view covers, when taken for an ArcadeSnapshot
+    long getSequence() {
+        return sequence;
+    }
+
+    public String getFormattedRevenue() {
+        return Money.format(revenue);
+    }
+
+    // --- Customers ---
+
+    // The customer as they were in the view, or throws if they did not exist yet
+    public Customer getCustomer(String customerID) throws InvalidCustomerException {
+        int slot = slotOf(customerID);
+        if (slot < 0) {
+            throw new InvalidCustomerException("Customer with ID " + customerID + " does not exist");
+        }
+        return customers.toCustomer(slot);
+    }
+
+    // Balance in pence, or Long.MIN_VALUE if the customer did not exist yet
+    public long getBalance(String customerID) {
+        int slot = slotOf(customerID);
+        return slot < 0 ? Long.MIN_VALUE : customers.balance(slot);
+    }
+
+    private int slotOf(String customerID) {
+        int slot = customerIds.get(IdCodec.encode(customerID));
+        return slot < customers.size() ? slot : -1;
+    }
+
+    // Customer held in a slot (0 to getCustomerCount() - 1), in registration order
+    public Customer customerAt(int slot) {
+        return customers.toCustomer(slot);
+    }
+
+    public Customer findRichestCustomer() {
+        return richest < 0 ? null : customers.toCustomer(richest);
+    }
+
+    // Sum of every customer's balance in pence
+    public long getTotalBalance() {
+        return customers.totalBalance();
+    }
+
+    // --- Rankings and percentiles (see RankStats and QuantileSketch) ---
+
+    // The k customers with the highest balances, richest first (ties go to the most recently added,
+    // as for findRichestCustomer)
+    public List<Customer> findTopCustomers(int k) {
+        long[] balances = customers.balances(null);
+        List<Customer> top = new ArrayList<>();
+        for (int slot : RankStats.top(balances, balances.length, k)) top.add(customers.toCustomer(slot));
+        return top;
+    }
+
+    // Exact balance percentiles (each in [0, 1], nearest rank) of the customers with a discount type,
+    // or of everyone when 'discount' is null; 0 for each when there are no such customers
+    public long[] getBalancePercentiles(Customer.DiscountType discount, double... percentiles) {
+        long[] balances = customers.balances(discount);
+        return RankStats.percentiles(balances, balances.length, percentiles);
+    }
+
+    // Balances at the 10th, 20th ... 90th percentiles
+    public long[] getBalanceDeciles(Customer.DiscountType discount) {
+        return getBalancePercentiles(discount, DECILES);
+    }
+
+    // Approximate balance distribution in fixed memory, which can be merged with other sketches
+    public QuantileSketch sketchBalances(Customer.DiscountType discount, double relativeAccuracy) {
+        QuantileSketch sketch = new QuantileSketch(relativeAccuracy);
+        customers.forEachBalance(discount, sketch::add);
+        return sketch;
+    }
+
+    // Exact off-peak price percentiles (as getMedianGamePrice uses) of one game type, or of every game
+    // when 'type' is null
+    public long[] getGamePricePercentiles(GameQuery.GameType type, double... percentiles) {
+        long[] prices = new long[games.size()];
+        int n = 0;
+        for (ArcadeGame g : games) {
+            if (type == null || ArcadeSnapshot.gameType(g) == type.ordinal()) prices[n++] = g.calculatePrice(false);
+        }
+        return RankStats.percentiles(prices, n, percentiles);
+    }
+
+    static final double[] DECILES = {0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9};
+
+    // --- Catalogue ---
+
+    // Every game, by ordinal (see Arcade.findGame)
+    public List<ArcadeGame> getGames() {
+        return games;
+    }
+
+    public ArcadeGame getArcadeGame(String gameID) throws InvalidGameIdException {
+        int ordinal = gameIds.get(IdCodec.encode(gameID));
+        if (ordinal < 0 || ordinal >= games.size()) {
+            throw new InvalidGameIdException("Game with ID " + gameID + " does not exist");
+        }
+        return games.get(ordinal);
+    }
+
+    public int getMedianGamePrice() {
+        return medianGamePrice;
+    }
+
+    public int[] countArcadeGames() {
+        return gameCounts.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "ArcadeView{name='" + arcadeName + "', revenue=" + getFormattedRevenue() + ", games=" + games.size() + ", customers=" + customers.size() + "}";
+    }
+
+    // Plays transactions.txt over and over on a concurrent arcade (customers topped up so plays keep
+    // succeeding) while another thread reports from views; PLAY only moves money from balances to
+    // revenue, so every view must show the same total
+    public static void main(String[] args) throws Exception {
+        Arcade arcade = new Arcade("Level Up!", true);
+        Arcade loaded = Simulation.initialiseArcade("Level Up!", new File("games.txt"), new File("customers.txt"));
+        for (ArcadeGame g : loaded.readView().getGames()) arcade.addArcadeGame(g);
+        try (BufferedReader reader = new BufferedReader(new FileReader("customers.txt"))) {
+            for (Customer c : CustomerParser.parseCustomers(reader)) {
+                arcade.addCustomer(c);
+                arcade.addFunds(c.getCustomerID(), 50_000_000);
+            }
+        }
+        ArcadeView first = arcade.readView();
+        long expected = first.getTotalBalance() + first.getRevenue();
+
+        String[][] plays = playsOf(new File("transactions.txt"));
+        Thread till = new Thread(() -> {
+            for (int round = 0; round < 20_000; round++) {
+                for (String[] p : plays) arcade.tryChargeCustomer(p[0], p[1], p[2].equalsIgnoreCase("PEAK"));
+            }
+        }, "till");
+        till.start();
+
+        int views = 0;
+        int inconsistent = 0;
+        while (till.isAlive()) {
+            ArcadeView view = arcade.readView();
+            if (view.getTotalBalance() + view.getRevenue() != expected) inconsistent++;
+            if (views++ % 200 == 0) System.out.println(view + " richest " + view.findRichestCustomer().getCustomerID());
+            Thread.sleep(1);
+        }
+        till.join();
+        System.out.println(views + " views, " + inconsistent + " inconsistent; final " + arcade.readView() + ", game counts " + Arrays.toString(first.countArcadeGames()));
+    }
+
+    // Customer ID, game ID and PEAK / OFFPEAK of every PLAY line
+    private static String[][] playsOf(File transactions) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(transactions))) {
+            return reader.lines()
+                    .map(line -> line.split(","))
+                    .filter(parts -> parts.length == 4 && parts[0].trim().equalsIgnoreCase("PLAY"))
+                    .map(parts -> new String[] {parts[1].trim(), parts[2].trim(), parts[3].trim()})
+                    .toArray(String[][]::new);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.PrintStream;
+
+// AsyncDiagnostics class - queues messages in a ring buffer and writes them on a background thread
+// Reporting threads only copy the message parts into the buffer; formatting and console I/O happen
+// on the writer thread, in the order the messages were reported. If the buffer is full, reporting
+// waits for the writer, so nothing is lost. Sinks made with dropping() instead drop (and count) problem
+// reports when full rather than making ingestion wait - opt in only where losing them is acceptable;
+// report lines always wait.
+public class AsyncDiagnostics implements DiagnosticsSink {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    // Slot i holds one message: kinds[i] == null marks a report line held in as[i]
+    private final Diagnostic[] kinds;
+    private final int[] lineNumbers;
+    private final String[] as;
+    private final String[] bs;
+    private final int mask;
+    private final boolean dropWhenFull;
+
+    // head: next slot to fill, tail: next slot to write (both only grow), guarded by 'this'
+    private long head;
+    private long tail;
+    private long dropped;
+    private boolean closed;
+
+    private final Thread writer;
+
+    public AsyncDiagnostics() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    // Capacity is rounded up to a power of two
+    public AsyncDiagnostics(int capacity) {
+        this(capacity, false);
+    }
+
+    // A sink that drops problem reports while its buffer is full (see getDropped)
+    public static AsyncDiagnostics dropping(int capacity) {
+        return new AsyncDiagnostics(capacity, true);
+    }
+
+    private AsyncDiagnostics(int capacity, boolean dropWhenFull) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+
+        kinds = new Diagnostic[size];
+        lineNumbers = new int[size];
+        as = new String[size];
+        bs = new String[size];
+        mask = size - 1;
+        this.dropWhenFull = dropWhenFull;
+
+        writer = new Thread(this::drain, "diagnostics-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void report(Diagnostic kind, int lineNumber, String a, String b) {
+        synchronized (this) {
+            while (!dropWhenFull && !closed && head - tail == kinds.length) {
+                waitQuietly();
+            }
+            if (closed || head - tail == kinds.length) {
+                dropped++;
+                return;
+            }
+            put(kind, lineNumber, a, b);
+        }
+    }
+
+    @Override
+    public void print(String line) {
+        synchronized (this) {
+            while (!closed && head - tail == kinds.length) {
+                waitQuietly();
+            }
+            if (closed) {
+                System.out.println(line);
+                return;
+            }
+            put(null, 0, line, null);
+        }
+    }
+
+    // Number of problem reports lost because the buffer was full (dropping sinks) or the sink was closed
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public void flush() {
+        synchronized (this) {
+            long target = head;
+            while (tail < target && writer.isAlive()) {
+                waitQuietly();
+            }
+        }
+    }
+
+    // Writes everything still queued and stops the writer thread
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long lost = getDropped();
+        if (lost > 0) {
+            System.err.println("... " + lost + " diagnostics dropped, output could not keep up");
+        }
+    }
+
+    // Caller holds the lock and has checked there is space
+    private void put(Diagnostic kind, int lineNumber, String a, String b) {
+        int slot = (int) head & mask;
+        kinds[slot] = kind;
+        lineNumbers[slot] = lineNumber;
+        as[slot] = a;
+        bs[slot] = b;
+        if (head++ == tail) {
+            // Buffer was empty, so the writer may be waiting
+            notifyAll();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            long from;
+            long to;
+            synchronized (this) {
+                while (head == tail && !closed) {
+                    waitQuietly();
+                }
+                if (head == tail) return;
+                from = tail;
+                to = head;
+            }
+
+            // Slots in [from, to) are not reused until tail moves past them, so they can be read unlocked
+            PrintStream current = null;
+            for (long i = from; i < to; i++) {
+                int slot = (int) i & mask;
+                Diagnostic kind = kinds[slot];
+                PrintStream out = kind != null && kind.isError() ? System.err : System.out;
+                if (out != current) {
+                    // Keep stdout and stderr in reporting order
+                    if (current != null) current.flush();
+                    current = out;
+                }
+                out.println(kind == null ? as[slot] : kind.format(lineNumbers[slot], as[slot], bs[slot]));
+                as[slot] = null;
+                bs[slot] = null;
+            }
+            if (current != null) current.flush();
+
+            synchronized (this) {
+                tail = to;
+                notifyAll();
+            }
+        }
+    }
+
+    private void waitQuietly() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for diagnostics", e);
+        }
+    }
+}
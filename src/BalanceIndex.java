@@ -0,0 +1,351 @@
+import java.util.Arrays;
+
+// BalanceIndex class - order statistics over customer balances, kept up to date as balances change
+// Customers are ranked by (balance, slot): the highest balance first, ties going to the higher slot
+// (the most recently added customer). They are split into stripes (slot & (stripes - 1), matching the
+// Arcade's customer locks). Each stripe keeps its customers sorted in blocks of at most MAX_BLOCK, with
+// a Fenwick tree over the block sizes, so a customer's rank, the number of customers above a balance
+// and the richest customer take O(log n) per stripe and the top k O(k) more.
+// A charge or top-up re-ranks its customer straight away, under the stripe lock the caller already
+// holds, so a query never has catching up to do. Moving a customer is a search for its old place and
+// its new one plus short array moves, in blocks that keep a balance next to its slot so each step of a
+// search reads one cache line - the index is far too big to stay in cache when every card is playing.
+// A stripe is only changed by a thread holding that stripe's lock; queries take each stripe's
+// lock in turn (never two at once), so in concurrent mode they are a best-effort view across stripes.
+public class BalanceIndex {
+
+    // A full block is split in two; thinned-out neighbours are merged
+    private static final int MAX_BLOCK = 256;
+
+    private static final class Stripe {
+        // Blocks in ascending (balance, slot) order, each holding balance, slot pairs sorted the same way
+        long[][] entries = {new long[2 * MAX_BLOCK]};
+        int[] sizes = new int[1];
+        // First entry of every block, side by side so finding a block does not visit every block on the way
+        long[] firstBalances = new long[1];
+        int[] firstSlots = new int[1];
+        int blocks = 1;
+        // Fenwick tree over sizes[0, blocks), 1-based: the number of entries before a block
+        int[] fenwick = new int[2];
+        int count;
+        // Balance each customer was ranked with, by position in the stripe (slot >>> shift), so
+        // the entry can be found again after the balance has changed; 'ranked' marks the positions in use
+        long[] rankedBalance = new long[16];
+        long[] ranked = new long[1];
+    }
+
+    private final CustomerStore store;
+    private final StripedLocks locks;
+    private final Stripe[] stripes;
+    private final int mask;
+    private final int shift;
+
+    // 'locks' are the arcade's customer locks in concurrent mode (null otherwise); stripes match theirs
+    public BalanceIndex(CustomerStore store, StripedLocks locks) {
+        this.store = store;
+        this.locks = locks;
+        int count = locks == null ? 1 : locks.size();
+        this.stripes = new Stripe[count];
+        this.mask = count - 1;
+        this.shift = Integer.numberOfTrailingZeros(count);
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // Ranks a slot that was added or whose balance changed (caller holds the slot's stripe)
+    public void update(int slot) {
+        Stripe s = stripes[slot & mask];
+        int position = slot >>> shift;
+        if (position >= s.rankedBalance.length) {
+            int length = Math.max(position + 1, s.rankedBalance.length * 2);
+            s.rankedBalance = Arrays.copyOf(s.rankedBalance, length);
+            s.ranked = Arrays.copyOf(s.ranked, (length >>> 6) + 1);
+        }
+        long balance = store.balance(slot);
+        long bit = 1L << position;
+        if ((s.ranked[position >>> 6] & bit) != 0) {
+            long old = s.rankedBalance[position];
+            if (old == balance) return;
+            move(s, old, balance, slot);
+        } else {
+            s.ranked[position >>> 6] |= bit;
+            s.count++;
+            insert(s, blockOf(s, balance, slot), balance, slot);
+        }
+        s.rankedBalance[position] = balance;
+    }
+
+    // --- Queries ---
+
+    // Slot of the customer with the highest balance, or -1 if there are none
+    public int richest() {
+        int best = -1;
+        long bestBalance = 0;
+        for (int stripe = 0; stripe < stripes.length; stripe++) {
+            synchronized (lockFor(stripe)) {
+                Stripe s = stripes[stripe];
+                int last = s.blocks - 1;
+                int size = s.sizes[last];
+                if (size == 0) continue;
+                long[] entries = s.entries[last];
+                long balance = entries[2 * size - 2];
+                int slot = (int) entries[2 * size - 1];
+                if (best < 0 || compare(balance, slot, bestBalance, best) > 0) {
+                    best = slot;
+                    bestBalance = balance;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Rank of a slot's customer: 1 for the richest, 0 if the slot is not indexed
+    public int rankOf(int slot) {
+        long balance;
+        synchronized (lockFor(slot & mask)) {
+            Stripe own = stripes[slot & mask];
+            int position = slot >>> shift;
+            if (position >= own.rankedBalance.length || (own.ranked[position >>> 6] & (1L << position)) == 0) return 0;
+            balance = own.rankedBalance[position];
+        }
+        return countAbove(balance, slot) + 1;
+    }
+
+    // Number of customers whose balance is at least 'balance'
+    public int countAtLeast(long balance) {
+        // Slots are never negative, so everyone with this balance ranks above (balance, -1)
+        return countAbove(balance, -1);
+    }
+
+    // Number of customers ranked above (balance, slot)
+    private int countAbove(long balance, int slot) {
+        int count = 0;
+        for (int stripe = 0; stripe < stripes.length; stripe++) {
+            synchronized (lockFor(stripe)) {
+                Stripe s = stripes[stripe];
+                int block = blockOf(s, balance, slot);
+                int upTo = before(s, block) + countUpTo(s.entries[block], s.sizes[block], balance, slot);
+                count += s.count - upTo;
+            }
+        }
+        return count;
+    }
+
+    // Slots of the k customers with the highest balances, richest first
+    public int[] top(int k) {
+        if (k < 0) throw new IllegalArgumentException("k cannot be negative");
+        // The best k of every stripe, richest first, stripe after stripe; ends[stripe] is where its run stops
+        long[] balances = new long[0];
+        int[] slots = new int[0];
+        int[] ends = new int[stripes.length];
+        int n = 0;
+        for (int stripe = 0; stripe < stripes.length; stripe++) {
+            synchronized (lockFor(stripe)) {
+                Stripe s = stripes[stripe];
+                int take = Math.min(k, s.count);
+                if (n + take > balances.length) {
+                    balances = Arrays.copyOf(balances, n + take);
+                    slots = Arrays.copyOf(slots, n + take);
+                }
+                for (int block = s.blocks - 1; block >= 0 && take > 0; block--) {
+                    long[] entries = s.entries[block];
+                    for (int i = s.sizes[block] - 1; i >= 0 && take > 0; i--, take--, n++) {
+                        balances[n] = entries[2 * i];
+                        slots[n] = (int) entries[2 * i + 1];
+                    }
+                }
+            }
+            ends[stripe] = n;
+        }
+
+        // Merges the runs, taking the best of their heads each time
+        int[] next = new int[stripes.length];
+        for (int stripe = 1; stripe < stripes.length; stripe++) next[stripe] = ends[stripe - 1];
+        int[] result = new int[Math.min(k, n)];
+        for (int i = 0; i < result.length; i++) {
+            int best = -1;
+            for (int stripe = 0; stripe < stripes.length; stripe++) {
+                int at = next[stripe];
+                if (at < ends[stripe] && (best < 0 || compare(balances[at], slots[at], balances[next[best]], slots[next[best]]) > 0)) {
+                    best = stripe;
+                }
+            }
+            result[i] = slots[next[best]++];
+        }
+        return result;
+    }
+
+    // --- Blocks (caller holds the stripe) ---
+
+    // Moves an entry to its new place: one array move when it stays in its block, else out of one and into another
+    private static void move(Stripe s, long oldBalance, long newBalance, int slot) {
+        int block = blockOf(s, oldBalance, slot);
+        long[] entries = s.entries[block];
+        int size = s.sizes[block];
+        int from = countUpTo(entries, size, oldBalance, slot) - 1;
+        boolean belowBlock = block > 0 && compare(newBalance, slot, s.firstBalances[block], s.firstSlots[block]) < 0;
+        boolean pastBlock = block < s.blocks - 1 && compare(newBalance, slot, s.firstBalances[block + 1], s.firstSlots[block + 1]) >= 0;
+        if (belowBlock || pastBlock) {
+            removeAt(s, block, from);
+            insert(s, blockOf(s, newBalance, slot), newBalance, slot);
+            return;
+        }
+        // Where the entry goes once it has been taken out
+        int to = countUpTo(entries, size, newBalance, slot);
+        if (to > from) to--;
+        if (to < from) {
+            System.arraycopy(entries, 2 * to, entries, 2 * to + 2, 2 * (from - to));
+        } else if (to > from) {
+            System.arraycopy(entries, 2 * from + 2, entries, 2 * from, 2 * (to - from));
+        }
+        entries[2 * to] = newBalance;
+        entries[2 * to + 1] = slot;
+        if (from == 0 || to == 0) refreshFirst(s, block);
+    }
+
+    private static void insert(Stripe s, int block, long balance, int slot) {
+        int at = countUpTo(s.entries[block], s.sizes[block], balance, slot);
+        if (s.sizes[block] == MAX_BLOCK) {
+            split(s, block);
+            if (at > MAX_BLOCK / 2) {
+                at -= MAX_BLOCK / 2;
+                block++;
+            }
+        }
+        long[] entries = s.entries[block];
+        int size = s.sizes[block];
+        System.arraycopy(entries, 2 * at, entries, 2 * at + 2, 2 * (size - at));
+        entries[2 * at] = balance;
+        entries[2 * at + 1] = slot;
+        s.sizes[block] = size + 1;
+        if (at == 0) refreshFirst(s, block);
+        add(s, block, 1);
+    }
+
+    private static void removeAt(Stripe s, int block, int at) {
+        long[] entries = s.entries[block];
+        int size = s.sizes[block] - 1;
+        System.arraycopy(entries, 2 * at + 2, entries, 2 * at, 2 * (size - at));
+        s.sizes[block] = size;
+        if (size > 0 && at == 0) refreshFirst(s, block);
+        // Blocks that have thinned out are merged (empty ones always), so there stay few blocks to search
+        if (size < MAX_BLOCK / 4 && s.blocks > 1) {
+            int left = block > 0 ? block - 1 : block;
+            if (size == 0 || s.sizes[left] + s.sizes[left + 1] <= MAX_BLOCK / 2) {
+                merge(s, left);
+                return;
+            }
+        }
+        add(s, block, -1);
+    }
+
+    // Last block whose first entry ranks at or below (balance, slot), or block 0
+    private static int blockOf(Stripe s, long balance, int slot) {
+        int low = 0;
+        int high = s.blocks - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (atOrBelow(s.firstBalances[mid], s.firstSlots[mid], balance, slot)) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    // Entries of a block ranked at or below (balance, slot)
+    private static int countUpTo(long[] entries, int size, long balance, int slot) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (atOrBelow(entries[2 * mid], (int) entries[2 * mid + 1], balance, slot)) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // Moves the upper half of a full block into a new block after it
+    private static void split(Stripe s, int block) {
+        if (s.blocks == s.sizes.length) {
+            int length = s.blocks * 2;
+            s.entries = Arrays.copyOf(s.entries, length);
+            s.sizes = Arrays.copyOf(s.sizes, length);
+            s.firstBalances = Arrays.copyOf(s.firstBalances, length);
+            s.firstSlots = Arrays.copyOf(s.firstSlots, length);
+        }
+        int moved = block + 1;
+        System.arraycopy(s.entries, moved, s.entries, moved + 1, s.blocks - moved);
+        System.arraycopy(s.sizes, moved, s.sizes, moved + 1, s.blocks - moved);
+        System.arraycopy(s.firstBalances, moved, s.firstBalances, moved + 1, s.blocks - moved);
+        System.arraycopy(s.firstSlots, moved, s.firstSlots, moved + 1, s.blocks - moved);
+        s.entries[moved] = new long[2 * MAX_BLOCK];
+        int half = MAX_BLOCK / 2;
+        System.arraycopy(s.entries[block], 2 * half, s.entries[moved], 0, 2 * (MAX_BLOCK - half));
+        s.sizes[block] = half;
+        s.sizes[moved] = MAX_BLOCK - half;
+        s.blocks++;
+        refreshFirst(s, moved);
+        rebuildCounts(s);
+    }
+
+    // Appends block + 1 to 'block' and closes the gap
+    private static void merge(Stripe s, int block) {
+        int next = block + 1;
+        int size = s.sizes[block];
+        System.arraycopy(s.entries[next], 0, s.entries[block], 2 * size, 2 * s.sizes[next]);
+        s.sizes[block] = size + s.sizes[next];
+        if (size == 0) refreshFirst(s, block);
+        int after = s.blocks - next - 1;
+        System.arraycopy(s.entries, next + 1, s.entries, next, after);
+        System.arraycopy(s.sizes, next + 1, s.sizes, next, after);
+        System.arraycopy(s.firstBalances, next + 1, s.firstBalances, next, after);
+        System.arraycopy(s.firstSlots, next + 1, s.firstSlots, next, after);
+        s.blocks--;
+        s.entries[s.blocks] = null;
+        rebuildCounts(s);
+    }
+
+    private static void refreshFirst(Stripe s, int block) {
+        s.firstBalances[block] = s.entries[block][0];
+        s.firstSlots[block] = (int) s.entries[block][1];
+    }
+
+    // --- Fenwick tree over block sizes ---
+
+    private static void add(Stripe s, int block, int delta) {
+        for (int i = block + 1; i <= s.blocks; i += i & -i) s.fenwick[i] += delta;
+    }
+
+    // Entries in the blocks before 'block'
+    private static int before(Stripe s, int block) {
+        int sum = 0;
+        for (int i = block; i > 0; i -= i & -i) sum += s.fenwick[i];
+        return sum;
+    }
+
+    private static void rebuildCounts(Stripe s) {
+        if (s.fenwick.length <= s.blocks) s.fenwick = new int[s.sizes.length + 1];
+        Arrays.fill(s.fenwick, 0);
+        for (int i = 1; i <= s.blocks; i++) {
+            s.fenwick[i] += s.sizes[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= s.blocks) s.fenwick[parent] += s.fenwick[i];
+        }
+    }
+
+    // --- Helpers ---
+
+    // Whether (balanceA, slotA) ranks at or below (balanceB, slotB); no short-circuit, so searches do not branch on it
+    private static boolean atOrBelow(long balanceA, int slotA, long balanceB, int slotB) {
+        return balanceA < balanceB | (balanceA == balanceB & slotA <= slotB);
+    }
+
+    // Orders (balance, slot) pairs from the lowest rank to the highest
+    private static int compare(long balanceA, int slotA, long balanceB, int slotB) {
+        return balanceA != balanceB ? Long.compare(balanceA, balanceB) : Integer.compare(slotA, slotB);
+    }
+
+    private Object lockFor(int stripe) {
+        return locks == null ? stripes[stripe] : locks.lockFor(stripe);
+    }
+}
@@ -0,0 +1,485 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// BinaryCatalogue class - versioned columnar binary form of the games or customers text files
+// Each field is stored as one primitive column (little-endian, 8-byte aligned) and names go through
+// a string dictionary, so loading is a few bulk copies rather than split/trim/parseInt per line,
+// and analytics such as the median price read only the columns they need:
+//
+//   header:    int magic | short version | byte kind | byte columns | int rows | int dictionary size
+//   directory: per column, int column | int reserved | long offset
+//   columns, then an int CRC32 of everything before it
+//
+// Files are written by convertGames / convertCustomers from the existing text formats. Rows with
+// the same ID are merged the way Arcade merges them (first position, last values), so loading a
+// catalogue gives the same arcade as loading the text file it came from.
+public class BinaryCatalogue {
+
+    private static final int MAGIC = 0x41434154; // "ACAT"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int DIRECTORY_ENTRY = 16;
+
+    public enum Kind { GAMES, CUSTOMERS }
+
+    // Columns and their width in bytes (per row, except the dictionary columns)
+    public enum Column {
+        ID(8),           // IdCodec key
+        NAME(4),         // index into the name dictionary
+        GAME_TYPE(1),    // ArcadeSnapshot.CABINET / ACTIVE / VIRTUAL_REALITY
+        PRICE(4),
+        MIN_AGE(4),
+        GAME_FLAGS(1),   // reward flag (cabinet) or equipment ordinal (VR)
+        BALANCE(8),
+        AGE(4),
+        DISCOUNT(1),     // Customer.DiscountType ordinal
+        NAME_OFFSETS(4), // dictionary size + 1 offsets into NAME_BYTES
+        NAME_BYTES(1);   // UTF-8
+
+        private final int width;
+
+        Column(int width) {
+            this.width = width;
+        }
+    }
+
+    private static final Column[] GAME_COLUMNS = {
+            Column.ID, Column.NAME, Column.GAME_TYPE, Column.PRICE, Column.MIN_AGE, Column.GAME_FLAGS,
+            Column.NAME_OFFSETS, Column.NAME_BYTES};
+    private static final Column[] CUSTOMER_COLUMNS = {
+            Column.ID, Column.NAME, Column.BALANCE, Column.AGE, Column.DISCOUNT,
+            Column.NAME_OFFSETS, Column.NAME_BYTES};
+
+    private final File file;
+    private final Kind kind;
+    private final int rows;
+    private final int dictionarySize;
+    private final ByteBuffer data;
+    private final Map<Column, Integer> offsets = new EnumMap<>(Column.class);
+
+    private BinaryCatalogue(File file, Kind kind, int rows, int dictionarySize, ByteBuffer data) {
+        this.file = file;
+        this.kind = kind;
+        this.rows = rows;
+        this.dictionarySize = dictionarySize;
+        this.data = data;
+    }
+
+    // --- Converting ---
+
+    // Converts a games text file (GameParser format); bad lines go to 'diagnostics' as usual
+    public static int convertGames(File textFile, File catalogueFile, DiagnosticsSink diagnostics) throws IOException {
+        List<ArcadeGame> games;
+        try (BufferedReader reader = new BufferedReader(new FileReader(textFile))) {
+            games = GameParser.parseGames(reader, diagnostics);
+        }
+        return writeGames(games, catalogueFile);
+    }
+
+    // Converts a customers text file (CustomerParser format)
+    public static int convertCustomers(File textFile, File catalogueFile, DiagnosticsSink diagnostics) throws IOException {
+        List<Customer> customers;
+        try (BufferedReader reader = new BufferedReader(new FileReader(textFile))) {
+            customers = CustomerParser.parseCustomers(reader, diagnostics);
+        }
+        return writeCustomers(customers, catalogueFile);
+    }
+
+    // Writes games as a catalogue, returning the number of rows
+    public static int writeGames(List<ArcadeGame> games, File catalogueFile) throws IOException {
+        Map<Long, ArcadeGame> byId = new LinkedHashMap<>();
+        for (ArcadeGame g : games) byId.put(IdCodec.encode(g.getGameID()), g);
+
+        int n = byId.size();
+        long[] ids = new long[n];
+        byte[] types = new byte[n];
+        int[] prices = new int[n];
+        int[] minimumAges = new int[n];
+        byte[] flags = new byte[n];
+        Dictionary names = new Dictionary();
+        int[] nameRefs = new int[n];
+
+        int row = 0;
+        for (Map.Entry<Long, ArcadeGame> e : byId.entrySet()) {
+            ArcadeGame g = e.getValue();
+            ids[row] = e.getKey();
+            nameRefs[row] = names.ref(g.getGameName());
+            types[row] = ArcadeSnapshot.gameType(g);
+            prices[row] = g.getPrice();
+            minimumAges[row] = g instanceof ActiveGame ? ((ActiveGame) g).getMinimumAge() : 0;
+            flags[row] = ArcadeSnapshot.gameFlags(g);
+            row++;
+        }
+
+        Map<Column, Object> columns = new EnumMap<>(Column.class);
+        columns.put(Column.ID, ids);
+        columns.put(Column.NAME, nameRefs);
+        columns.put(Column.GAME_TYPE, types);
+        columns.put(Column.PRICE, prices);
+        columns.put(Column.MIN_AGE, minimumAges);
+        columns.put(Column.GAME_FLAGS, flags);
+        names.addTo(columns);
+        write(catalogueFile, Kind.GAMES, GAME_COLUMNS, n, names.size(), columns);
+        return n;
+    }
+
+    // Writes customers as a catalogue, returning the number of rows
+    public static int writeCustomers(List<Customer> customers, File catalogueFile) throws IOException {
+        Map<Long, Customer> byId = new LinkedHashMap<>();
+        for (Customer c : customers) byId.put(IdCodec.encode(c.getCustomerID()), c);
+
+        int n = byId.size();
+        long[] ids = new long[n];
+        long[] balances = new long[n];
+        int[] ages = new int[n];
+        byte[] discounts = new byte[n];
+        Dictionary names = new Dictionary();
+        int[] nameRefs = new int[n];
+
+        int row = 0;
+        for (Map.Entry<Long, Customer> e : byId.entrySet()) {
+            Customer c = e.getValue();
+            ids[row] = e.getKey();
+            nameRefs[row] = names.ref(c.getCustomerName());
+            balances[row] = c.getBalance();
+            ages[row] = c.getAge();
+            discounts[row] = (byte) c.discountType().ordinal();
+            row++;
+        }
+
+        Map<Column, Object> columns = new EnumMap<>(Column.class);
+        columns.put(Column.ID, ids);
+        columns.put(Column.NAME, nameRefs);
+        columns.put(Column.BALANCE, balances);
+        columns.put(Column.AGE, ages);
+        columns.put(Column.DISCOUNT, discounts);
+        names.addTo(columns);
+        write(catalogueFile, Kind.CUSTOMERS, CUSTOMER_COLUMNS, n, names.size(), columns);
+        return n;
+    }
+
+    // Distinct names in first-seen order, stored as offsets into one UTF-8 byte column
+    private static final class Dictionary {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+
+        int ref(String name) {
+            Integer ref = refs.get(name);
+            if (ref == null) {
+                ref = encoded.size();
+                refs.put(name, ref);
+                encoded.add(name.getBytes(StandardCharsets.UTF_8));
+            }
+            return ref;
+        }
+
+        int size() {
+            return encoded.size();
+        }
+
+        void addTo(Map<Column, Object> columns) {
+            int[] offsets = new int[encoded.size() + 1];
+            int total = 0;
+            for (int i = 0; i < encoded.size(); i++) {
+                offsets[i] = total;
+                total += encoded.get(i).length;
+            }
+            offsets[encoded.size()] = total;
+
+            byte[] bytes = new byte[total];
+            for (int i = 0; i < encoded.size(); i++) {
+                System.arraycopy(encoded.get(i), 0, bytes, offsets[i], encoded.get(i).length);
+            }
+            columns.put(Column.NAME_OFFSETS, offsets);
+            columns.put(Column.NAME_BYTES, bytes);
+        }
+    }
+
+    private static void write(File catalogueFile, Kind kind, Column[] layout, int rows, int dictionarySize,
+                              Map<Column, Object> columns) throws IOException {
+        long[] offsets = new long[layout.length];
+        long size = HEADER_SIZE + (long) layout.length * DIRECTORY_ENTRY;
+        for (int i = 0; i < layout.length; i++) {
+            size = align(size);
+            offsets[i] = size;
+            size += (long) length(columns.get(layout[i])) * layout[i].width;
+        }
+        size += 4; // CRC
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Catalogue too large to map: " + size + " bytes");
+        }
+
+        File temp = new File(catalogueFile.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putShort(VERSION).put((byte) kind.ordinal()).put((byte) layout.length);
+            out.putInt(rows).putInt(dictionarySize);
+            for (int i = 0; i < layout.length; i++) {
+                out.putInt(layout[i].ordinal()).putInt(0).putLong(offsets[i]);
+            }
+
+            for (int i = 0; i < layout.length; i++) {
+                out.position((int) offsets[i]);
+                Object values = columns.get(layout[i]);
+                // Bulk copies through typed views
+                if (values instanceof long[]) {
+                    out.asLongBuffer().put((long[]) values);
+                } else if (values instanceof int[]) {
+                    out.asIntBuffer().put((int[]) values);
+                } else {
+                    out.put((byte[]) values);
+                }
+            }
+
+            int end = (int) size - 4;
+            out.putInt(end, checksum(out, end));
+            out.force();
+        }
+        Files.move(temp.toPath(), catalogueFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int length(Object values) {
+        if (values instanceof long[]) return ((long[]) values).length;
+        if (values instanceof int[]) return ((int[]) values).length;
+        return ((byte[]) values).length;
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    // --- Reading ---
+
+    // Maps a catalogue file, checking its header and checksum
+    public static BinaryCatalogue open(File catalogueFile) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(catalogueFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + 4 || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a catalogue: " + catalogueFile);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (data.getInt(0) != MAGIC) {
+            throw new IOException("Not a catalogue: " + catalogueFile);
+        }
+        if (data.getShort(4) != VERSION) {
+            throw new IOException("Unsupported catalogue version " + data.getShort(4) + ": " + catalogueFile);
+        }
+        int end = data.capacity() - 4;
+        if (data.getInt(end) != checksum(data, end)) {
+            throw new IOException("Catalogue checksum mismatch: " + catalogueFile);
+        }
+
+        int kind = data.get(6);
+        int columnCount = data.get(7) & 0xff;
+        if (kind < 0 || kind >= Kind.values().length || HEADER_SIZE + columnCount * DIRECTORY_ENTRY > end) {
+            throw new IOException("Damaged catalogue header: " + catalogueFile);
+        }
+
+        BinaryCatalogue catalogue = new BinaryCatalogue(catalogueFile, Kind.values()[kind], data.getInt(8), data.getInt(12), data);
+        Column[] known = Column.values();
+        for (int i = 0; i < columnCount; i++) {
+            int entry = HEADER_SIZE + i * DIRECTORY_ENTRY;
+            int column = data.getInt(entry);
+            long offset = data.getLong(entry + 8);
+            // Columns this version does not know are skipped
+            if (column >= 0 && column < known.length && offset <= end) {
+                catalogue.offsets.put(known[column], (int) offset);
+            }
+        }
+        return catalogue;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public long[] longColumn(Column column) throws IOException {
+        long[] values = new long[rows];
+        view(column, values.length).asLongBuffer().get(values);
+        return values;
+    }
+
+    public int[] intColumn(Column column) throws IOException {
+        int[] values = new int[column == Column.NAME_OFFSETS ? dictionarySize + 1 : rows];
+        view(column, values.length).asIntBuffer().get(values);
+        return values;
+    }
+
+    public byte[] byteColumn(Column column) throws IOException {
+        byte[] values = new byte[column == Column.NAME_BYTES ? intColumn(Column.NAME_OFFSETS)[dictionarySize] : rows];
+        view(column, values.length).get(values);
+        return values;
+    }
+
+    // The name dictionary, decoded once; NAME column values index into it
+    public String[] names() throws IOException {
+        int[] nameOffsets = intColumn(Column.NAME_OFFSETS);
+        byte[] bytes = new byte[nameOffsets[dictionarySize]];
+        view(Column.NAME_BYTES, bytes.length).get(bytes);
+        String[] names = new String[dictionarySize];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = new String(bytes, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i], StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    // Positioned slice holding 'count' values of 'column'
+    private ByteBuffer view(Column column, int count) throws IOException {
+        Integer offset = offsets.get(column);
+        if (offset == null) {
+            throw new IOException("Catalogue " + file + " has no " + column + " column");
+        }
+        if (count < 0 || offset + (long) count * column.width > data.capacity() - 4) {
+            throw new IOException("Damaged " + column + " column in " + file);
+        }
+        ByteBuffer view = data.duplicate();
+        view.position(offset).limit(offset + count * column.width);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Adds every row to the arcade, returning the number added
+    public int loadInto(Arcade arcade) throws IOException {
+        return kind == Kind.GAMES ? loadGames(arcade) : loadCustomers(arcade);
+    }
+
+    private int loadGames(Arcade arcade) throws IOException {
+        long[] ids = longColumn(Column.ID);
+        int[] nameRefs = intColumn(Column.NAME);
+        byte[] types = byteColumn(Column.GAME_TYPE);
+        int[] prices = intColumn(Column.PRICE);
+        int[] minimumAges = intColumn(Column.MIN_AGE);
+        byte[] flags = byteColumn(Column.GAME_FLAGS);
+        String[] names = names();
+
+        for (int i = 0; i < rows; i++) {
+            arcade.addArcadeGame(ArcadeSnapshot.buildGame(IdCodec.decode(ids[i]), names[nameRefs[i]], types[i], flags[i], prices[i], minimumAges[i]));
+        }
+        return rows;
+    }
+
+    private int loadCustomers(Arcade arcade) throws IOException {
+        long[] ids = longColumn(Column.ID);
+        int[] nameRefs = intColumn(Column.NAME);
+        long[] balances = longColumn(Column.BALANCE);
+        int[] ages = intColumn(Column.AGE);
+        byte[] discounts = byteColumn(Column.DISCOUNT);
+        String[] names = names();
+        Customer.DiscountType[] discountTypes = Customer.DiscountType.values();
+
+        for (int i = 0; i < rows; i++) {
+            arcade.addCustomer(ids[i], names[nameRefs[i]], ages[i], discountTypes[discounts[i]], balances[i]);
+        }
+        return rows;
+    }
+
+    // --- Column-only analytics (games catalogues) ---
+
+    // Off-peak price of every game, from the type, flags and price columns alone
+    public int[] offPeakPrices() throws IOException {
+        requireGames();
+        byte[] types = byteColumn(Column.GAME_TYPE);
+        byte[] flags = byteColumn(Column.GAME_FLAGS);
+        int[] prices = intColumn(Column.PRICE);
+        VirtualRealityGame.Equipment[] equipment = VirtualRealityGame.Equipment.values();
+
+        for (int i = 0; i < rows; i++) {
+            switch (types[i]) {
+                case ArcadeSnapshot.CABINET:
+                    prices[i] = CabinetGame.offPeakPrice(prices[i], flags[i] != 0);
+                    break;
+                case ArcadeSnapshot.ACTIVE:
+                    prices[i] = ActiveGame.offPeakPrice(prices[i]);
+                    break;
+                default:
+                    prices[i] = VirtualRealityGame.offPeakPrice(prices[i], equipment[flags[i]]);
+                    break;
+            }
+        }
+        return prices;
+    }
+
+    // Median off-peak price, with the same rounding as Arcade.getMedianGamePrice
+    public int medianOffPeakPrice() throws IOException {
+        int[] prices = offPeakPrices();
+        if (prices.length == 0) return 0;
+        Arrays.sort(prices);
+        int middle = prices.length / 2;
+        return prices.length % 2 == 1 ? prices[middle] : (prices[middle - 1] + prices[middle]) / 2;
+    }
+
+    // Number of each game type: cabinet, active, VR (as Arcade.countArcadeGames)
+    public int[] countGames() throws IOException {
+        requireGames();
+        int[] counts = new int[3];
+        for (byte type : byteColumn(Column.GAME_TYPE)) counts[type]++;
+        return counts;
+    }
+
+    private void requireGames() throws IOException {
+        if (kind != Kind.GAMES) {
+            throw new IOException(file + " is not a games catalogue");
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer view = buffer.duplicate();
+        view.position(0).limit(length);
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    // Converts the sample files and checks the catalogues load the same arcade as the text
+    public static void main(String[] args) throws IOException {
+        File games = new File(args.length > 0 ? args[0] : "games.txt");
+        File customers = new File(args.length > 1 ? args[1] : "customers.txt");
+        File directory = Files.createTempDirectory("catalogue").toFile();
+        File gameCatalogue = new File(directory, "games.cat");
+        File customerCatalogue = new File(directory, "customers.cat");
+
+        CountingDiagnostics skipped = new CountingDiagnostics();
+        int gameRows = convertGames(games, gameCatalogue, skipped);
+        int customerRows = convertCustomers(customers, customerCatalogue, skipped);
+        System.out.println("Games: " + games.length() + " bytes of text -> " + gameCatalogue.length() + " bytes, " + gameRows + " rows");
+        System.out.println("Customers: " + customers.length() + " bytes of text -> " + customerCatalogue.length() + " bytes, " + customerRows + " rows");
+        System.out.println("Lines skipped: " + skipped.getTotal());
+
+        Arcade fromText = Simulation.initialiseArcade("Text", games, customers, new CountingDiagnostics());
+        Arcade fromCatalogue = Simulation.initialiseArcadeBinary("Binary", gameCatalogue, customerCatalogue);
+        BinaryCatalogue gameColumns = open(gameCatalogue);
+
+        System.out.println("\nMedian price: text " + fromText.getMedianGamePrice() + ", catalogue " + fromCatalogue.getMedianGamePrice()
+                + ", columns only " + gameColumns.medianOffPeakPrice());
+        System.out.println("Game counts: text " + Arrays.toString(fromText.countArcadeGames())
+                + ", columns only " + Arrays.toString(gameColumns.countGames()));
+        System.out.println("Richest (text): " + fromText.findRichestCustomer());
+        System.out.println("Richest (catalogue): " + fromCatalogue.findRichestCustomer());
+    }
+}
@@ -6,9 +6,7 @@ class CabinetGame extends ArcadeGame {
     // Constructor taking values of all fields
     public CabinetGame(String gameID, String gameName, int price, boolean paysOutReward) throws InvalidGameIdException {
         super(gameID, gameName, price);
-        if (!gameID.startsWith("C")){
-            throw new InvalidGameIdException("Invalid Cabinet Game ID: must start with 'C' and be 10 alphanumeric characters");
-        }
+        checkGameType(gameID, IdCheck.CABINET_GAME);
         this.paysOutReward = paysOutReward;
     }
 
@@ -24,8 +22,12 @@ class CabinetGame extends ArcadeGame {
         if (peak) {
             return getPrice();
         }
-        // Off-peak price with/without rewards + discount
-        return paysOutReward ? (int) (getPrice() * 0.8) : (int) (getPrice() * 0.5);
+        return offPeakPrice(getPrice(), paysOutReward);
+    }
+
+    // Off-peak price with/without rewards + discount (also used on catalogue columns, see BinaryCatalogue)
+    static int offPeakPrice(int price, boolean paysOutReward) {
+        return paysOutReward ? (int) (price * 0.8) : (int) (price * 0.5);
     }
 
     @Override
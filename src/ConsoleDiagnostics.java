@@ -0,0 +1,20 @@
+// ConsoleDiagnostics class - synchronous sink, every message is printed by the reporting thread
+public class ConsoleDiagnostics implements DiagnosticsSink {
+
+    static final ConsoleDiagnostics INSTANCE = new ConsoleDiagnostics();
+
+    @Override
+    public void report(Diagnostic kind, int lineNumber, String a, String b) {
+        String message = kind.format(lineNumber, a, b);
+        if (kind.isError()) {
+            System.err.println(message);
+        } else {
+            System.out.println(message);
+        }
+    }
+
+    @Override
+    public void print(String line) {
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// CountingDiagnostics class - counts problems per kind without formatting or printing them
+// For runs where only the totals matter; report lines still go to System.out.
+public class CountingDiagnostics implements DiagnosticsSink {
+
+    private final LongAdder[] counts = new LongAdder[Diagnostic.values().length];
+
+    public CountingDiagnostics() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void report(Diagnostic kind, int lineNumber, String a, String b) {
+        counts[kind.ordinal()].increment();
+    }
+
+    @Override
+    public void print(String line) {
+        System.out.println(line);
+    }
+
+    public long getCount(Diagnostic kind) {
+        return counts[kind.ordinal()].sum();
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for (LongAdder count : counts) total += count.sum();
+        return total;
+    }
+
+    // Counts per kind (kinds never reported are left out)
+    public Map<Diagnostic, Long> getCounts() {
+        Map<Diagnostic, Long> result = new EnumMap<>(Diagnostic.class);
+        for (Diagnostic kind : Diagnostic.values()) {
+            long count = counts[kind.ordinal()].sum();
+            if (count > 0) result.put(kind, count);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Diagnostics" + getCounts();
+    }
+}
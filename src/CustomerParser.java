@@ -6,10 +6,18 @@ public class CustomerParser {
 
     // Parses a list of Customer objects from BufferedReader using "#" as delimiter
     public static List<Customer> parseCustomers(BufferedReader reader) throws IOException {
+        return parseCustomers(reader, DiagnosticsSink.console());
+    }
+
+    // Same as above, sending bad lines to the given sink
+    public static List<Customer> parseCustomers(BufferedReader reader, DiagnosticsSink diagnostics) throws IOException {
         List<Customer> customers = new ArrayList<>();
         String line;
+        int lines = 0;
+        long start = System.nanoTime();
 
         while ((line = reader.readLine()) != null) {
+            lines++;
             // Skip empty lines
             if (line.trim().isEmpty()) continue;
 
@@ -17,7 +25,7 @@ public class CustomerParser {
                 String[] tokens = line.split("#");
                 // Validate expected format
                 if (tokens.length < 4 || tokens.length > 5) {
-                    System.err.println("Invalid line format: " + line);
+                    diagnostics.report(Diagnostic.CUSTOMER_MALFORMED, 0, line);
                     continue;
                 }
 
@@ -38,7 +46,7 @@ public class CustomerParser {
                         discount = Customer.DiscountType.STUDENT;
                     } else {
                         // Unknown discount types are reported and skipped
-                        System.err.println("Unknown discount type: " + type + " on line: " + line);
+                        diagnostics.report(Diagnostic.CUSTOMER_UNKNOWN_DISCOUNT, 0, type, line);
                         continue;
                     }
                 }
@@ -49,12 +57,13 @@ public class CustomerParser {
 
             } catch (NumberFormatException e) {
                 // Handle parse errors for numeric fields
-                System.err.println("Error parsing number in line: " + line);
+                diagnostics.report(Diagnostic.CUSTOMER_BAD_NUMBER, 0, line);
             } catch (InvalidCustomerException e) {
-                System.err.println("Invalid customer data: " + e.getMessage() + " in line: " + line);
+                diagnostics.report(Diagnostic.CUSTOMER_INVALID, 0, e.getMessage(), line);
             }
         }
 
+        ArcadeMetrics.global().parsed(ArcadeMetrics.Parser.CUSTOMERS, lines, System.nanoTime() - start);
         return customers;
     }
 }
\ No newline at end of file
@@ -0,0 +1,294 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// CustomerStore class - customer data held as parallel primitive arrays, one slot per customer
+// Slots are grouped into fixed-size pages so the store grows without copying customer data.
+// Names are kept as UTF-8 bytes in a per-page arena rather than as one String per customer.
+// The store does no locking of its own: Arcade serialises writers (registration lock and
+// customer lock stripes) and publishes new slots through its IdIndex.
+//
+// snapshot() returns a View sharing every page with the store. Pages are copy-on-write: each page
+// remembers the epoch it was made in, snapshot() starts a new epoch, and a write to a page from an
+// earlier epoch first replaces it with a copy, so a view's pages never change again. Only pages
+// written after a snapshot are copied (once each per snapshot); name bytes are never copied, as
+// they are only ever appended. Snapshots must not overlap writes (Arcade takes them quiesced).
+public class CustomerStore {
+
+    static final int PAGE_SHIFT = 10;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final Customer.DiscountType[] DISCOUNTS = Customer.DiscountType.values();
+
+    static final class Page {
+        final int epoch;
+        final long[] keys;
+        final long[] balances;
+        final int[] ages;
+        final byte[] discounts;
+        final int[] nameOffsets;
+        final int[] nameLengths;
+        // Replaced by a bigger copy when full, while other slots of the page may be read under other
+        // locks; volatile so a reader gets either the old arena or the new one with every byte copied
+        volatile byte[] names;
+        int namesUsed;
+
+        Page(int epoch) {
+            this.epoch = epoch;
+            keys = new long[PAGE_SIZE];
+            balances = new long[PAGE_SIZE];
+            ages = new int[PAGE_SIZE];
+            discounts = new byte[PAGE_SIZE];
+            nameOffsets = new int[PAGE_SIZE];
+            nameLengths = new int[PAGE_SIZE];
+            names = new byte[PAGE_SIZE * 16];
+        }
+
+        // Copy for a later epoch; the copy appends its names after the bytes this page already uses
+        Page(Page from, int epoch) {
+            this.epoch = epoch;
+            keys = from.keys.clone();
+            balances = from.balances.clone();
+            ages = from.ages.clone();
+            discounts = from.discounts.clone();
+            nameOffsets = from.nameOffsets.clone();
+            nameLengths = from.nameLengths.clone();
+            names = from.names;
+            namesUsed = from.namesUsed;
+        }
+    }
+
+    private volatile Page[] pages = new Page[16];
+    private volatile int size;
+    // Changed only by snapshot(), while no write is in progress
+    private int epoch;
+
+    // Appends a customer and returns its slot
+    public int add(long key, String name, int age, Customer.DiscountType discount, long balance) {
+        int slot = size;
+        addPage(slot >>> PAGE_SHIFT);
+        set(slot, key, name, age, discount, balance);
+        size = slot + 1;
+        return slot;
+    }
+
+    // Makes sure the page exists (synchronized with copyPage, which also replaces directory entries)
+    private synchronized void addPage(int page) {
+        Page[] directory = pages;
+        if (page == directory.length) {
+            Page[] grown = new Page[directory.length * 2];
+            System.arraycopy(directory, 0, grown, 0, directory.length);
+            directory = grown;
+        }
+        if (directory[page] == null) {
+            directory[page] = new Page(epoch);
+        }
+        pages = directory;
+    }
+
+    // Overwrites every field of an existing slot
+    public void set(int slot, long key, String name, int age, Customer.DiscountType discount, long balance) {
+        Page p = writable(slot);
+        int i = slot & PAGE_MASK;
+        p.keys[i] = key;
+        p.balances[i] = balance;
+        p.ages[i] = age;
+        p.discounts[i] = (byte) discount.ordinal();
+        setName(p, i, name);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long key(int slot) {
+        return page(slot).keys[slot & PAGE_MASK];
+    }
+
+    public long balance(int slot) {
+        return page(slot).balances[slot & PAGE_MASK];
+    }
+
+    public void setBalance(int slot, long balance) {
+        writable(slot).balances[slot & PAGE_MASK] = balance;
+    }
+
+    public int age(int slot) {
+        return page(slot).ages[slot & PAGE_MASK];
+    }
+
+    public Customer.DiscountType discount(int slot) {
+        return DISCOUNTS[page(slot).discounts[slot & PAGE_MASK]];
+    }
+
+    public String name(int slot) {
+        Page p = page(slot);
+        int i = slot & PAGE_MASK;
+        return new String(p.names, p.nameOffsets[i], p.nameLengths[i], StandardCharsets.UTF_8);
+    }
+
+    // Builds a standalone Customer holding a copy of the slot's current values
+    public Customer toCustomer(int slot) {
+        return Customer.restore(IdCodec.decode(key(slot)), name(slot), age(slot), discount(slot), balance(slot));
+    }
+
+    // Balances as they stand, read page by page without a snapshot, so writes made meanwhile may or
+    // may not be seen (see View.balances)
+    public long[] balances(Customer.DiscountType discount) {
+        int count = size;
+        return balances(pages, count, discount);
+    }
+
+    // Same as above, passing each balance to 'action' instead of copying them
+    public void forEachBalance(Customer.DiscountType discount, LongConsumer action) {
+        int count = size;
+        forEachBalance(pages, count, discount, action);
+    }
+
+    private static long[] balances(Page[] pages, int size, Customer.DiscountType discount) {
+        long[] result = new long[size];
+        int n = 0;
+        for (int page = 0; page << PAGE_SHIFT < size; page++) {
+            Page p = pages[page];
+            int end = Math.min(PAGE_SIZE, size - (page << PAGE_SHIFT));
+            if (discount == null) {
+                System.arraycopy(p.balances, 0, result, n, end);
+                n += end;
+                continue;
+            }
+            byte wanted = (byte) discount.ordinal();
+            for (int i = 0; i < end; i++) {
+                if (p.discounts[i] == wanted) result[n++] = p.balances[i];
+            }
+        }
+        return n == size ? result : Arrays.copyOf(result, n);
+    }
+
+    private static void forEachBalance(Page[] pages, int size, Customer.DiscountType discount, LongConsumer action) {
+        for (int page = 0; page << PAGE_SHIFT < size; page++) {
+            Page p = pages[page];
+            int end = Math.min(PAGE_SIZE, size - (page << PAGE_SHIFT));
+            for (int i = 0; i < end; i++) {
+                if (discount == null || p.discounts[i] == discount.ordinal()) action.accept(p.balances[i]);
+            }
+        }
+    }
+
+    private Page page(int slot) {
+        return pages[slot >>> PAGE_SHIFT];
+    }
+
+    // Page of a slot that is about to be written, copied first if a snapshot still shares it
+    private Page writable(int slot) {
+        Page p = pages[slot >>> PAGE_SHIFT];
+        return p.epoch == epoch ? p : copyPage(slot >>> PAGE_SHIFT);
+    }
+
+    // Writers to different slots of one page may hold different lock stripes, so only one copies it
+    private synchronized Page copyPage(int page) {
+        Page[] directory = pages;
+        Page p = directory[page];
+        if (p.epoch != epoch) {
+            p = new Page(p, epoch);
+            directory[page] = p;
+            pages = directory;
+        }
+        return p;
+    }
+
+    // --- Snapshots ---
+
+    // Read-only view of every customer as of now; later writes copy the pages they touch instead
+    public synchronized View snapshot() {
+        epoch++;
+        int count = size;
+        Page[] directory = pages;
+        Page[] shared = new Page[(count + PAGE_MASK) >>> PAGE_SHIFT];
+        System.arraycopy(directory, 0, shared, 0, shared.length);
+        return new View(shared, count);
+    }
+
+    // Customers as they were when the view was taken; safe to read from any thread
+    public static final class View {
+        private final Page[] pages;
+        private final int size;
+
+        private View(Page[] pages, int size) {
+            this.pages = pages;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long key(int slot) {
+            return page(slot).keys[slot & PAGE_MASK];
+        }
+
+        public long balance(int slot) {
+            return page(slot).balances[slot & PAGE_MASK];
+        }
+
+        public int age(int slot) {
+            return page(slot).ages[slot & PAGE_MASK];
+        }
+
+        public Customer.DiscountType discount(int slot) {
+            return DISCOUNTS[page(slot).discounts[slot & PAGE_MASK]];
+        }
+
+        public String name(int slot) {
+            Page p = page(slot);
+            int i = slot & PAGE_MASK;
+            return new String(p.names, p.nameOffsets[i], p.nameLengths[i], StandardCharsets.UTF_8);
+        }
+
+        public Customer toCustomer(int slot) {
+            return Customer.restore(IdCodec.decode(key(slot)), name(slot), age(slot), discount(slot), balance(slot));
+        }
+
+        // Balances of the customers with the given discount (everyone, indexed by slot, when null)
+        public long[] balances(Customer.DiscountType discount) {
+            return CustomerStore.balances(pages, size, discount);
+        }
+
+        public void forEachBalance(Customer.DiscountType discount, LongConsumer action) {
+            CustomerStore.forEachBalance(pages, size, discount, action);
+        }
+
+        // Sum of every balance, read page by page
+        public long totalBalance() {
+            long total = 0;
+            for (int page = 0; page < pages.length; page++) {
+                long[] balances = pages[page].balances;
+                int end = Math.min(PAGE_SIZE, size - (page << PAGE_SHIFT));
+                for (int i = 0; i < end; i++) total += balances[i];
+            }
+            return total;
+        }
+
+        private Page page(int slot) {
+            if (slot < 0 || slot >= size) throw new IndexOutOfBoundsException("Slot " + slot + " is not in the view");
+            return pages[slot >>> PAGE_SHIFT];
+        }
+    }
+
+    // Appends the name to the page's arena (a replaced name's old bytes are simply left behind)
+    private static void setName(Page p, int i, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        byte[] names = p.names;
+        if (p.namesUsed + length > names.length) {
+            // The copy is filled before it is published, new bytes included
+            byte[] grown = Arrays.copyOf(names, Math.max(names.length * 2, p.namesUsed + length));
+            System.arraycopy(bytes, 0, grown, p.namesUsed, length);
+            p.names = grown;
+        } else {
+            System.arraycopy(bytes, 0, names, p.namesUsed, length);
+        }
+        p.nameOffsets[i] = p.namesUsed;
+        p.nameLengths[i] = length;
+        p.namesUsed += length;
+    }
+}
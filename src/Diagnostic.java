@@ -0,0 +1,52 @@
+// Kinds of problem the parsers and simulation report, with the console stream and message layout of each
+// Templates use %n for the line number, %a and %b for the details passed with the report;
+// messages are only formatted by sinks that actually write them.
+public enum Diagnostic {
+    TRANSACTION_ERROR(false, "Error processing transaction %n: %a"),
+    // PLAY rejections (see TransactionStatus), %a is the missing ID or the fixed rejection message
+    PLAY_UNKNOWN_CUSTOMER(false, "Error processing transaction %n: Customer with ID %a does not exist"),
+    PLAY_UNKNOWN_GAME(false, "Error processing transaction %n: Game with ID %a does not exist"),
+    PLAY_REJECTED(false, "Error processing transaction %n: %a"),
+    UNKNOWN_TRANSACTION(true, "Unknown transaction type on line %n: %a"),
+    GAME_MALFORMED(true, "Skipping malformed line %n: %a"),
+    GAME_INCOMPLETE_VR(true, "Skipping incomplete VR line %n: %a"),
+    GAME_UNKNOWN_TYPE(true, "Unknown game type on line %n: %a"),
+    GAME_ERROR(true, "Error parsing line %n: %a"),
+    CUSTOMER_MALFORMED(true, "Invalid line format: %a"),
+    CUSTOMER_UNKNOWN_DISCOUNT(true, "Unknown discount type: %a on line: %b"),
+    CUSTOMER_BAD_NUMBER(true, "Error parsing number in line: %a"),
+    CUSTOMER_INVALID(true, "Invalid customer data: %a in line: %b"),
+    FILE_ERROR(false, "Error reading %a file: %b"),
+    // Summary written by RateLimitedDiagnostics in place of the messages it held back; %b is how many
+    SUPPRESSED(true, "... %b more '%a' messages suppressed");
+
+    private final boolean stderr;
+    private final String template;
+
+    Diagnostic(boolean stderr, String template) {
+        this.stderr = stderr;
+        this.template = template;
+    }
+
+    // True if the console sink writes this kind to System.err rather than System.out
+    public boolean isError() {
+        return stderr;
+    }
+
+    public String format(int lineNumber, String a, String b) {
+        StringBuilder sb = new StringBuilder(template.length() + 64);
+        for (int i = 0; i < template.length(); i++) {
+            char c = template.charAt(i);
+            if (c == '%' && i + 1 < template.length()) {
+                char field = template.charAt(++i);
+                if (field == 'n') sb.append(lineNumber);
+                else if (field == 'a') sb.append(a);
+                else if (field == 'b') sb.append(b);
+                else sb.append(c).append(field);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,31 @@
+// DiagnosticsSink interface - destination for parser problems and simulation report lines
+// Parsers pass the parts of a message rather than the finished text, so sinks that only count
+// or hold messages back never pay for string building.
+// Implementations: ConsoleDiagnostics (synchronous, the default), AsyncDiagnostics (ring buffer
+// drained by a background thread), RateLimitedDiagnostics (caps repeats) and CountingDiagnostics.
+public interface DiagnosticsSink extends AutoCloseable {
+
+    // Reports a problem; 'a' and 'b' fill the kind's template (see Diagnostic)
+    void report(Diagnostic kind, int lineNumber, String a, String b);
+
+    default void report(Diagnostic kind, int lineNumber, String a) {
+        report(kind, lineNumber, a, null);
+    }
+
+    // Writes a line of report output (stdout), in order with the problems reported before it
+    void print(String line);
+
+    // Waits until everything reported so far has been written
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+        flush();
+    }
+
+    // Writes straight to System.out / System.err, exactly as the parsers always have
+    static DiagnosticsSink console() {
+        return ConsoleDiagnostics.INSTANCE;
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.TreeMap;
+
+// GameCatalogueStats class - game counts and median off-peak price kept up to date as games are added
+// The prices are held in two counted multisets: 'lower' has the smaller half (plus the middle value
+// when the count is odd) and 'upper' the larger half, so the median is read from the boundary.
+public class GameCatalogueStats {
+
+    private final TreeMap<Integer, Integer> lower = new TreeMap<>();
+    private final TreeMap<Integer, Integer> upper = new TreeMap<>();
+    private int lowerSize;
+    private int upperSize;
+
+    private int cabinet;
+    private int active;
+    private int vr;
+
+    // Records a game entering the catalogue
+    public synchronized void add(ArcadeGame g) {
+        int price = g.calculatePrice(false); // Off-peak price
+        if (lowerSize == 0 || price <= lower.lastKey()) {
+            increment(lower, price);
+            lowerSize++;
+        } else {
+            increment(upper, price);
+            upperSize++;
+        }
+        rebalance();
+        count(g, 1);
+    }
+
+    // Records a game leaving the catalogue (e.g. replaced by a game with the same ID)
+    public synchronized void remove(ArcadeGame g) {
+        int price = g.calculatePrice(false);
+        if (lower.containsKey(price)) {
+            decrement(lower, price);
+            lowerSize--;
+        } else if (upper.containsKey(price)) {
+            decrement(upper, price);
+            upperSize--;
+        } else {
+            return;
+        }
+        rebalance();
+        count(g, -1);
+    }
+
+    // Median off-peak price, averaging the two middle prices for an even number of games
+    public synchronized int getMedianPrice() {
+        if (lowerSize == 0) return 0;
+        if (lowerSize > upperSize) {
+            return lower.lastKey();
+        }
+        return (lower.lastKey() + upper.firstKey()) / 2;
+    }
+
+    // Returns number of each game type: cabinet, active, VR
+    public synchronized int[] getCounts() {
+        return new int[]{cabinet, active, vr};
+    }
+
+    private void count(ArcadeGame g, int delta) {
+        if (g instanceof VirtualRealityGame) vr += delta;
+        else if (g instanceof ActiveGame) active += delta;
+        else cabinet += delta;
+    }
+
+    // Keeps lower the same size as upper, or one larger
+    private void rebalance() {
+        if (lowerSize > upperSize + 1) {
+            int moved = lower.lastKey();
+            decrement(lower, moved);
+            increment(upper, moved);
+            lowerSize--;
+            upperSize++;
+        } else if (upperSize > lowerSize) {
+            int moved = upper.firstKey();
+            decrement(upper, moved);
+            increment(lower, moved);
+            upperSize--;
+            lowerSize++;
+        }
+    }
+
+    private static void increment(TreeMap<Integer, Integer> set, int price) {
+        set.merge(price, 1, Integer::sum);
+    }
+
+    private static void decrement(TreeMap<Integer, Integer> set, int price) {
+        int count = set.get(price);
+        if (count == 1) {
+            set.remove(price);
+        } else {
+            set.put(price, count - 1);
+        }
+    }
+}
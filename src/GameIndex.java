@@ -0,0 +1,133 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// GameIndex class - secondary indexes over the game catalogue, by game ordinal (see PriceTable)
+// Bitmaps hold the games of each type, each VR equipment level and the cabinets paying out rewards;
+// sorted indexes hold off-peak price, peak price and minimum age. A query starts from every game,
+// intersects the bitmaps of its conditions and then the ordinals found by binary search in the
+// sorted indexes, so it never visits games the conditions rule out.
+// Arcade keeps the index in step with addArcadeGame, including games replaced under the same ID.
+public class GameIndex {
+
+    private static final VirtualRealityGame.Equipment[] EQUIPMENT = VirtualRealityGame.Equipment.values();
+    // Minimum age stored for games without an age limit
+    private static final int NO_AGE_LIMIT = Integer.MIN_VALUE;
+
+    private final BitSet all = new BitSet();
+    private final BitSet[] types = new BitSet[GameQuery.GameType.values().length];
+    private final BitSet[] equipment = new BitSet[EQUIPMENT.length];
+    private final BitSet rewards = new BitSet();
+
+    private final SortedIndex offPeakPrices = new SortedIndex();
+    private final SortedIndex peakPrices = new SortedIndex();
+    private final SortedIndex minimumAges = new SortedIndex();
+
+    public GameIndex() {
+        for (int i = 0; i < types.length; i++) types[i] = new BitSet();
+        for (int i = 0; i < equipment.length; i++) equipment[i] = new BitSet();
+    }
+
+    public synchronized void add(int ordinal, ArcadeGame g) {
+        all.set(ordinal);
+        types[ArcadeSnapshot.gameType(g)].set(ordinal);
+        if (g instanceof VirtualRealityGame) equipment[((VirtualRealityGame) g).getVrEquipment().ordinal()].set(ordinal);
+        if (g instanceof CabinetGame && ((CabinetGame) g).getPaysOutReward()) rewards.set(ordinal);
+
+        offPeakPrices.add(g.calculatePrice(false), ordinal);
+        peakPrices.add(g.calculatePrice(true), ordinal);
+        minimumAges.add(minimumAge(g), ordinal);
+    }
+
+    // Removes a game added at 'ordinal' (before it is replaced by another with the same ID)
+    public synchronized void remove(int ordinal, ArcadeGame g) {
+        all.clear(ordinal);
+        types[ArcadeSnapshot.gameType(g)].clear(ordinal);
+        if (g instanceof VirtualRealityGame) equipment[((VirtualRealityGame) g).getVrEquipment().ordinal()].clear(ordinal);
+        rewards.clear(ordinal);
+
+        offPeakPrices.remove(g.calculatePrice(false), ordinal);
+        peakPrices.remove(g.calculatePrice(true), ordinal);
+        minimumAges.remove(minimumAge(g), ordinal);
+    }
+
+    private static int minimumAge(ArcadeGame g) {
+        return g instanceof ActiveGame ? ((ActiveGame) g).getMinimumAge() : NO_AGE_LIMIT;
+    }
+
+    // Ordinals of the games matching every condition of the query
+    public synchronized BitSet select(GameQuery q) {
+        BitSet result = (BitSet) all.clone();
+        if (q.type != null) result.and(types[q.type.ordinal()]);
+        if (q.equipment != null) result.and(equipment[q.equipment.ordinal()]);
+        if (q.paysOutReward != null) {
+            if (q.paysOutReward) {
+                result.and(rewards);
+            } else {
+                result.and(types[GameQuery.GameType.CABINET.ordinal()]);
+                result.andNot(rewards);
+            }
+        }
+
+        if (q.ageSet) minimumAges.retainRange(NO_AGE_LIMIT, q.maximumAge, result);
+        if (q.minOffPeak != Integer.MIN_VALUE || q.maxOffPeak != Integer.MAX_VALUE) {
+            offPeakPrices.retainRange(q.minOffPeak, q.maxOffPeak, result);
+        }
+        if (q.minPeak != Integer.MIN_VALUE || q.maxPeak != Integer.MAX_VALUE) {
+            peakPrices.retainRange(q.minPeak, q.maxPeak, result);
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return all.cardinality();
+    }
+
+    // Sorted (value, ordinal) pairs packed into longs: value in the high half, ordinal in the low half
+    private static final class SortedIndex {
+        private long[] entries = new long[16];
+        private int size;
+
+        void add(int value, int ordinal) {
+            long entry = pack(value, ordinal);
+            int at = lowerBound(entry);
+            if (size == entries.length) entries = Arrays.copyOf(entries, size * 2);
+            System.arraycopy(entries, at, entries, at + 1, size - at);
+            entries[at] = entry;
+            size++;
+        }
+
+        void remove(int value, int ordinal) {
+            int at = lowerBound(pack(value, ordinal));
+            if (at < size && entries[at] == pack(value, ordinal)) {
+                System.arraycopy(entries, at + 1, entries, at, size - at - 1);
+                size--;
+            }
+        }
+
+        // Keeps only the ordinals in 'result' whose value is within [min, max]
+        void retainRange(int min, int max, BitSet result) {
+            int from = lowerBound(pack(min, 0));
+            int to = max == Integer.MAX_VALUE ? size : lowerBound(pack(max + 1, 0));
+            BitSet inRange = new BitSet();
+            for (int i = from; i < to; i++) {
+                inRange.set((int) entries[i]);
+            }
+            result.and(inRange);
+        }
+
+        private static long pack(int value, int ordinal) {
+            return (long) value << 32 | ordinal;
+        }
+
+        // First position whose entry is >= 'entry'
+        private int lowerBound(long entry) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (entries[mid] < entry) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
@@ -8,9 +8,15 @@ public class GameParser {
 
     // Parses a list of ArcadeGame objects from BufferedReader using "@" as delimiter
     public static List<ArcadeGame> parseGames(BufferedReader reader) throws IOException {
+        return parseGames(reader, DiagnosticsSink.console());
+    }
+
+    // Same as above, sending bad lines to the given sink
+    public static List<ArcadeGame> parseGames(BufferedReader reader, DiagnosticsSink diagnostics) throws IOException {
         List<ArcadeGame> games = new ArrayList<>();
         String line;
         int lineNum = 0;
+        long start = System.nanoTime();
 
         while ((line = reader.readLine()) != null) {
             lineNum++;
@@ -18,7 +24,7 @@ public class GameParser {
                 String[] parts = line.split("@");
                 if (parts.length < 5) {
                     // Skip lines that are too short to be valid
-                    System.err.println("Skipping malformed line " + lineNum + ": " + line);
+                    diagnostics.report(Diagnostic.GAME_MALFORMED, lineNum, line);
                     continue;
                 }
 
@@ -27,43 +33,59 @@ public class GameParser {
                 String name = parts[1].replaceAll("^\"|\"$", "").trim(); // remove surrounding quotes
                 String type = parts[2].trim();
                 int price = Integer.parseInt(parts[3].trim());
+                // Checks the ID's shape and prefix once; each type rejects a bad ID before building the game
+                IdCheck idCheck = IdValidator.checkGameId(id);
+                String idProblem;
 
                 // Construct appropriate ActiveGame subclass based on type
                 switch (type.toLowerCase()) {
                     case "cabinet":
                         boolean multiplayer = parts[4].trim().equalsIgnoreCase("yes");
+                        if ((idProblem = IdValidator.gameIdProblem(id, idCheck, IdCheck.CABINET_GAME)) != null) {
+                            diagnostics.report(Diagnostic.GAME_ERROR, lineNum, idProblem);
+                            break;
+                        }
                         games.add(new CabinetGame(id, name, price, multiplayer));
                         break;
 
                     case "active":
                         int minAge = Integer.parseInt(parts[4].trim());
+                        if ((idProblem = IdValidator.gameIdProblem(id, idCheck, IdCheck.ACTIVE_GAME)) != null) {
+                            diagnostics.report(Diagnostic.GAME_ERROR, lineNum, idProblem);
+                            break;
+                        }
                         games.add(new ActiveGame(id, name, price, minAge));
                         break;
 
                     case "virtualreality":
                         if (parts.length < 6) {
                             // VR games must include equipment
-                            System.err.println("Skipping incomplete VR line " + lineNum + ": " + line);
+                            diagnostics.report(Diagnostic.GAME_INCOMPLETE_VR, lineNum, line);
                             continue;
                         }
                         int vrAge = Integer.parseInt(parts[4].trim());
                         String equipment = parts[5].trim(); // e.g., headsetOnly, fullBodyTracking
                         VirtualRealityGame.Equipment equipEnum = VirtualRealityGame.Equipment.fromString(equipment);
+                        if ((idProblem = IdValidator.gameIdProblem(id, idCheck, IdCheck.VIRTUAL_REALITY_GAME)) != null) {
+                            diagnostics.report(Diagnostic.GAME_ERROR, lineNum, idProblem);
+                            break;
+                        }
                         games.add(new VirtualRealityGame(id, name, price, vrAge, equipEnum));
                         break;
 
                     default:
                         // Unknown game type encountered
-                        System.err.println("Unknown game type on line " + lineNum + ": " + type);
+                        diagnostics.report(Diagnostic.GAME_UNKNOWN_TYPE, lineNum, type);
                         break;
                 }
 
             } catch (Exception e) {
                 // Catch-all for unexpected errors during parsing
-                System.err.println("Error parsing line " + lineNum + ": " + e.getMessage());
+                diagnostics.report(Diagnostic.GAME_ERROR, lineNum, e.getMessage());
             }
         }
 
+        ArcadeMetrics.global().parsed(ArcadeMetrics.Parser.GAMES, lineNum, System.nanoTime() - start);
         return games;
     }
 }
@@ -0,0 +1,68 @@
+// GameQuery class - filter for Arcade.findGames, answered from the GameIndex
+// Every condition set must hold; conditions left unset match every game. Setters return the query,
+// e.g. all games a 12-year-old can play for £4.00 or less off-peak:
+//   new GameQuery().playableAt(12).offPeakPrice(0, 400)
+public class GameQuery {
+
+    // Game types as counted by Arcade.countArcadeGames (ACTIVE excludes virtual reality games)
+    public enum GameType { CABINET, ACTIVE, VIRTUAL_REALITY }
+
+    GameType type;
+    VirtualRealityGame.Equipment equipment;
+    Boolean paysOutReward;
+    int maximumAge = Integer.MIN_VALUE;
+    boolean ageSet;
+    int minOffPeak = Integer.MIN_VALUE;
+    int maxOffPeak = Integer.MAX_VALUE;
+    int minPeak = Integer.MIN_VALUE;
+    int maxPeak = Integer.MAX_VALUE;
+
+    public GameQuery type(GameType type) {
+        this.type = type;
+        return this;
+    }
+
+    // Virtual reality games needing exactly this equipment
+    public GameQuery equipment(VirtualRealityGame.Equipment equipment) {
+        this.equipment = equipment;
+        return this;
+    }
+
+    // Cabinet games that do (or do not) pay out a reward
+    public GameQuery paysOutReward(boolean paysOutReward) {
+        this.paysOutReward = paysOutReward;
+        return this;
+    }
+
+    // Games whose minimum age is at most 'age' (games without an age limit always match)
+    public GameQuery playableAt(int age) {
+        this.maximumAge = age;
+        this.ageSet = true;
+        return this;
+    }
+
+    // Games whose off-peak price (before customer discounts) is within [min, max] pence
+    public GameQuery offPeakPrice(int min, int max) {
+        this.minOffPeak = min;
+        this.maxOffPeak = max;
+        return this;
+    }
+
+    // Games whose peak price is within [min, max] pence
+    public GameQuery peakPrice(int min, int max) {
+        this.minPeak = min;
+        this.maxPeak = max;
+        return this;
+    }
+
+    // Checks one game directly, without the index
+    public boolean matches(ArcadeGame g) {
+        if (type != null && ArcadeSnapshot.gameType(g) != type.ordinal()) return false;
+        if (equipment != null && !(g instanceof VirtualRealityGame && ((VirtualRealityGame) g).getVrEquipment() == equipment)) return false;
+        if (paysOutReward != null && !(g instanceof CabinetGame && ((CabinetGame) g).getPaysOutReward() == paysOutReward)) return false;
+        if (ageSet && g instanceof ActiveGame && ((ActiveGame) g).getMinimumAge() > maximumAge) return false;
+        int offPeak = g.calculatePrice(false);
+        int peak = g.calculatePrice(true);
+        return offPeak >= minOffPeak && offPeak <= maxOffPeak && peak >= minPeak && peak <= maxPeak;
+    }
+}
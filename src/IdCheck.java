@@ -0,0 +1,21 @@
+// Outcome of checking a game or customer ID with IdValidator
+// Valid game IDs carry the game type their prefix stands for; the other values say what is wrong.
+public enum IdCheck {
+    CABINET_GAME,
+    ACTIVE_GAME,
+    VIRTUAL_REALITY_GAME,
+    CUSTOMER,
+    MISSING,
+    WRONG_LENGTH,
+    BAD_CHARACTER,
+    UNKNOWN_GAME_PREFIX;
+
+    public boolean isValid() {
+        return ordinal() <= CUSTOMER.ordinal();
+    }
+
+    // Ten alphanumeric characters, whether or not the prefix names a game type
+    public boolean isWellFormedGameId() {
+        return this == CABINET_GAME || this == ACTIVE_GAME || this == VIRTUAL_REALITY_GAME || this == UNKNOWN_GAME_PREFIX;
+    }
+}
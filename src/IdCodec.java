@@ -0,0 +1,67 @@
+// IdCodec class - packs short alphanumeric IDs into a long
+// Customer IDs (6 chars) and game IDs (10 chars) are [A-Za-z0-9], so each character fits in 6 bits.
+// Codes start at 1, which keeps IDs of different lengths distinct without storing the length.
+public class IdCodec {
+
+    public static final int MAX_LENGTH = 10;
+    // Returned for anything that is not 1-10 alphanumeric characters
+    public static final long INVALID = -1;
+
+    private static final int BITS = 6;
+    private static final byte[] CODES = new byte[128];
+    private static final char[] CHARS = new char[64];
+
+    static {
+        java.util.Arrays.fill(CODES, (byte) -1);
+        int code = 1;
+        for (char c = '0'; c <= '9'; c++) code = define(c, code);
+        for (char c = 'A'; c <= 'Z'; c++) code = define(c, code);
+        for (char c = 'a'; c <= 'z'; c++) code = define(c, code);
+    }
+
+    private static int define(char c, int code) {
+        CODES[c] = (byte) code;
+        CHARS[code] = c;
+        return code + 1;
+    }
+
+    // Packs an ID, or returns INVALID
+    public static long encode(CharSequence id) {
+        if (id == null) return INVALID;
+        int length = id.length();
+        if (length == 0 || length > MAX_LENGTH) return INVALID;
+
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c >= 128 || CODES[c] < 0) return INVALID;
+            key = (key << BITS) | CODES[c];
+        }
+        return key;
+    }
+
+    // Packs the ID held in buf[from, to) without creating a String, or returns INVALID
+    public static long encode(char[] buf, int from, int to) {
+        int length = to - from;
+        if (length <= 0 || length > MAX_LENGTH) return INVALID;
+
+        long key = 0;
+        for (int i = from; i < to; i++) {
+            char c = buf[i];
+            if (c >= 128 || CODES[c] < 0) return INVALID;
+            key = (key << BITS) | CODES[c];
+        }
+        return key;
+    }
+
+    // Unpacks a key produced by encode
+    public static String decode(long key) {
+        char[] out = new char[MAX_LENGTH];
+        int pos = MAX_LENGTH;
+        while (key != 0) {
+            out[--pos] = CHARS[(int) (key & 63)];
+            key >>>= BITS;
+        }
+        return new String(out, pos, MAX_LENGTH - pos);
+    }
+}
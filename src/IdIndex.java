@@ -0,0 +1,88 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// IdIndex class - open-addressing map from packed IDs (see IdCodec) to dense int ordinals
+// Lookups never lock or allocate; writers are serialised. A key is published after its value,
+// so a reader that finds the key always sees the ordinal and whatever was stored before it.
+public class IdIndex {
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int INITIAL_CAPACITY = 16;
+
+    // keys hold (packed ID + 1) so that 0 marks an empty slot
+    private static final class Table {
+        final long[] keys;
+        final int[] values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private int size;
+
+    // Ordinal stored for the key, or -1
+    public int get(long key) {
+        if (key < 0) return -1;
+        long stored = key + 1;
+        Table t = table;
+        int i = mix(key) & t.mask;
+        while (true) {
+            long k = (long) KEYS.getAcquire(t.keys, i);
+            if (k == stored) return t.values[i];
+            if (k == 0) return -1;
+            i = (i + 1) & t.mask;
+        }
+    }
+
+    // Maps the key to an ordinal, replacing any previous mapping
+    public synchronized void put(long key, int ordinal) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Invalid packed ID: " + key);
+        }
+        if ((size + 1) * 4L > table.keys.length * 3L) {
+            table = resize(table);
+        }
+        if (insert(table, key + 1, ordinal)) size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static boolean insert(Table t, long stored, int ordinal) {
+        int i = mix(stored - 1) & t.mask;
+        while (true) {
+            long k = t.keys[i];
+            if (k == stored) {
+                t.values[i] = ordinal;
+                return false;
+            }
+            if (k == 0) {
+                t.values[i] = ordinal;
+                KEYS.setRelease(t.keys, i, stored);
+                return true;
+            }
+            i = (i + 1) & t.mask;
+        }
+    }
+
+    private static Table resize(Table old) {
+        Table t = new Table(old.keys.length * 2);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] != 0) insert(t, old.keys[i], old.values[i]);
+        }
+        return t;
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,88 @@
+// IdValidator class - checks ID shape and classifies game IDs in one scan, without regular expressions
+// Game IDs are 10 and customer IDs 6 characters of [A-Za-z0-9], looked up in a 128-entry table.
+// A well-formed game ID starting 'C' is a cabinet game, 'AV' a virtual reality game and any other
+// 'A' an active game. The error messages are kept here and thrown by the game and customer
+// constructors, so parsers can reject a line before building anything and still report it the same way.
+public class IdValidator {
+
+    public static final int GAME_ID_LENGTH = 10;
+    public static final int CUSTOMER_ID_LENGTH = 6;
+
+    private static final boolean[] ID_CHARS = new boolean[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) ID_CHARS[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) ID_CHARS[c] = true;
+        for (char c = 'a'; c <= 'z'; c++) ID_CHARS[c] = true;
+    }
+
+    public static IdCheck checkGameId(CharSequence id) {
+        if (id == null) return IdCheck.MISSING;
+        if (id.length() != GAME_ID_LENGTH) return IdCheck.WRONG_LENGTH;
+        char first = id.charAt(0);
+        char second = id.charAt(1);
+        for (int i = 0; i < GAME_ID_LENGTH; i++) {
+            char c = id.charAt(i);
+            if (c >= 128 || !ID_CHARS[c]) return IdCheck.BAD_CHARACTER;
+        }
+        return gameType(first, second);
+    }
+
+    // Same as above for the ID held in buf[from, to)
+    public static IdCheck checkGameId(char[] buf, int from, int to) {
+        if (to - from != GAME_ID_LENGTH) return IdCheck.WRONG_LENGTH;
+        for (int i = from; i < to; i++) {
+            char c = buf[i];
+            if (c >= 128 || !ID_CHARS[c]) return IdCheck.BAD_CHARACTER;
+        }
+        return gameType(buf[from], buf[from + 1]);
+    }
+
+    private static IdCheck gameType(char first, char second) {
+        if (first == 'C') return IdCheck.CABINET_GAME;
+        if (first == 'A') return second == 'V' ? IdCheck.VIRTUAL_REALITY_GAME : IdCheck.ACTIVE_GAME;
+        return IdCheck.UNKNOWN_GAME_PREFIX;
+    }
+
+    public static IdCheck checkCustomerId(CharSequence id) {
+        if (id == null) return IdCheck.MISSING;
+        if (id.length() != CUSTOMER_ID_LENGTH) return IdCheck.WRONG_LENGTH;
+        for (int i = 0; i < CUSTOMER_ID_LENGTH; i++) {
+            char c = id.charAt(i);
+            if (c >= 128 || !ID_CHARS[c]) return IdCheck.BAD_CHARACTER;
+        }
+        return IdCheck.CUSTOMER;
+    }
+
+    // Same as above for the ID held in buf[from, to)
+    public static IdCheck checkCustomerId(char[] buf, int from, int to) {
+        if (to - from != CUSTOMER_ID_LENGTH) return IdCheck.WRONG_LENGTH;
+        for (int i = from; i < to; i++) {
+            char c = buf[i];
+            if (c >= 128 || !ID_CHARS[c]) return IdCheck.BAD_CHARACTER;
+        }
+        return IdCheck.CUSTOMER;
+    }
+
+    // Why a game of the given type cannot have this ID, as the constructor would say, or null if it can
+    // ('type' is CABINET_GAME, ACTIVE_GAME or VIRTUAL_REALITY_GAME; VR games are active games too)
+    public static String gameIdProblem(String id, IdCheck check, IdCheck type) {
+        if (!check.isWellFormedGameId()) return GAME_ID + id;
+        boolean active = check == IdCheck.ACTIVE_GAME || check == IdCheck.VIRTUAL_REALITY_GAME;
+        switch (type) {
+            case CABINET_GAME:
+                return check == IdCheck.CABINET_GAME ? null : CABINET_PREFIX;
+            case ACTIVE_GAME:
+                return active ? null : ACTIVE_PREFIX;
+            default:
+                if (!active) return ACTIVE_PREFIX;
+                return check == IdCheck.VIRTUAL_REALITY_GAME ? null : VIRTUAL_REALITY_PREFIX;
+        }
+    }
+
+    static final String GAME_ID = "Invalid Game ID";
+    static final String CABINET_PREFIX = "Invalid Cabinet Game ID: must start with 'C' and be 10 alphanumeric characters";
+    static final String ACTIVE_PREFIX = "Invalid Active Game ID: must start with 'A' and be 10 alphanumeric characters";
+    static final String VIRTUAL_REALITY_PREFIX = "Invalid Virtual Reality Game ID: must start with 'AV' and be exactly 10 alphanumeric characters";
+    static final String CUSTOMER_ID = "Invalid customer ID. Must be 6 alphanumeric characters.";
+}
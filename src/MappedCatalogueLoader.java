@@ -0,0 +1,470 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// MappedCatalogueLoader class - bulk loads games.txt and customers.txt through memory-mapped files
+// Records are parsed straight from the mapped bytes and inserted into the Arcade as they are found,
+// with the same validation and error messages as GameParser and CustomerParser.
+public class MappedCatalogueLoader {
+
+    // Largest region mapped at once (a MappedByteBuffer is int-indexed)
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    private static final int BOUNDARY_SCAN_SIZE = 1 << 16;
+    // Same charset FileReader uses, so names decode exactly as with the text parsers
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private enum Kind { GAMES, CUSTOMERS }
+
+    // Loads every game in the file into the arcade, returns the number of games added
+    public static int loadGames(File file, Arcade arcade) throws IOException {
+        return load(file, arcade, Kind.GAMES, 1, DiagnosticsSink.console());
+    }
+
+    // Loads games using up to 'parallelism' threads - duplicate IDs in different chunks resolve in any order
+    public static int loadGames(File file, Arcade arcade, int parallelism) throws IOException {
+        return load(file, arcade, Kind.GAMES, parallelism, DiagnosticsSink.console());
+    }
+
+    // Same as above, sending bad lines to the given sink
+    public static int loadGames(File file, Arcade arcade, int parallelism, DiagnosticsSink diagnostics) throws IOException {
+        return load(file, arcade, Kind.GAMES, parallelism, diagnostics);
+    }
+
+    // Loads every customer in the file into the arcade, returns the number of customers added
+    public static int loadCustomers(File file, Arcade arcade) throws IOException {
+        return load(file, arcade, Kind.CUSTOMERS, 1, DiagnosticsSink.console());
+    }
+
+    // Loads customers using up to 'parallelism' threads - duplicate IDs in different chunks resolve in any order
+    public static int loadCustomers(File file, Arcade arcade, int parallelism) throws IOException {
+        return load(file, arcade, Kind.CUSTOMERS, parallelism, DiagnosticsSink.console());
+    }
+
+    // Same as above, sending bad lines to the given sink
+    public static int loadCustomers(File file, Arcade arcade, int parallelism, DiagnosticsSink diagnostics) throws IOException {
+        return load(file, arcade, Kind.CUSTOMERS, parallelism, diagnostics);
+    }
+
+    private static int load(File file, Arcade arcade, Kind kind, int parallelism, DiagnosticsSink diagnostics) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] bounds = splitAtLines(channel, parallelism);
+            int chunkCount = bounds.length - 1;
+
+            if (chunkCount == 1 || parallelism == 1) {
+                // Sequential: chunks in file order, so later duplicates replace earlier ones as before
+                int loaded = 0;
+                int firstLine = 1;
+                for (int i = 0; i < chunkCount; i++) {
+                    Chunk chunk = new Chunk(map(channel, bounds[i], bounds[i + 1]), kind, firstLine, arcade, false, diagnostics);
+                    loaded += chunk.parse();
+                    firstLine += chunk.lineCount;
+                }
+                return loaded;
+            }
+
+            return loadParallel(channel, bounds, arcade, kind, parallelism, diagnostics);
+        }
+    }
+
+    private static int loadParallel(FileChannel channel, long[] bounds, Arcade arcade, Kind kind, int parallelism, DiagnosticsSink diagnostics) throws IOException {
+        int chunkCount = bounds.length - 1;
+        MappedByteBuffer[] buffers = new MappedByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            buffers[i] = map(channel, bounds[i], bounds[i + 1]);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, chunkCount));
+        try {
+            // First pass counts lines per chunk so error messages keep their file line numbers
+            List<Future<Integer>> counts = new ArrayList<>();
+            for (MappedByteBuffer buffer : buffers) {
+                counts.add(pool.submit(() -> countLines(buffer)));
+            }
+            int[] firstLines = new int[chunkCount];
+            int line = 1;
+            for (int i = 0; i < chunkCount; i++) {
+                firstLines[i] = line;
+                line += await(counts.get(i));
+            }
+
+            List<Future<Integer>> parsed = new ArrayList<>();
+            for (int i = 0; i < chunkCount; i++) {
+                Chunk chunk = new Chunk(buffers[i], kind, firstLines[i], arcade, true, diagnostics);
+                parsed.add(pool.submit(chunk::parse));
+            }
+            int loaded = 0;
+            for (Future<Integer> f : parsed) {
+                loaded += await(f);
+            }
+            return loaded;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static int await(Future<Integer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading catalogue", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error loading catalogue: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long from, long to) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    }
+
+    // Splits the file into roughly equal chunks that each end just after a '\n'
+    private static long[] splitAtLines(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long target = Math.max(1, Math.min(MAX_CHUNK_SIZE, (size + parallelism - 1) / parallelism));
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long start = 0;
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+
+        while (size - start > target) {
+            long end = nextLineStart(channel, start + target, scan);
+            if (end >= size) break;
+            if (end - start > MAX_CHUNK_SIZE) {
+                throw new IOException("Line longer than " + MAX_CHUNK_SIZE + " bytes at offset " + start);
+            }
+            bounds.add(end);
+            start = end;
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    // Offset just after the first '\n' at or after 'from', or the file size if there is none
+    private static long nextLineStart(FileChannel channel, long from, ByteBuffer scan) throws IOException {
+        long position = from;
+        while (true) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) return channel.size();
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+    }
+
+    // Counts lines the way BufferedReader.readLine sees them (\n, \r and \r\n all end a line)
+    private static int countLines(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int lines = 0;
+        for (int i = 0; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                lines++;
+            } else if (b == '\r') {
+                lines++;
+                if (i + 1 < limit && buffer.get(i + 1) == '\n') i++;
+            }
+        }
+        if (limit > 0) {
+            byte last = buffer.get(limit - 1);
+            if (last != '\n' && last != '\r') lines++;
+        }
+        return lines;
+    }
+
+    // A mapped region of the file, parsed line by line into the arcade
+    private static class Chunk {
+        private static final int MAX_FIELDS = 6;
+
+        private final ByteBuffer buffer;
+        private final Kind kind;
+        private final int firstLine;
+        private final Arcade arcade;
+        private final boolean shared;
+        private final DiagnosticsSink diagnostics;
+
+        private final int[] fieldStart = new int[MAX_FIELDS];
+        private final int[] fieldEnd = new int[MAX_FIELDS];
+        private int fieldCount;
+        private int lineStart;
+        private int lineEnd;
+        private int lineCount;
+        private byte[] scratch = new byte[128];
+
+        Chunk(ByteBuffer buffer, Kind kind, int firstLine, Arcade arcade, boolean shared, DiagnosticsSink diagnostics) {
+            this.buffer = buffer;
+            this.kind = kind;
+            this.firstLine = firstLine;
+            this.arcade = arcade;
+            this.shared = shared;
+            this.diagnostics = diagnostics;
+        }
+
+        // Parses every line in the chunk, returns the number of records added to the arcade
+        int parse() {
+            int limit = buffer.limit();
+            int loaded = 0;
+            int pos = 0;
+
+            while (pos < limit) {
+                int end = pos;
+                while (end < limit && buffer.get(end) != '\n' && buffer.get(end) != '\r') end++;
+
+                lineStart = pos;
+                lineEnd = end;
+                int lineNumber = firstLine + lineCount;
+                lineCount++;
+                if (kind == Kind.GAMES) {
+                    if (parseGame(lineNumber)) loaded++;
+                } else {
+                    if (parseCustomer()) loaded++;
+                }
+
+                pos = end;
+                if (pos < limit && buffer.get(pos++) == '\r' && pos < limit && buffer.get(pos) == '\n') pos++;
+            }
+            return loaded;
+        }
+
+        // Mirrors GameParser.parseGames for a single line
+        private boolean parseGame(int lineNum) {
+            try {
+                splitFields((byte) '@');
+                if (fieldCount < 5) {
+                    // Skip lines that are too short to be valid
+                    diagnostics.report(Diagnostic.GAME_MALFORMED, lineNum, line());
+                    return false;
+                }
+
+                String id = trimmed(0);
+                String name = unquotedName();
+                int price = parseInt(3);
+                ArcadeGame game;
+
+                if (fieldEqualsIgnoreCase(2, "cabinet")) {
+                    boolean multiplayer = fieldEqualsIgnoreCase(4, "yes");
+                    game = new CabinetGame(id, name, price, multiplayer);
+                } else if (fieldEqualsIgnoreCase(2, "active")) {
+                    int minAge = parseInt(4);
+                    game = new ActiveGame(id, name, price, minAge);
+                } else if (fieldEqualsIgnoreCase(2, "virtualreality")) {
+                    if (fieldCount < 6) {
+                        // VR games must include equipment
+                        diagnostics.report(Diagnostic.GAME_INCOMPLETE_VR, lineNum, line());
+                        return false;
+                    }
+                    int vrAge = parseInt(4);
+                    VirtualRealityGame.Equipment equipEnum = VirtualRealityGame.Equipment.fromString(trimmed(5));
+                    game = new VirtualRealityGame(id, name, price, vrAge, equipEnum);
+                } else {
+                    // Unknown game type encountered
+                    diagnostics.report(Diagnostic.GAME_UNKNOWN_TYPE, lineNum, trimmed(2));
+                    return false;
+                }
+
+                add(game);
+                return true;
+
+            } catch (Exception e) {
+                // Catch-all for unexpected errors during parsing
+                diagnostics.report(Diagnostic.GAME_ERROR, lineNum, e.getMessage());
+                return false;
+            }
+        }
+
+        // Mirrors CustomerParser.parseCustomers for a single line
+        private boolean parseCustomer() {
+            // Skip empty lines
+            int from = lineStart;
+            while (from < lineEnd && (buffer.get(from) & 0xFF) <= ' ') from++;
+            if (from == lineEnd) return false;
+
+            try {
+                splitFields((byte) '#');
+                // Validate expected format
+                if (fieldCount < 4 || fieldCount > 5) {
+                    diagnostics.report(Diagnostic.CUSTOMER_MALFORMED, 0, line());
+                    return false;
+                }
+
+                String id = trimmed(0);
+                String name = trimmed(1);
+                int balance = parseInt(2);
+                int age = parseInt(3);
+
+                // Default to no discounts unless specified
+                Customer.DiscountType discount = Customer.DiscountType.NONE;
+
+                if (fieldCount == 5) {
+                    if (fieldEqualsIgnoreCase(4, "STAFF")) {
+                        discount = Customer.DiscountType.CMP_STAFF;
+                    } else if (fieldEqualsIgnoreCase(4, "STUDENT")) {
+                        discount = Customer.DiscountType.STUDENT;
+                    } else {
+                        // Unknown discount types are reported and skipped
+                        diagnostics.report(Diagnostic.CUSTOMER_UNKNOWN_DISCOUNT, 0, trimmed(4).toUpperCase(), line());
+                        return false;
+                    }
+                }
+
+                add(new Customer(id, name, age, discount, balance));
+                return true;
+
+            } catch (NumberFormatException e) {
+                // Handle parse errors for numeric fields
+                diagnostics.report(Diagnostic.CUSTOMER_BAD_NUMBER, 0, line());
+            } catch (InvalidCustomerException e) {
+                diagnostics.report(Diagnostic.CUSTOMER_INVALID, 0, e.getMessage(), line());
+            }
+            return false;
+        }
+
+        private void add(ArcadeGame game) {
+            if (shared) {
+                synchronized (arcade) {
+                    arcade.addArcadeGame(game);
+                }
+            } else {
+                arcade.addArcadeGame(game);
+            }
+        }
+
+        private void add(Customer customer) {
+            if (shared) {
+                synchronized (arcade) {
+                    arcade.addCustomer(customer);
+                }
+            } else {
+                arcade.addCustomer(customer);
+            }
+        }
+
+        // Records field offsets with the same semantics as String.split, trailing empty fields dropped
+        private void splitFields(byte delimiter) {
+            int count = 0;
+            int start = lineStart;
+            int lastNonEmpty = 0;
+            boolean sawDelimiter = false;
+
+            for (int i = lineStart; i <= lineEnd; i++) {
+                if (i < lineEnd && buffer.get(i) != delimiter) continue;
+                if (i < lineEnd) sawDelimiter = true;
+
+                if (count < MAX_FIELDS) {
+                    fieldStart[count] = start;
+                    fieldEnd[count] = i;
+                }
+                count++;
+                if (i > start) lastNonEmpty = count;
+                start = i + 1;
+            }
+            fieldCount = sawDelimiter ? lastNonEmpty : 1;
+        }
+
+        // Removes one quote at each end of the raw name field, then trims (as GameParser's replaceAll)
+        private String unquotedName() {
+            int from = fieldStart[1];
+            int to = fieldEnd[1];
+            if (from < to && buffer.get(from) == '"') from++;
+            if (to > from && buffer.get(to - 1) == '"') to--;
+            while (from < to && (buffer.get(from) & 0xFF) <= ' ') from++;
+            while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') to--;
+            return decode(from, to);
+        }
+
+        private int trimStart(int field) {
+            int from = fieldStart[field];
+            int to = fieldEnd[field];
+            while (from < to && (buffer.get(from) & 0xFF) <= ' ') from++;
+            return from;
+        }
+
+        private int trimEnd(int field) {
+            int from = fieldStart[field];
+            int to = fieldEnd[field];
+            while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') to--;
+            return to;
+        }
+
+        private String trimmed(int field) {
+            return decode(trimStart(field), trimEnd(field));
+        }
+
+        private String line() {
+            return decode(lineStart, lineEnd);
+        }
+
+        private String decode(int from, int to) {
+            int length = to - from;
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(from, scratch, 0, length);
+            return new String(scratch, 0, length, CHARSET);
+        }
+
+        // ASCII case-insensitive comparison of a trimmed field against a lower/upper case keyword
+        private boolean fieldEqualsIgnoreCase(int field, String expected) {
+            int from = trimStart(field);
+            int to = trimEnd(field);
+            if (to - from != expected.length()) return false;
+            for (int i = from; i < to; i++) {
+                int b = buffer.get(i);
+                char e = expected.charAt(i - from);
+                if (b == e) continue;
+                if (e >= 'a' && e <= 'z' && b == e - 32) continue;
+                if (e >= 'A' && e <= 'Z' && b == e + 32) continue;
+                return false;
+            }
+            return true;
+        }
+
+        // Parses a trimmed numeric field straight from the buffer, deferring to Integer.parseInt
+        // for anything unusual so results and NumberFormatExceptions match the text parsers
+        private int parseInt(int field) {
+            int from = trimStart(field);
+            int to = trimEnd(field);
+            int i = from;
+            boolean negative = false;
+
+            if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negative = buffer.get(i) == '-';
+                i++;
+            }
+            if (i == to || to - i > 9) {
+                return Integer.parseInt(decode(from, to));
+            }
+
+            int value = 0;
+            for (; i < to; i++) {
+                int b = buffer.get(i);
+                if (b < '0' || b > '9') {
+                    return Integer.parseInt(decode(from, to));
+                }
+                value = value * 10 + (b - '0');
+            }
+            return negative ? -value : value;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+// Money class - amounts in pence, held in longs so chain-wide totals and balances cannot wrap around
+// Sums throw ArithmeticException on overflow instead of silently changing sign. Formatting
+// ("£12.34", "-£0.50") writes straight into a caller's StringBuilder, the pence through a table of
+// two-digit pairs, without String.format or any temporary strings, so a report can reuse one builder
+// for every line.
+public final class Money {
+
+    // "00", "01" ... "99" as pairs of characters
+    private static final char[] DIGIT_PAIRS = new char[200];
+    static {
+        for (int i = 0; i < 100; i++) {
+            DIGIT_PAIRS[2 * i] = (char) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (char) ('0' + i % 10);
+        }
+    }
+
+    private Money() {
+    }
+
+    // Sum of two amounts in pence, throwing rather than wrapping around
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    // --- Formatting ---
+
+    // Appends pence as pounds, e.g. "£1234.05" or "-£0.50", and returns the builder
+    public static StringBuilder appendTo(StringBuilder sb, long pence) {
+        long pounds = pence / 100;
+        int rest = (int) (pence % 100);
+        if (pence < 0) {
+            sb.append("-£");
+            // Negating the quotient rather than pence keeps Long.MIN_VALUE in range
+            pounds = -pounds;
+            rest = -rest;
+        } else {
+            sb.append('£');
+        }
+        // StringBuilder writes a long's digits in place (with its own pair table), nothing to gain by hand
+        sb.append(pounds);
+        return sb.append('.').append(DIGIT_PAIRS[2 * rest]).append(DIGIT_PAIRS[2 * rest + 1]);
+    }
+
+    // Same as appendTo, as a new String
+    public static String format(long pence) {
+        return appendTo(new StringBuilder(24), pence).toString();
+    }
+}
@@ -0,0 +1,552 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+// NameIndex class - prefix and typo-tolerant search over names, for customers and games
+// Names are split into lower-case words, and every word is added to a path-compressed trie held in
+// parallel int arrays (edge labels point into one shared char pool). The node where a word ends
+// lists the ids (customer slots or game ordinals) whose names contain it.
+//   - prefix completion walks to the prefix and enumerates the subtree in alphabetical order
+//   - typo-tolerant search uses a trigram index over the distinct words (the trie's word nodes),
+//     padded with start and end marks: a word within d edits of the query shares all but at most
+//     3d of its trigrams, so candidate words come from the 3d + 1 rarest query trigrams and are
+//     checked by bounded edit distance, closest first
+// Distinct words are far fewer than names, which keeps fuzzy search fast with millions of names.
+// Every query word must match some word of a name. A rename drops the id from its old words (and
+// words nobody uses any more from the trigram index) before indexing the new name; results are
+// still checked against the owner's current name (read through 'names'), which covers a query
+// racing a rename. Queries stop as soon as 'limit' matches are found.
+public class NameIndex {
+
+    private static final int NO_NODE = -1;
+    private static final char START = '\u0002';
+    private static final char END = '\u0003';
+    // matchesAll mode for completions
+    private static final int PREFIX = -1;
+
+    // Current name of an id, or null if it has none
+    private final IntFunction<String> names;
+
+    // Trie nodes: edge label [labelStart, labelStart + labelLength) in 'pool', first child, next sibling
+    // (siblings sorted by first label char), and the head of the node's id list
+    private char[] pool = new char[1024];
+    private int poolUsed;
+    private int[] labelStart = new int[256];
+    private int[] labelLength = new int[256];
+    private int[] firstChild = new int[256];
+    private int[] nextSibling = new int[256];
+    private int[] idHead = new int[256];
+    private int nodes;
+
+    // Word ending at a node, copied into 'wordChars' when the node first ends a word
+    private char[] wordChars = new char[1024];
+    private int wordCharsUsed;
+    private int[] wordStart = new int[256];
+    private int[] wordLength = new int[256];
+
+    // Id lists of trie nodes, as linked cells; removed cells are chained from 'freeCell' for reuse
+    private int[] cellId = new int[256];
+    private int[] cellNext = new int[256];
+    private int cells;
+    private int freeCell = NO_NODE;
+
+    // Trigram (three chars packed into a long) -> word nodes of the words containing it
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+
+    public NameIndex(IntFunction<String> names) {
+        this.names = names;
+        nodes = 1; // root, empty label
+        firstChild[0] = NO_NODE;
+        nextSibling[0] = NO_NODE;
+        idHead[0] = NO_NODE;
+    }
+
+    // Indexes every word of an id's name (use rename when the name changes)
+    public synchronized void add(int id, String name) {
+        for (char[] word : words(name)) {
+            int node = insert(word);
+            if (idHead[node] == NO_NODE) {
+                // Only name with this word: add the word to the trigram index
+                if (wordLength[node] == 0) addWord(node, word);
+                for (long gram : trigrams(word)) {
+                    trigrams.computeIfAbsent(gram, g -> new Postings()).add(node);
+                }
+            }
+            addId(node, id);
+        }
+    }
+
+    // Removes an id from the words of its old name and indexes the new one
+    public synchronized void rename(int id, String oldName, String newName) {
+        for (char[] word : words(oldName)) {
+            int node = find(word);
+            // A word ends at a node, not part way along its edge
+            if (node == NO_NODE || wordLength[node] != word.length || idHead[node] == NO_NODE) continue;
+            removeId(node, id);
+            if (idHead[node] == NO_NODE) {
+                // Nobody else has this word: fuzzy search no longer needs to consider it
+                for (long gram : trigrams(word)) {
+                    Postings p = trigrams.get(gram);
+                    if (p != null && p.remove(node) && p.size == 0) trigrams.remove(gram);
+                }
+            }
+        }
+        add(id, newName);
+    }
+
+    // --- Queries ---
+
+    // Ids whose names have, for every query word, a word starting with it, in alphabetical order
+    // of the completed words of the longest query word
+    public synchronized int[] complete(String query, int limit) {
+        List<char[]> words = words(query);
+        if (words.isEmpty() || limit <= 0) return new int[0];
+
+        // Enumerate the completions of the longest word, the most selective, and check the rest
+        char[] longest = words.get(0);
+        for (char[] w : words) {
+            if (w.length > longest.length) longest = w;
+        }
+        int node = find(longest);
+        if (node == NO_NODE) return new int[0];
+
+        IdCollector found = new IdCollector(limit);
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0 && !found.full()) {
+            int n = stack[--top];
+            for (int c = idHead[n]; c != NO_NODE && !found.full(); c = cellNext[c]) {
+                int id = cellId[c];
+                if (found.isNew(id) && matchesAll(id, words, PREFIX)) found.add(id);
+            }
+            // Push children last-first so the smallest is visited next
+            int childCount = 0;
+            for (int ch = firstChild[n]; ch != NO_NODE; ch = nextSibling[ch]) childCount++;
+            if (top + childCount > stack.length) stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + childCount));
+            int end = top + childCount;
+            for (int ch = firstChild[n]; ch != NO_NODE; ch = nextSibling[ch]) stack[--end] = ch;
+            top += childCount;
+        }
+        return found.toArray();
+    }
+
+    // Ids whose names have, for every query word, a word within 'maxEdits' edits of it, names with
+    // the closest words first (typos are only found in query words of at least 3d + 1 letters,
+    // shorter words need an exact trigram in common)
+    public synchronized int[] search(String query, int maxEdits, int limit) {
+        List<char[]> words = words(query);
+        if (words.isEmpty() || limit <= 0 || maxEdits < 0) return new int[0];
+
+        // Candidate words come from the query word with the fewest postings to walk
+        Postings[] best = null;
+        char[] bestWord = null;
+        long bestCost = Long.MAX_VALUE;
+        for (char[] w : words) {
+            Postings[] lists = rarest(w, maxEdits);
+            long cost = 0;
+            for (Postings p : lists) cost += p == null ? 0 : p.size;
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = lists;
+                bestWord = w;
+            }
+        }
+
+        // Word nodes close enough to that query word, bucketed by distance
+        BitSet seenWords = new BitSet();
+        Postings[] byDistance = new Postings[maxEdits + 1];
+        for (Postings p : best) {
+            if (p == null) continue;
+            for (int i = 0; i < p.size; i++) {
+                int node = p.ids[i];
+                if (seenWords.get(node)) continue;
+                seenWords.set(node);
+                int distance = editDistance(wordChars, wordStart[node], wordLength[node], bestWord, maxEdits);
+                if (distance <= maxEdits) {
+                    if (byDistance[distance] == null) byDistance[distance] = new Postings();
+                    byDistance[distance].add(node);
+                }
+            }
+        }
+
+        IdCollector found = new IdCollector(limit);
+        for (Postings nodesAtDistance : byDistance) {
+            if (nodesAtDistance == null) continue;
+            for (int i = 0; i < nodesAtDistance.size && !found.full(); i++) {
+                for (int c = idHead[nodesAtDistance.ids[i]]; c != NO_NODE && !found.full(); c = cellNext[c]) {
+                    int id = cellId[c];
+                    if (found.isNew(id) && matchesAll(id, words, maxEdits)) found.add(id);
+                }
+            }
+        }
+        return found.toArray();
+    }
+
+    // Postings of the 3d + 1 rarest trigrams of a word (all of them when it has fewer)
+    private Postings[] rarest(char[] word, int maxEdits) {
+        long[] grams = trigrams(word);
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) lists[i] = trigrams.get(grams[i]);
+        Arrays.sort(lists, (a, b) -> Integer.compare(a == null ? 0 : a.size, b == null ? 0 : b.size));
+        return Arrays.copyOf(lists, Math.min(lists.length, 3 * maxEdits + 1));
+    }
+
+    // Checks every query word against the id's current name: within 'maxEdits' edits of one of its
+    // words, or a prefix of one (maxEdits == PREFIX)
+    private boolean matchesAll(int id, List<char[]> query, int maxEdits) {
+        String name = names.apply(id);
+        if (name == null) return false;
+        List<char[]> nameWords = words(name);
+        for (char[] q : query) {
+            boolean matched = false;
+            for (char[] w : nameWords) {
+                if (maxEdits < 0 ? startsWith(w, q) : withinEdits(w, q, maxEdits)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) return false;
+        }
+        return true;
+    }
+
+    private static boolean startsWith(char[] word, char[] prefix) {
+        if (prefix.length > word.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (word[i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    static boolean withinEdits(char[] a, char[] b, int max) {
+        return editDistance(a, 0, a.length, b, max) <= max;
+    }
+
+    // Levenshtein distance between a[from, from + length) and b, or max + 1 once it must exceed max
+    private static int editDistance(char[] a, int from, int length, char[] b, int max) {
+        if (Math.abs(length - b.length) > max) return max + 1;
+        int[] prev = new int[b.length + 1];
+        int[] cur = new int[b.length + 1];
+        for (int j = 0; j <= b.length; j++) prev[j] = j;
+        for (int i = 1; i <= length; i++) {
+            char ai = a[from + i - 1];
+            cur[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length; j++) {
+                int v = prev[j - 1] + (ai == b[j - 1] ? 0 : 1);
+                v = Math.min(v, Math.min(prev[j], cur[j - 1]) + 1);
+                cur[j] = v;
+                rowMin = Math.min(rowMin, v);
+            }
+            if (rowMin > max) return max + 1;
+            int[] t = prev;
+            prev = cur;
+            cur = t;
+        }
+        return Math.min(prev[b.length], max + 1);
+    }
+
+    // --- Words and trigrams ---
+
+    // Lower-case runs of letters and digits
+    static List<char[]> words(String text) {
+        List<char[]> words = new ArrayList<>(4);
+        if (text == null) return words;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                char[] w = new char[i - start];
+                for (int j = 0; j < w.length; j++) w[j] = Character.toLowerCase(text.charAt(start + j));
+                words.add(w);
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    // Trigrams of the word between a start and an end mark: one per letter
+    private static long[] trigrams(char[] word) {
+        long[] grams = new long[word.length];
+        for (int i = 0; i < word.length; i++) {
+            char a = i == 0 ? START : word[i - 1];
+            char b = word[i];
+            char c = i + 1 < word.length ? word[i + 1] : END;
+            grams[i] = (long) a << 32 | (long) b << 16 | c;
+        }
+        return grams;
+    }
+
+    // --- Trie ---
+
+    // Node where the word ends, adding nodes as needed
+    private int insert(char[] word) {
+        int node = 0;
+        int pos = 0;
+        while (pos < word.length) {
+            // Find the child whose label starts with the next char, keeping siblings sorted
+            char c = word[pos];
+            int prev = NO_NODE;
+            int child = firstChild[node];
+            while (child != NO_NODE && pool[labelStart[child]] < c) {
+                prev = child;
+                child = nextSibling[child];
+            }
+
+            if (child == NO_NODE || pool[labelStart[child]] != c) {
+                int leaf = newNode(appendLabel(word, pos), word.length - pos);
+                linkChild(node, prev, leaf, child);
+                return leaf;
+            }
+
+            int common = commonLength(child, word, pos);
+            if (common < labelLength[child]) {
+                // Split the edge: a new node takes the shared part, the old child keeps the rest
+                int mid = newNode(labelStart[child], common);
+                linkChild(node, prev, mid, nextSibling[child]);
+                labelStart[child] += common;
+                labelLength[child] -= common;
+                nextSibling[child] = NO_NODE;
+                firstChild[mid] = child;
+                child = mid;
+            }
+            node = child;
+            pos += common;
+        }
+        return node;
+    }
+
+    private void addWord(int node, char[] word) {
+        if (wordCharsUsed + word.length > wordChars.length) {
+            wordChars = Arrays.copyOf(wordChars, Math.max(wordChars.length * 2, wordCharsUsed + word.length));
+        }
+        System.arraycopy(word, 0, wordChars, wordCharsUsed, word.length);
+        wordStart[node] = wordCharsUsed;
+        wordLength[node] = word.length;
+        wordCharsUsed += word.length;
+    }
+
+    // Node reached by the whole prefix (possibly part way along its edge), or NO_NODE
+    private int find(char[] prefix) {
+        int node = 0;
+        int pos = 0;
+        while (pos < prefix.length) {
+            int child = firstChild[node];
+            while (child != NO_NODE && pool[labelStart[child]] != prefix[pos]) child = nextSibling[child];
+            if (child == NO_NODE) return NO_NODE;
+            int common = commonLength(child, prefix, pos);
+            if (pos + common == prefix.length) return child;
+            if (common < labelLength[child]) return NO_NODE;
+            node = child;
+            pos += common;
+        }
+        return node;
+    }
+
+    private int commonLength(int node, char[] word, int pos) {
+        int start = labelStart[node];
+        int max = Math.min(labelLength[node], word.length - pos);
+        int i = 0;
+        while (i < max && pool[start + i] == word[pos + i]) i++;
+        return i;
+    }
+
+    private void linkChild(int parent, int prev, int node, int next) {
+        nextSibling[node] = next;
+        if (prev == NO_NODE) firstChild[parent] = node; else nextSibling[prev] = node;
+    }
+
+    private int appendLabel(char[] word, int from) {
+        int length = word.length - from;
+        if (poolUsed + length > pool.length) pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolUsed + length));
+        System.arraycopy(word, from, pool, poolUsed, length);
+        poolUsed += length;
+        return poolUsed - length;
+    }
+
+    private int newNode(int start, int length) {
+        if (nodes == labelStart.length) {
+            int grown = nodes * 2;
+            labelStart = Arrays.copyOf(labelStart, grown);
+            labelLength = Arrays.copyOf(labelLength, grown);
+            firstChild = Arrays.copyOf(firstChild, grown);
+            nextSibling = Arrays.copyOf(nextSibling, grown);
+            idHead = Arrays.copyOf(idHead, grown);
+            wordStart = Arrays.copyOf(wordStart, grown);
+            wordLength = Arrays.copyOf(wordLength, grown);
+        }
+        int n = nodes++;
+        labelStart[n] = start;
+        labelLength[n] = length;
+        firstChild[n] = NO_NODE;
+        nextSibling[n] = NO_NODE;
+        idHead[n] = NO_NODE;
+        return n;
+    }
+
+    private void addId(int node, int id) {
+        int cell = freeCell;
+        if (cell != NO_NODE) {
+            freeCell = cellNext[cell];
+        } else {
+            if (cells == cellId.length) {
+                cellId = Arrays.copyOf(cellId, cells * 2);
+                cellNext = Arrays.copyOf(cellNext, cells * 2);
+            }
+            cell = cells++;
+        }
+        cellId[cell] = id;
+        cellNext[cell] = idHead[node];
+        idHead[node] = cell;
+    }
+
+    // Unlinks every cell of the id from the node's list (a name can repeat a word)
+    private void removeId(int node, int id) {
+        int prev = NO_NODE;
+        int c = idHead[node];
+        while (c != NO_NODE) {
+            int next = cellNext[c];
+            if (cellId[c] == id) {
+                if (prev == NO_NODE) idHead[node] = next; else cellNext[prev] = next;
+                cellNext[c] = freeCell;
+                freeCell = c;
+            } else {
+                prev = c;
+            }
+            c = next;
+        }
+    }
+
+    // Checks completions and 1-edit searches against a scan of every name, over generated names
+    // (20000 by default) with a tenth of them renamed, and prints the number of differing queries
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        Random random = new Random(9);
+        String[] current = new String[count];
+        NameIndex index = new NameIndex(id -> current[id]);
+        for (int id = 0; id < count; id++) {
+            current[id] = randomName(random);
+            index.add(id, current[id]);
+        }
+        for (int i = 0; i < count / 10; i++) {
+            int id = random.nextInt(count);
+            String name = randomName(random);
+            index.rename(id, current[id], name);
+            current[id] = name;
+        }
+
+        int queries = 0;
+        int different = 0;
+        for (int i = 0; i < 300; i++) {
+            List<char[]> nameWords = words(current[random.nextInt(count)]);
+            char[] word = nameWords.get(random.nextInt(nameWords.size()));
+            String prefix = new String(word, 0, Math.min(2 + i % 3, word.length));
+            // Typo: two letters swapped
+            char[] typo = word.clone();
+            if (typo.length > 3) {
+                char t = typo[1];
+                typo[1] = typo[2];
+                typo[2] = t;
+            }
+            String fuzzy = new String(typo);
+
+            BitSet completions = new BitSet();
+            BitSet matches = new BitSet();
+            for (int id = 0; id < count; id++) {
+                for (char[] w : words(current[id])) {
+                    if (startsWith(w, prefix.toCharArray())) completions.set(id);
+                    if (withinEdits(w, typo, 1)) matches.set(id);
+                }
+            }
+            queries += 2;
+            if (!completions.equals(toBits(index.complete(prefix, count)))) different++;
+            // Shorter words need an exact trigram in common, see search
+            if (typo.length > 3 && !matches.equals(toBits(index.search(fuzzy, 1, count)))) different++;
+        }
+        System.out.println(count + " names, " + count / 10 + " renamed: " + different + " of " + queries
+                + " queries differ from a scan of every name");
+    }
+
+    private static String randomName(Random random) {
+        String[] syllables = {"ka", "ri", "mo", "lan", "der", "son", "bel", "tra", "vin", "zo", "pe", "ther",
+                "gal", "win", "ash", "ley", "mar", "co", "nel", "ru", "sta", "fi", "quin", "bo"};
+        StringBuilder sb = new StringBuilder();
+        for (int word = 0; word < 2; word++) {
+            if (word > 0) sb.append(' ');
+            int parts = 2 + random.nextInt(2);
+            for (int p = 0; p < parts; p++) {
+                String syllable = syllables[random.nextInt(syllables.length)];
+                sb.append(p == 0 ? Character.toUpperCase(syllable.charAt(0)) + syllable.substring(1) : syllable);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static BitSet toBits(int[] ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) bits.set(id);
+        return bits;
+    }
+
+    // Growable list of ids or word nodes
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            // The same word twice in a row (a trigram repeated in one word) is stored once
+            if (size > 0 && ids[size - 1] == id) return;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        // Removes an id, keeping the order of the rest; false if it was not there
+        boolean remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Distinct ids found by a query, up to the limit
+    private static final class IdCollector {
+        final int[] ids;
+        final BitSet seen = new BitSet();
+        int size;
+
+        IdCollector(int limit) {
+            ids = new int[limit];
+        }
+
+        boolean full() {
+            return size == ids.length;
+        }
+
+        boolean isNew(int id) {
+            if (seen.get(id)) return false;
+            seen.set(id);
+            return true;
+        }
+
+        void add(int id) {
+            ids[size++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// ParallelTransactionReplayer class - replays a transaction file on several threads
+// Lines are hash-partitioned by customer ID, so every transaction for one customer is applied by the
+// same worker in file order (a NEW_CUSTOMER is always applied before that customer's later PLAYs),
+// while different customers are applied in parallel against a concurrent Arcade.
+public class ParallelTransactionReplayer {
+
+    private static final int BATCH_SIZE = 256;
+    // Batches queued per partition before the reader blocks (back-pressure)
+    private static final int QUEUE_CAPACITY = 64;
+    private static final Batch END_OF_INPUT = new Batch();
+
+    // Totals merged from all partitions once the replay finishes
+    public static class ReplayResult {
+        private long lines;
+        private long applied;
+        private long errors;
+        private long revenue;
+
+        public long getLines() {
+            return lines;
+        }
+        public long getApplied() {
+            return applied;
+        }
+        public long getErrors() {
+            return errors;
+        }
+        public long getRevenue() {
+            return revenue;
+        }
+
+        @Override
+        public String toString() {
+            return "ReplayResult{lines=" + lines + ", applied=" + applied + ", errors=" + errors + ", revenue=" + revenue + "}";
+        }
+    }
+
+    // A run of lines (with their file line numbers) handed to one partition
+    private static class Batch {
+        final String[] lines = new String[BATCH_SIZE];
+        final int[] lineNumbers = new int[BATCH_SIZE];
+        int size;
+    }
+
+    // One worker thread and its queue; totals are only read after the thread has been joined
+    private static class Partition implements Runnable {
+        final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        final Arcade arcade;
+        final DiagnosticsSink diagnostics;
+        Batch pending = new Batch();
+        long applied;
+        long errors;
+        long revenue;
+        RuntimeException failure;
+
+        Partition(Arcade arcade, DiagnosticsSink diagnostics) {
+            this.arcade = arcade;
+            this.diagnostics = diagnostics;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Batch batch = queue.take();
+                    if (batch == END_OF_INPUT) return;
+                    for (int i = 0; i < batch.size; i++) {
+                        int charged = TransactionParser.processLine(batch.lines[i], batch.lineNumbers[i], arcade, diagnostics);
+                        if (charged < 0) {
+                            errors++;
+                        } else {
+                            applied++;
+                            revenue += charged;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                failure = e;
+                // Keep draining so the reader never blocks on a dead partition
+                try {
+                    while (queue.take() != END_OF_INPUT) { }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    // Replays every line from the reader across 'partitions' worker threads
+    public static ReplayResult replay(BufferedReader reader, Arcade arcade, int partitions) throws IOException {
+        return replay(reader, arcade, partitions, DiagnosticsSink.console());
+    }
+
+    // Same as above, sending failed transactions to the given sink (called from every worker thread)
+    public static ReplayResult replay(BufferedReader reader, Arcade arcade, int partitions, DiagnosticsSink diagnostics) throws IOException {
+        if (!arcade.isConcurrent()) {
+            throw new IllegalArgumentException("Parallel replay needs an Arcade created in concurrent mode");
+        }
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Partition count must be at least 1");
+        }
+
+        Partition[] workers = new Partition[partitions];
+        Thread[] threads = new Thread[partitions];
+        for (int i = 0; i < partitions; i++) {
+            workers[i] = new Partition(arcade, diagnostics);
+            threads[i] = new Thread(workers[i], "replay-partition-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+
+        ReplayResult result = new ReplayResult();
+        boolean finished = false;
+        boolean interrupted = false;
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                Partition p = workers[partitionOf(line, partitions)];
+                Batch batch = p.pending;
+                batch.lines[batch.size] = line;
+                batch.lineNumbers[batch.size] = lineNumber;
+                if (++batch.size == BATCH_SIZE) {
+                    p.queue.put(batch);
+                    p.pending = new Batch();
+                }
+            }
+            result.lines = lineNumber;
+
+            for (Partition p : workers) {
+                if (p.pending.size > 0) p.queue.put(p.pending);
+                p.queue.put(END_OF_INPUT);
+            }
+            finished = true;
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            // A failed read or an interrupt leaves workers waiting for input that will never come
+            if (!finished) {
+                for (Thread t : threads) t.interrupt();
+            }
+            interrupted |= joinAll(threads);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during parallel replay");
+        }
+
+        // Merge per-partition totals
+        for (Partition p : workers) {
+            if (p.failure != null) throw p.failure;
+            result.applied += p.applied;
+            result.errors += p.errors;
+            result.revenue += p.revenue;
+        }
+        return result;
+    }
+
+    // Waits for every worker; an interrupt stops them instead of abandoning them, and is reported back
+    private static boolean joinAll(Thread[] threads) {
+        boolean interrupted = false;
+        for (Thread t : threads) {
+            while (true) {
+                try {
+                    t.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    for (Thread other : threads) other.interrupt();
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        return interrupted;
+    }
+
+    // Picks a partition from the trimmed second field (the customer ID for every action)
+    static int partitionOf(String line, int partitions) {
+        int first = line.indexOf(',');
+        if (first < 0) return 0;
+        int end = line.indexOf(',', first + 1);
+        if (end < 0) end = line.length();
+
+        int from = first + 1;
+        while (from < end && line.charAt(from) <= ' ') from++;
+        while (end > from && line.charAt(end - 1) <= ' ') end--;
+
+        int hash = 0;
+        for (int i = from; i < end; i++) {
+            hash = 31 * hash + line.charAt(i);
+        }
+        hash ^= (hash >>> 16);
+        return Math.floorMod(hash * 0x9E3779B9, partitions);
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// PriceTable class - every price a game can charge, worked out once when the game is registered
+// Games get a dense ordinal and their prices live in one flat int array, STRIDE ints per game:
+//   [minimum age, then (off-peak, peak) for each Customer.DiscountType in declaration order, then game type]
+// so charging a customer is a couple of array loads instead of a virtual calculatePrice call.
+public class PriceTable {
+
+    static final int STRIDE = 8;
+    private static final int MIN_AGE = 0;
+    private static final int FIRST_PRICE = 1;
+    private static final int GAME_TYPE = 7;
+    // Minimum age stored for games without an age limit
+    private static final int NO_AGE_LIMIT = Integer.MIN_VALUE;
+    private static final Customer.DiscountType[] DISCOUNTS = Customer.DiscountType.values();
+
+    // A published row is never written again: the table is replaced when it grows and when a game is
+    // re-registered, so a reader that takes every value it needs from one rows() array sees a whole row.
+    // Only rows past the published ordinals (not yet in the arcade's ID index) are filled in place, and
+    // snapshot() can share the games array for the same reason.
+    private volatile int[] rows = new int[16 * STRIDE];
+    private volatile ArcadeGame[] games = new ArcadeGame[16];
+    private int size;
+
+    // Adds a game and returns its ordinal
+    public synchronized int add(ArcadeGame g) {
+        if (size == games.length) {
+            int[] grownRows = new int[rows.length * 2];
+            System.arraycopy(rows, 0, grownRows, 0, rows.length);
+            ArcadeGame[] grownGames = new ArcadeGame[games.length * 2];
+            System.arraycopy(games, 0, grownGames, 0, games.length);
+            rows = grownRows;
+            games = grownGames;
+        }
+        int ordinal = size++;
+        write(rows, games, ordinal, g);
+        assert matches(ordinal) : "Price table disagrees with calculatePrice for " + g.getGameID();
+        return ordinal;
+    }
+
+    // Replaces the game held at an ordinal (a game re-registered with the same ID)
+    // Charges may be reading that row, so the new one is written into copies that are then published
+    public synchronized void set(int ordinal, ArcadeGame g) {
+        int[] table = rows.clone();
+        ArcadeGame[] list = games.clone();
+        write(table, list, ordinal, g);
+        games = list;
+        rows = table;
+        assert matches(ordinal) : "Price table disagrees with calculatePrice for " + g.getGameID();
+    }
+
+    private void write(int[] table, ArcadeGame[] list, int ordinal, ArcadeGame g) {
+        int base = ordinal * STRIDE;
+
+        table[base + MIN_AGE] = g instanceof ActiveGame ? ((ActiveGame) g).getMinimumAge() : NO_AGE_LIMIT;
+        for (Customer.DiscountType discount : DISCOUNTS) {
+            int slot = base + FIRST_PRICE + discount.ordinal() * 2;
+            table[slot] = Customer.applyDiscount(g.calculatePrice(false), discount);
+            table[slot + 1] = Customer.applyDiscount(g.calculatePrice(true), discount);
+        }
+        table[base + GAME_TYPE] = ArcadeSnapshot.gameType(g);
+        list[ordinal] = g;
+    }
+
+    // The current rows, for reading several values of one game consistently (see the static accessors)
+    int[] rows() {
+        return rows;
+    }
+
+    // Final price for a customer with the given discount
+    public int price(int ordinal, Customer.DiscountType discount, boolean peak) {
+        return price(rows, ordinal, discount, peak);
+    }
+
+    // Minimum age to play, Integer.MIN_VALUE when there is no limit
+    public int minimumAge(int ordinal) {
+        return minimumAge(rows, ordinal);
+    }
+
+    // Cabinet, active or virtual reality, as numbered by ArcadeSnapshot.gameType
+    public int gameType(int ordinal) {
+        return gameType(rows, ordinal);
+    }
+
+    static int price(int[] rows, int ordinal, Customer.DiscountType discount, boolean peak) {
+        return rows[ordinal * STRIDE + FIRST_PRICE + discount.ordinal() * 2 + (peak ? 1 : 0)];
+    }
+
+    static int minimumAge(int[] rows, int ordinal) {
+        return rows[ordinal * STRIDE + MIN_AGE];
+    }
+
+    static int gameType(int[] rows, int ordinal) {
+        return rows[ordinal * STRIDE + GAME_TYPE];
+    }
+
+    public ArcadeGame game(int ordinal) {
+        return games[ordinal];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // The games as of now, sharing the table's array until a game in it is replaced (ArcadeGame is immutable)
+    public synchronized List<ArcadeGame> snapshot() {
+        return Collections.unmodifiableList(Arrays.asList(games).subList(0, size));
+    }
+
+    // Checks every row against the games' own calculatePrice results
+    public synchronized boolean verify() {
+        for (int i = 0; i < size; i++) {
+            if (!matches(i)) return false;
+        }
+        return true;
+    }
+
+    private boolean matches(int ordinal) {
+        ArcadeGame g = games[ordinal];
+        for (Customer.DiscountType discount : DISCOUNTS) {
+            if (price(ordinal, discount, false) != Customer.applyDiscount(g.calculatePrice(false), discount)) return false;
+            if (price(ordinal, discount, true) != Customer.applyDiscount(g.calculatePrice(true), discount)) return false;
+        }
+        int expectedAge = g instanceof ActiveGame ? ((ActiveGame) g).getMinimumAge() : NO_AGE_LIMIT;
+        return minimumAge(ordinal) == expectedAge && gameType(ordinal) == ArcadeSnapshot.gameType(g);
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.Arrays;
+
+// QuantileSketch class - approximate quantiles in fixed memory, mergeable across arcades or threads
+// Values are counted in logarithmic buckets: bucket i holds magnitudes in (gamma^(i-1), gamma^i] with
+// gamma = (1 + a) / (1 - a), so answering with a bucket's midpoint is within a relative error 'a' of
+// the true value (e.g. 1% of a balance, give or take rounding to whole pence). Positive and negative
+// values (overdrawn students) have their own buckets and zero is counted apart. Any int fits in about
+// 1100 buckets at 1%, however many values are added, and two sketches with the same accuracy merge
+// by adding bucket counts, so a sketch per site or per thread gives the same answer as one sketch
+// over everything.
+public class QuantileSketch {
+
+    public static final double DEFAULT_ACCURACY = 0.01;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+
+    // Counts by bucket index, for magnitudes of positive and of negative values
+    private long[] positive = new long[0];
+    private long[] negative = new long[0];
+    private long zeros;
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public QuantileSketch() {
+        this(DEFAULT_ACCURACY);
+    }
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1: " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    // Accessor methods
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+    public long getCount() {
+        return count;
+    }
+
+    public void add(long value) {
+        if (value > 0) {
+            positive = increment(positive, bucket(value));
+        } else if (value < 0) {
+            negative = increment(negative, bucket(-value));
+        } else {
+            zeros++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    // Adds every count of another sketch with the same accuracy
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Only sketches with the same accuracy can be merged");
+        }
+        positive = add(positive, other.positive);
+        negative = add(negative, other.negative);
+        zeros += other.zeros;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    // Value at quantile q in [0, 1] (nearest rank, as RankStats), to within the relative accuracy; 0 if empty
+    public long quantile(double q) {
+        long rank = RankStats.rankOf(q, count);
+        if (count == 0) return 0;
+        // The smallest and largest values are known exactly
+        if (rank == 0) return min;
+        if (rank >= count - 1) return max;
+
+        long seen = 0;
+        for (int i = negative.length - 1; i >= 0; i--) {
+            seen += negative[i];
+            if (seen > rank) return -estimate(i);
+        }
+        seen += zeros;
+        if (seen > rank) return 0;
+        for (int i = 0; i < positive.length; i++) {
+            seen += positive[i];
+            if (seen > rank) return estimate(i);
+        }
+        return max;
+    }
+
+    public long[] quantiles(double... qs) {
+        long[] result = new long[qs.length];
+        for (int i = 0; i < qs.length; i++) result[i] = quantile(qs[i]);
+        return result;
+    }
+
+    // Bucket of a magnitude >= 1
+    private int bucket(long magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / logGamma);
+    }
+
+    // Midpoint of a bucket, in relative terms: at most 'relativeAccuracy' away from anything in it
+    private long estimate(int bucket) {
+        return Math.round(2 * Math.pow(gamma, bucket) / (gamma + 1));
+    }
+
+    private static long[] increment(long[] counts, int bucket) {
+        if (bucket >= counts.length) counts = Arrays.copyOf(counts, Math.max(bucket + 1, counts.length * 2));
+        counts[bucket]++;
+        return counts;
+    }
+
+    private static long[] add(long[] counts, long[] more) {
+        if (more.length > counts.length) counts = Arrays.copyOf(counts, more.length);
+        for (int i = 0; i < more.length; i++) counts[i] += more[i];
+        return counts;
+    }
+}
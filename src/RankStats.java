@@ -0,0 +1,220 @@
+import java.util.Arrays;
+import java.util.Random;
+
+// RankStats class - exact rankings over primitive long arrays (amounts in pence), without sorting or boxing
+// top() keeps the k largest values in a bounded min-heap (n log k); select() is quickselect, which
+// leaves the value of a given rank in place in linear expected time; percentiles() answers several
+// ranks with one selection each, every one confined to the part of the array above the last.
+// Percentiles use the nearest-rank definition: the p-th percentile of n values is the value of
+// rank ceil(p * n) (1-based), so it is always one of the values.
+public class RankStats {
+
+    private RankStats() {
+    }
+
+    // Indexes of the k largest values[0, n), largest first; equal values rank the higher index first
+    public static int[] top(long[] values, int n, int k) {
+        if (k < 0) throw new IllegalArgumentException("k cannot be negative");
+        int size = Math.min(k, n);
+        int[] heap = new int[size];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (count < size) {
+                heap[count] = i;
+                siftUp(heap, count++, values);
+            } else if (size > 0 && above(i, heap[0], values)) {
+                heap[0] = i;
+                siftDown(heap, size, values);
+            }
+        }
+
+        // Emptying the min-heap from the back leaves the largest value first
+        for (int end = size - 1; end > 0; end--) {
+            int smallest = heap[0];
+            heap[0] = heap[end];
+            heap[end] = smallest;
+            siftDown(heap, end, values);
+        }
+        return heap;
+    }
+
+    // True if index a ranks above index b
+    private static boolean above(int a, int b, long[] values) {
+        return values[a] > values[b] || (values[a] == values[b] && a > b);
+    }
+
+    private static void siftUp(int[] heap, int i, long[] values) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!above(heap[parent], heap[i], values)) return;
+            swap(heap, parent, i);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, long[] values) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) return;
+            if (child + 1 < size && above(heap[child], heap[child + 1], values)) child++;
+            if (!above(heap[i], heap[child], values)) return;
+            swap(heap, i, child);
+            i = child;
+        }
+    }
+
+    // Value of 0-based rank 'rank' in a[from, to), reordering that range so smaller values come before it
+    // and larger ones after
+    public static long select(long[] a, int from, int to, int rank) {
+        if (rank < from || rank >= to) throw new IllegalArgumentException("Rank " + rank + " is outside the range");
+        int lo = from;
+        int hi = to - 1;
+        while (lo < hi) {
+            // Median of three guards against sorted and reverse-sorted input
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < a[lo]) swap(a, mid, lo);
+            if (a[hi] < a[lo]) swap(a, hi, lo);
+            if (a[hi] < a[mid]) swap(a, hi, mid);
+            long pivot = a[mid];
+
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) swap(a, i++, j--);
+            }
+            if (rank <= j) hi = j;
+            else if (rank >= i) lo = i;
+            else return a[rank];
+        }
+        return a[rank];
+    }
+
+    // Nearest-rank percentiles (each in [0, 1]) of values[0, n), reordering the array; 0 for each when n is 0
+    public static long[] percentiles(long[] values, int n, double... percentiles) {
+        long[] result = new long[percentiles.length];
+        if (n == 0) {
+            checkPercentiles(percentiles);
+            return result;
+        }
+
+        // Ranks are selected smallest first, so each selection only looks above the one before
+        int[] byRank = new int[percentiles.length];
+        for (int i = 0; i < byRank.length; i++) {
+            int j = i;
+            while (j > 0 && percentiles[byRank[j - 1]] > percentiles[i]) {
+                byRank[j] = byRank[j - 1];
+                j--;
+            }
+            byRank[j] = i;
+        }
+
+        int from = 0;
+        for (int i : byRank) {
+            int rank = rankOf(percentiles[i], n);
+            result[i] = select(values, from, n, rank);
+            from = rank;
+        }
+        return result;
+    }
+
+    // 0-based nearest rank of a percentile among n values
+    static int rankOf(double percentile, int n) {
+        return (int) rankOf(percentile, (long) n);
+    }
+
+    // Same as above for counts past Integer.MAX_VALUE (e.g. a QuantileSketch merged across sites)
+    static long rankOf(double percentile, long n) {
+        if (!(percentile >= 0 && percentile <= 1)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1: " + percentile);
+        }
+        // (the slack stops 0.3 * 10 = 3.0000000000000004 rounding up to the next rank)
+        return Math.max(0, (long) Math.ceil(percentile * n - 1e-9) - 1);
+    }
+
+    private static void checkPercentiles(double[] percentiles) {
+        for (double p : percentiles) rankOf(p, 1);
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    private static void swap(long[] a, int i, int j) {
+        long t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    // Checks top, select and percentiles against a sort of 3000 random arrays (sizes, ranges and
+    // duplicates varied), then QuantileSketch: each estimate within its accuracy, sketches merged
+    // from parts equal to one over everything, and ranks still right past Integer.MAX_VALUE values
+    public static void main(String[] args) {
+        Random random = new Random(23);
+        int failures = 0;
+        for (int test = 0; test < 3000; test++) {
+            int n = random.nextInt(test % 10 == 0 ? 2000 : 50);
+            int range = test % 3 == 0 ? 5 : Integer.MAX_VALUE;
+            long[] values = new long[n];
+            for (int i = 0; i < n; i++) values[i] = test % 5 == 1 ? random.nextLong() : random.nextInt(range) - range / 2;
+            long[] sorted = values.clone();
+            Arrays.sort(sorted);
+
+            int k = random.nextInt(n + 2);
+            int[] top = top(values, n, k);
+            boolean ok = top.length == Math.min(k, n);
+            for (int i = 0; ok && i < top.length; i++) {
+                ok = values[top[i]] == sorted[n - 1 - i] && (i == 0 || values[top[i - 1]] != values[top[i]] || top[i - 1] > top[i]);
+            }
+
+            if (n > 0) {
+                int rank = random.nextInt(n);
+                ok &= select(values.clone(), 0, n, rank) == sorted[rank];
+            }
+
+            double[] ps = {random.nextDouble(), 0, 1, 0.5, random.nextDouble()};
+            long[] got = percentiles(values.clone(), n, ps);
+            for (int i = 0; i < ps.length; i++) ok &= got[i] == (n == 0 ? 0 : sorted[rankOf(ps[i], n)]);
+            if (!ok) failures++;
+        }
+        System.out.println("RankStats: " + failures + " of 3000 arrays differ from a sort");
+
+        QuantileSketch whole = new QuantileSketch();
+        QuantileSketch[] parts = {new QuantileSketch(), new QuantileSketch(), new QuantileSketch()};
+        int[] values = new int[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(5) == 0 ? -random.nextInt(5_000) : random.nextInt(1_000_000);
+            whole.add(values[i]);
+            parts[i % parts.length].add(values[i]);
+        }
+        QuantileSketch merged = new QuantileSketch();
+        for (QuantileSketch part : parts) merged.merge(part);
+        Arrays.sort(values);
+
+        int outside = 0;
+        int unequal = 0;
+        for (double q = 0; q <= 1; q += 0.01) {
+            long exact = values[rankOf(q, values.length)];
+            long estimate = whole.quantile(q);
+            if (Math.abs(estimate - exact) > Math.abs(exact) * whole.getRelativeAccuracy() + 1) outside++;
+            if (merged.quantile(q) != estimate) unequal++;
+        }
+
+        // Every count doubled 32 times: the same distribution, 2^32 times over
+        QuantileSketch huge = new QuantileSketch();
+        huge.merge(whole);
+        for (int i = 0; i < 32; i++) huge.merge(huge);
+        int misranked = 0;
+        for (int i = 0; i < 20; i++) {
+            // (between ranks, so rounding q * n cannot pick a neighbouring value in one but not the other)
+            double q = (i + 0.5) / 20;
+            if (huge.quantile(q) != whole.quantile(q)) misranked++;
+        }
+        System.out.println("QuantileSketch: " + outside + " estimates outside the accuracy, " + unequal
+                + " differ between merged and single sketches, " + misranked + " differ with " + huge.getCount() + " values");
+    }
+}
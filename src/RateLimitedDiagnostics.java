@@ -0,0 +1,149 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// RateLimitedDiagnostics class - passes at most 'limit' copies of each message per time window to another sink
+// A message is its kind plus its details ('a' and 'b', not the line number), so the same unknown game ID
+// repeated on every line is capped while each different ID is still reported. Copies over the limit are
+// only counted; when the window rolls over (or the sink is closed) one SUPPRESSED line per message says
+// how many were held back. At most MAX_MESSAGES distinct messages are tracked per window; past that,
+// new ones are limited per kind instead so memory stays bounded. Report lines are never limited.
+public class RateLimitedDiagnostics implements DiagnosticsSink {
+
+    static final int MAX_MESSAGES = 4096;
+
+    private static final class Key {
+        final Diagnostic kind;
+        final String a;
+        final String b;
+
+        Key(Diagnostic kind, String a, String b) {
+            this.kind = kind;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return kind == other.kind && Objects.equals(a, other.a) && Objects.equals(b, other.b);
+        }
+
+        @Override
+        public int hashCode() {
+            return (kind.hashCode() * 31 + Objects.hashCode(a)) * 31 + Objects.hashCode(b);
+        }
+
+        // What a SUPPRESSED line names: the kind and the details
+        String describe() {
+            StringBuilder sb = new StringBuilder(kind.name());
+            if (a != null) sb.append(' ').append(a);
+            if (b != null) sb.append(' ').append(b);
+            return sb.toString();
+        }
+    }
+
+    private static final class Count {
+        int passed;
+        long suppressed;
+    }
+
+    private final DiagnosticsSink delegate;
+    private final int limit;
+    private final long windowNanos;
+
+    // Guarded by 'this'; cleared when the window rolls over (kept in first-seen order for the summaries)
+    private long windowStart;
+    private final Map<Key, Count> messages = new LinkedHashMap<>();
+    // Messages that arrived after MAX_MESSAGES were tracked, limited per kind
+    private final Count[] overflow = new Count[Diagnostic.values().length];
+
+    public RateLimitedDiagnostics(DiagnosticsSink delegate, int limit, long windowMillis) {
+        if (limit < 0 || windowMillis <= 0) {
+            throw new IllegalArgumentException("Limit must not be negative and the window must be positive");
+        }
+        this.delegate = delegate;
+        this.limit = limit;
+        this.windowNanos = windowMillis * 1_000_000L;
+        this.windowStart = System.nanoTime();
+        for (int i = 0; i < overflow.length; i++) {
+            overflow[i] = new Count();
+        }
+    }
+
+    @Override
+    public void report(Diagnostic kind, int lineNumber, String a, String b) {
+        long now = System.nanoTime();
+        Map<String, Long> heldBack = null;
+        boolean pass;
+        synchronized (this) {
+            if (now - windowStart >= windowNanos) {
+                heldBack = rollOver();
+                windowStart = now;
+            }
+            Key key = new Key(kind, a, b);
+            Count count = messages.get(key);
+            if (count == null) {
+                if (messages.size() < MAX_MESSAGES) {
+                    count = new Count();
+                    messages.put(key, count);
+                } else {
+                    count = overflow[kind.ordinal()];
+                }
+            }
+            pass = count.passed < limit;
+            if (pass) {
+                count.passed++;
+            } else {
+                count.suppressed++;
+            }
+        }
+
+        if (heldBack != null) summarise(heldBack);
+        if (pass) delegate.report(kind, lineNumber, a, b);
+    }
+
+    @Override
+    public void print(String line) {
+        delegate.print(line);
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    // Reports what is still held back, then closes the wrapped sink
+    @Override
+    public void close() {
+        Map<String, Long> heldBack;
+        synchronized (this) {
+            heldBack = rollOver();
+        }
+        summarise(heldBack);
+        delegate.close();
+    }
+
+    // Empties the window (caller holds the lock), returning what was held back by description
+    private Map<String, Long> rollOver() {
+        Map<String, Long> heldBack = new LinkedHashMap<>();
+        for (Map.Entry<Key, Count> entry : messages.entrySet()) {
+            if (entry.getValue().suppressed > 0) heldBack.put(entry.getKey().describe(), entry.getValue().suppressed);
+        }
+        messages.clear();
+        for (Diagnostic kind : Diagnostic.values()) {
+            Count count = overflow[kind.ordinal()];
+            if (count.suppressed > 0) heldBack.merge(kind.name(), count.suppressed, Long::sum);
+            count.passed = 0;
+            count.suppressed = 0;
+        }
+        return heldBack;
+    }
+
+    private void summarise(Map<String, Long> heldBack) {
+        for (Map.Entry<String, Long> entry : heldBack.entrySet()) {
+            delegate.report(Diagnostic.SUPPRESSED, 0, entry.getKey(), Long.toString(entry.getValue()));
+        }
+    }
+}
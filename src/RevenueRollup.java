@@ -0,0 +1,345 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+// RevenueRollup class - streaming revenue and play counts, kept per time window while charges flow
+// Every charged PLAY is added to a set of columns: the total, its game type, peak or off-peak, the
+// customer's discount and the game itself (by ordinal, see Arcade.findGame). Columns hold long
+// revenue (pence) and play counts, for the arcade's lifetime and for each Window:
+//
+//   Range.SLIDING   the last span of time, ending now (to within one bucket)
+//   Range.CURRENT   the tumbling window in progress, e.g. this clock minute so far
+//   Range.PREVIOUS  the last completed tumbling window, e.g. the previous clock minute
+//
+// A window is a ring of bucket rows (60 one-second rows for MINUTE, 60 one-minute rows for HOUR) plus
+// running sums, so a bucket leaving the window is subtracted once instead of every query adding up
+// the ring: recording and querying take constant time whatever the window length.
+// Charges are recorded into one of several small buffers, picked by thread, so threads charging
+// under different customer locks don't queue for the rollup. A full buffer, and every query, moves
+// buffered charges into the columns; each lands in the bucket of its own time, so the order buffers
+// are emptied in doesn't change any total. Queries see whole charges, and every charge recorded
+// before the query started.
+public class RevenueRollup {
+
+    // Windows kept for every column: bucket length and bucket count
+    public enum Window {
+        MINUTE(1_000, 60),
+        HOUR(60_000, 60);
+
+        private final long bucketMillis;
+        private final int buckets;
+
+        Window(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+    }
+
+    // Which part of a window's history a query reads
+    public enum Range { SLIDING, CURRENT, PREVIOUS }
+
+    private static final Customer.DiscountType[] DISCOUNTS = Customer.DiscountType.values();
+    private static final int GAME_TYPES = 3;
+
+    // Column layout: total, game types, off-peak / peak, discounts, then one column per game ordinal
+    public static final int TOTAL = 0;
+    private static final int FIRST_GAME_TYPE = 1;
+    private static final int FIRST_PEAK = FIRST_GAME_TYPE + GAME_TYPES;
+    private static final int FIRST_DISCOUNT = FIRST_PEAK + 2;
+    private static final int FIRST_GAME = FIRST_DISCOUNT + DISCOUNTS.length;
+
+    // Charges a buffer holds before they are moved into the columns
+    private static final int BUFFER = 256;
+
+    private final LongSupplier clockMillis;
+    private final Buffer[] buffers;
+    private final int bufferMask;
+    private final Ring[] rings = new Ring[Window.values().length];
+    // Lifetime values, two longs per column: [revenue, plays]
+    private long[] lifetime;
+    private int columns;
+
+    public RevenueRollup() {
+        this(System::currentTimeMillis);
+    }
+
+    // Rollup reading time from the given clock (e.g. a simulated one when replaying a log)
+    public RevenueRollup(LongSupplier clockMillis) {
+        this.clockMillis = clockMillis;
+        int count = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+        this.buffers = new Buffer[count];
+        this.bufferMask = count - 1;
+        for (int i = 0; i < count; i++) buffers[i] = new Buffer();
+        this.columns = FIRST_GAME + 16;
+        this.lifetime = new long[columns * 2];
+        long now = clockMillis.getAsLong();
+        for (Window w : Window.values()) {
+            rings[w.ordinal()] = new Ring(w, columns, now);
+        }
+    }
+
+    // --- Columns ---
+
+    // Column of a game type, as numbered by ArcadeSnapshot.gameType (cabinet, active, virtual reality)
+    public static int gameTypeColumn(int gameType) {
+        return FIRST_GAME_TYPE + gameType;
+    }
+
+    public static int peakColumn(boolean peak) {
+        return FIRST_PEAK + (peak ? 1 : 0);
+    }
+
+    public static int discountColumn(Customer.DiscountType discount) {
+        return FIRST_DISCOUNT + discount.ordinal();
+    }
+
+    // Column of a game ordinal (see Arcade.findGame)
+    public static int gameColumn(int game) {
+        return FIRST_GAME + game;
+    }
+
+    // --- Recording ---
+
+    // Adds a charged PLAY (called by Arcade for every charge once the rollup is attached)
+    public void record(int game, int gameType, Customer.DiscountType discount, boolean peak, int price) {
+        Buffer buffer = buffers[bufferOf(Thread.currentThread())];
+        synchronized (buffer) {
+            int n = buffer.size;
+            buffer.times[n] = clockMillis.getAsLong();
+            buffer.games[n] = game;
+            buffer.prices[n] = price;
+            buffer.kinds[n] = (discount.ordinal() << 3) | (peak ? 4 : 0) | gameType;
+            buffer.size = n + 1;
+            if (n + 1 == BUFFER) drain(buffer);
+        }
+    }
+
+    private int bufferOf(Thread thread) {
+        long h = thread.getId() * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & bufferMask;
+    }
+
+    // Moves every buffered charge into the columns (called with no lock held)
+    private void drainAll() {
+        for (Buffer buffer : buffers) {
+            synchronized (buffer) {
+                if (buffer.size > 0) drain(buffer);
+            }
+        }
+    }
+
+    // Moves one buffer's charges into the columns (the buffer's lock is held, always taken before the rollup's)
+    private void drain(Buffer buffer) {
+        synchronized (this) {
+            for (int i = 0; i < buffer.size; i++) {
+                int kind = buffer.kinds[i];
+                add(buffer.times[i], buffer.games[i], kind & 3, DISCOUNTS[kind >>> 3], (kind & 4) != 0, buffer.prices[i]);
+            }
+        }
+        buffer.size = 0;
+    }
+
+    private void add(long time, int game, int gameType, Customer.DiscountType discount, boolean peak, int price) {
+        int gameColumn = gameColumn(game);
+        if (gameColumn >= columns) grow(gameColumn + 1);
+
+        add(lifetime, TOTAL, price);
+        add(lifetime, gameTypeColumn(gameType), price);
+        add(lifetime, peakColumn(peak), price);
+        add(lifetime, discountColumn(discount), price);
+        add(lifetime, gameColumn, price);
+        for (Ring ring : rings) {
+            ring.place(time);
+            ring.add(TOTAL, price);
+            ring.add(gameTypeColumn(gameType), price);
+            ring.add(peakColumn(peak), price);
+            ring.add(discountColumn(discount), price);
+            ring.add(gameColumn, price);
+        }
+    }
+
+    private static void add(long[] values, int column, int price) {
+        values[column * 2] += price;
+        values[column * 2 + 1]++;
+    }
+
+    private void grow(int needed) {
+        int grown = Math.max(needed, columns * 2);
+        lifetime = Arrays.copyOf(lifetime, grown * 2);
+        for (Ring ring : rings) ring.grow(grown);
+        columns = grown;
+    }
+
+    // --- Queries ---
+
+    // Revenue in pence for a column over a window range
+    public long revenue(Window window, Range range, int column) {
+        drainAll();
+        return read(window, range, column, 0);
+    }
+
+    public long plays(Window window, Range range, int column) {
+        drainAll();
+        return read(window, range, column, 1);
+    }
+
+    public long lifetimeRevenue(int column) {
+        drainAll();
+        synchronized (this) {
+            return column < columns ? lifetime[column * 2] : 0;
+        }
+    }
+
+    public long lifetimePlays(int column) {
+        drainAll();
+        synchronized (this) {
+            return column < columns ? lifetime[column * 2 + 1] : 0;
+        }
+    }
+
+    private synchronized long read(Window window, Range range, int column, int field) {
+        if (column >= columns) return 0;
+        Ring ring = rings[window.ordinal()];
+        ring.advance(clockMillis.getAsLong());
+        return ring.values(range)[column * 2 + field];
+    }
+
+    // One line per window and range: total revenue and plays, then the split by game type and peak
+    public String summary() {
+        drainAll();
+        return columnSummary();
+    }
+
+    private synchronized String columnSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (Window w : Window.values()) {
+            Ring ring = rings[w.ordinal()];
+            ring.advance(clockMillis.getAsLong());
+            for (Range r : Range.values()) {
+                long[] v = ring.values(r);
+                if (sb.length() > 0) sb.append(System.lineSeparator());
+                sb.append(String.format("%-6s %-8s %8d pence %6d plays | cabinet %d active %d VR %d | off-peak %d peak %d",
+                        w, r, v[TOTAL * 2], v[TOTAL * 2 + 1],
+                        v[gameTypeColumn(0) * 2], v[gameTypeColumn(1) * 2], v[gameTypeColumn(2) * 2],
+                        v[peakColumn(false) * 2], v[peakColumn(true) * 2]));
+            }
+        }
+        return sb.toString();
+    }
+
+    // Replays transactions.txt as if a line arrived every 20 seconds and prints the windows
+    public static void main(String[] args) throws IOException {
+        Arcade arcade = Simulation.initialiseArcade("Level Up!", new File("games.txt"), new File("customers.txt"));
+        long[] clock = {0};
+        RevenueRollup rollup = new RevenueRollup(() -> clock[0]);
+        arcade.setRevenueRollup(rollup);
+
+        CountingDiagnostics rejected = new CountingDiagnostics();
+        try (BufferedReader reader = new BufferedReader(new FileReader("transactions.txt"))) {
+            int lineNumber = 0;
+            for (String line; (line = reader.readLine()) != null; clock[0] += 20_000) {
+                TransactionParser.processLine(line, ++lineNumber, arcade, rejected);
+            }
+        }
+        System.out.println(rollup.summary());
+        System.out.println("Lifetime: " + rollup.lifetimeRevenue(TOTAL) + " pence from " + rollup.lifetimePlays(TOTAL)
+                + " plays (arcade revenue " + arcade.getFormattedRevenue() + ")");
+    }
+
+    // Charges recorded by the threads that map to it, not yet in the columns
+    private static final class Buffer {
+        final long[] times = new long[BUFFER];
+        final int[] games = new int[BUFFER];
+        final int[] prices = new int[BUFFER];
+        final int[] kinds = new int[BUFFER];   // discount << 3 | peak << 2 | game type
+        int size;
+    }
+
+    // Ring of bucket rows for one window, with its sliding and tumbling sums
+    private static final class Ring {
+        final long bucketMillis;
+        final int buckets;
+        long[][] rows;
+        long[] sliding;   // sum of every row in the ring
+        long[] current;   // tumbling window in progress
+        long[] previous;  // last completed tumbling window
+        long bucket;      // bucket number (time / bucketMillis) of the newest row
+        long[] placedRow;     // where add puts a charge, see place
+        long[] placedWindow;
+
+        Ring(Window window, int columns, long now) {
+            this.bucketMillis = window.bucketMillis;
+            this.buckets = window.buckets;
+            this.rows = new long[buckets][columns * 2];
+            this.sliding = new long[columns * 2];
+            this.current = new long[columns * 2];
+            this.previous = new long[columns * 2];
+            this.bucket = Math.floorDiv(now, bucketMillis);
+        }
+
+        // Advances to 'time' and picks where add puts a charge made then: its bucket's row if that is
+        // still in the ring, and the tumbling window it falls in, as if it had been added before any later ones
+        void place(long time) {
+            advance(time);
+            long b = Math.floorDiv(time, bucketMillis);
+            placedRow = bucket - b < buckets ? rows[(int) Math.floorMod(b, (long) buckets)] : null;
+            long behind = Math.floorDiv(bucket, (long) buckets) - Math.floorDiv(b, (long) buckets);
+            placedWindow = behind == 0 ? current : behind == 1 ? previous : null;
+        }
+
+        void add(int column, int price) {
+            if (placedRow != null) {
+                RevenueRollup.add(placedRow, column, price);
+                RevenueRollup.add(sliding, column, price);
+            }
+            if (placedWindow != null) RevenueRollup.add(placedWindow, column, price);
+        }
+
+        // Moves the newest row up to 'now', dropping rows that leave the window
+        void advance(long now) {
+            long target = Math.floorDiv(now, bucketMillis);
+            if (target <= bucket) return;
+
+            long expiring = Math.min(target - bucket, buckets);
+            for (long b = bucket + 1; b <= bucket + expiring; b++) {
+                long[] row = rows[(int) Math.floorMod(b, (long) buckets)];
+                for (int i = 0; i < row.length; i++) sliding[i] -= row[i];
+                Arrays.fill(row, 0);
+            }
+
+            long window = Math.floorDiv(bucket, (long) buckets);
+            long targetWindow = Math.floorDiv(target, (long) buckets);
+            if (targetWindow != window) {
+                if (targetWindow == window + 1) {
+                    long[] done = previous;
+                    previous = current;
+                    current = done;
+                    Arrays.fill(current, 0);
+                } else {
+                    // A whole window went by without a charge
+                    Arrays.fill(previous, 0);
+                    Arrays.fill(current, 0);
+                }
+            }
+            bucket = target;
+        }
+
+        long[] values(Range range) {
+            switch (range) {
+                case CURRENT: return current;
+                case PREVIOUS: return previous;
+                default: return sliding;
+            }
+        }
+
+        void grow(int columns) {
+            for (int i = 0; i < buckets; i++) rows[i] = Arrays.copyOf(rows[i], columns * 2);
+            sliding = Arrays.copyOf(sliding, columns * 2);
+            current = Arrays.copyOf(current, columns * 2);
+            previous = Arrays.copyOf(previous, columns * 2);
+        }
+    }
+}
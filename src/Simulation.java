@@ -9,72 +9,165 @@ public class Simulation {
         File customersFile = new File("customers.txt");
         File transactionsFile = new File("transactions.txt");
 
-        // Initialise arcade wih games and customers
-        Arcade arcade = initialiseArcade("Level Up!", gamesFile, customersFile);
-        // Simulate transactions and print summary
-        simulateFun(arcade, transactionsFile);
+        // Problems and the report are written by a background thread, in order; a full buffer makes
+        // parsing wait rather than losing messages (AsyncDiagnostics.dropping is the opt-in lossy sink)
+        try (DiagnosticsSink diagnostics = new AsyncDiagnostics()) {
+            // Initialise arcade wih games and customers
+            Arcade arcade = initialiseArcade("Level Up!", gamesFile, customersFile, diagnostics);
+            // Simulate transactions and print summary
+            simulateFun(arcade, transactionsFile, diagnostics);
+        }
     }
 
     // Loads games and customers from file and sets up arcade
     public static Arcade initialiseArcade(String arcadeName, File gamesFile, File customerFile) {
+        return initialiseArcade(arcadeName, gamesFile, customerFile, DiagnosticsSink.console());
+    }
+
+    // Same as above, sending bad lines to the given sink
+    public static Arcade initialiseArcade(String arcadeName, File gamesFile, File customerFile, DiagnosticsSink diagnostics) {
         Arcade arcade = new Arcade(arcadeName);
 
         // Load games from file
         try (BufferedReader gameReader = new BufferedReader(new FileReader(gamesFile))) {
-            List<ArcadeGame> gameList = GameParser.parseGames(gameReader);
+            List<ArcadeGame> gameList = GameParser.parseGames(gameReader, diagnostics);
             for (ArcadeGame game : gameList) {
                 arcade.addArcadeGame(game);
             }
         } catch (IOException e) {
-            System.out.println("Error reading game file: " + e.getMessage());
+            diagnostics.report(Diagnostic.FILE_ERROR, 0, "game", e.getMessage());
         }
 
         // Load customers from file
         try (BufferedReader reader = new BufferedReader(new FileReader(customerFile))) {
-            List<Customer> customers = CustomerParser.parseCustomers(reader);
+            List<Customer> customers = CustomerParser.parseCustomers(reader, diagnostics);
             for (Customer customer : customers) {
                 arcade.addCustomer(customer);
             }
         } catch (IOException e) {
-            System.out.println("Error reading customer file: " + e.getMessage());
+            diagnostics.report(Diagnostic.FILE_ERROR, 0, "customer", e.getMessage());
+        }
+
+        return arcade;
+    }
+
+    // Loads games and customers through memory-mapped files, parsing chunks on 'parallelism' threads
+    public static Arcade initialiseArcadeMapped(String arcadeName, File gamesFile, File customerFile, int parallelism) {
+        return initialiseArcadeMapped(arcadeName, gamesFile, customerFile, parallelism, DiagnosticsSink.console());
+    }
+
+    // Same as above, sending bad lines to the given sink
+    public static Arcade initialiseArcadeMapped(String arcadeName, File gamesFile, File customerFile, int parallelism, DiagnosticsSink diagnostics) {
+        Arcade arcade = new Arcade(arcadeName);
+
+        try {
+            MappedCatalogueLoader.loadGames(gamesFile, arcade, parallelism, diagnostics);
+        } catch (IOException e) {
+            diagnostics.report(Diagnostic.FILE_ERROR, 0, "game", e.getMessage());
+        }
+
+        try {
+            MappedCatalogueLoader.loadCustomers(customerFile, arcade, parallelism, diagnostics);
+        } catch (IOException e) {
+            diagnostics.report(Diagnostic.FILE_ERROR, 0, "customer", e.getMessage());
         }
 
         return arcade;
     }
 
+    // Loads games and customers from catalogues written by BinaryCatalogue
+    public static Arcade initialiseArcadeBinary(String arcadeName, File gamesCatalogue, File customerCatalogue) {
+        return initialiseArcadeBinary(arcadeName, gamesCatalogue, customerCatalogue, DiagnosticsSink.console());
+    }
+
+    // Same as above, reporting unreadable files to the given sink
+    public static Arcade initialiseArcadeBinary(String arcadeName, File gamesCatalogue, File customerCatalogue, DiagnosticsSink diagnostics) {
+        Arcade arcade = new Arcade(arcadeName);
+
+        try {
+            BinaryCatalogue.open(gamesCatalogue).loadInto(arcade);
+        } catch (IOException e) {
+            diagnostics.report(Diagnostic.FILE_ERROR, 0, "game", e.getMessage());
+        }
+
+        try {
+            BinaryCatalogue.open(customerCatalogue).loadInto(arcade);
+        } catch (IOException e) {
+            diagnostics.report(Diagnostic.FILE_ERROR, 0, "customer", e.getMessage());
+        }
+
+        return arcade;
+    }
 
     // Processes transaction from file and prints final arcade statistics
     public static void simulateFun(Arcade arcade, File transactionFile) {
+        simulateFun(arcade, transactionFile, DiagnosticsSink.console());
+    }
+
+    // Same as above, with failed transactions and the report written through the given sink
+    public static void simulateFun(Arcade arcade, File transactionFile, DiagnosticsSink diagnostics) {
 
-        System.out.println("====== Exception Errors ======\n");
+        diagnostics.print("====== Exception Errors ======\n");
 
         // Process all transactions
         try (BufferedReader transactionReader = new BufferedReader(new FileReader(transactionFile))) {
-            TransactionParser.processTransactions(transactionReader, arcade);
+            TransactionParser.processTransactions(transactionReader, arcade, diagnostics);
         } catch (IOException e) {
-            System.out.println("Error reading transactions file: " + e.getMessage());
+            diagnostics.report(Diagnostic.FILE_ERROR, 0, "transactions", e.getMessage());
         }
 
+        printReport(arcade, diagnostics);
+    }
+
+    // Replays the transaction file on 'partitions' threads (arcade must be concurrent) and prints statistics
+    public static void simulateFunParallel(Arcade arcade, File transactionFile, int partitions) {
+        simulateFunParallel(arcade, transactionFile, partitions, DiagnosticsSink.console());
+    }
+
+    // Same as above, with failed transactions and the report written through the given sink
+    public static void simulateFunParallel(Arcade arcade, File transactionFile, int partitions, DiagnosticsSink diagnostics) {
+
+        diagnostics.print("====== Exception Errors ======\n");
+
+        // Transactions for different customers are applied in parallel
+        try (BufferedReader transactionReader = new BufferedReader(new FileReader(transactionFile))) {
+            ParallelTransactionReplayer.ReplayResult result = ParallelTransactionReplayer.replay(transactionReader, arcade, partitions, diagnostics);
+            diagnostics.print("\nReplayed " + result.getLines() + " transactions on " + partitions + " threads: "
+                    + result.getApplied() + " applied, " + result.getErrors() + " failed");
+        } catch (IOException e) {
+            diagnostics.report(Diagnostic.FILE_ERROR, 0, "transactions", e.getMessage());
+        }
+
+        printReport(arcade, diagnostics);
+    }
+
+    // Prints the final arcade statistics
+    private static void printReport(Arcade arcade, DiagnosticsSink diagnostics) {
         // Generating final report
-        System.out.println("\n====== Arcade Simulation Report ======\n");
+        diagnostics.print("\n====== Arcade Simulation Report ======\n");
+
+        // Lines with amounts are built in one reused builder (see Money.appendTo)
+        StringBuilder line = new StringBuilder(64);
 
         // 1. Summary Statistics
-        System.out.println("--- Summary Statistics ---");
-        System.out.println("\nRichest customer: " + arcade.findRichestCustomer());
-        System.out.println("\nMedian game price: " + arcade.formatMoney(arcade.getMedianGamePrice()));
+        diagnostics.print("--- Summary Statistics ---");
+        diagnostics.print("\nRichest customer: " + arcade.findRichestCustomer());
+        diagnostics.print(Money.appendTo(line.append("\nMedian game price: "), arcade.getMedianGamePrice()).toString());
 
         // Game counts with labels
         int[] gameCounts = arcade.countArcadeGames();
-        System.out.println("\nGame counts:" + Arrays.toString(gameCounts));
-        System.out.println("--Cabinet Games: " + gameCounts[0]);
-        System.out.println("--Active Games: " + gameCounts[1]);
-        System.out.println("--Virtual Reality Games: " + gameCounts[2]);
+        diagnostics.print("\nGame counts:" + Arrays.toString(gameCounts));
+        diagnostics.print("--Cabinet Games: " + gameCounts[0]);
+        diagnostics.print("--Active Games: " + gameCounts[1]);
+        diagnostics.print("--Virtual Reality Games: " + gameCounts[2]);
 
-        System.out.println("\nTotal Revenue: " + arcade.getFormattedRevenue());
+        line.setLength(0);
+        diagnostics.print(Money.appendTo(line.append("\nTotal Revenue: "), arcade.getArcadeRevenue()).toString());
+        diagnostics.print("\n" + arcade.getMetrics().percentileSummary());
 
         // 2. Closing Message
-        System.out.println("\nThank you for using GamesCo Arcade System.\n");
-        Arcade.printCorporateJargon();
-        System.out.println("\n===========================================\n");
+        diagnostics.print("\nThank you for using GamesCo Arcade System.\n");
+        diagnostics.print(Arcade.CORPORATE_JARGON);
+        diagnostics.print("\n===========================================\n");
     }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.io.Reader;
+
+// StreamingTransactionParser class - allocation-light replacement for TransactionParser.processTransactions
+// Lines are scanned in place from a reusable char buffer and fields are picked out by offset,
+// and customer/game IDs are packed straight into longs (see IdCodec) and resolved to Arcade ordinals,
+// so a well-formed PLAY or ADD_FUNDS line does not create any garbage at all.
+// Each line is applied by TransactionParser.processLine, so arcade state and error output are identical.
+public class StreamingTransactionParser {
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final Arcade arcade;
+    private final DiagnosticsSink diagnostics;
+
+    private final char[] readBuffer = new char[READ_BUFFER_SIZE];
+    private int readPos;
+    private int readLimit;
+    private boolean skipLineFeed;
+
+    private final TransactionLine line = new TransactionLine();
+
+    private StreamingTransactionParser(Reader reader, Arcade arcade, DiagnosticsSink diagnostics) {
+        this.reader = reader;
+        this.arcade = arcade;
+        this.diagnostics = diagnostics;
+    }
+
+    // Processes every transaction in the stream and applies it to the arcade
+    public static void processTransactions(Reader reader, Arcade arcade) throws IOException {
+        processTransactions(reader, arcade, DiagnosticsSink.console());
+    }
+
+    // Same as above, sending failed transactions to the given sink
+    public static void processTransactions(Reader reader, Arcade arcade, DiagnosticsSink diagnostics) throws IOException {
+        new StreamingTransactionParser(reader, arcade, diagnostics).run();
+    }
+
+    private void run() throws IOException {
+        int lineNumber = 0;
+        long start = System.nanoTime();
+
+        while (readLine()) {
+            lineNumber++;
+            TransactionParser.processLine(line, lineNumber, arcade, diagnostics);
+        }
+        arcade.getMetrics().parsed(ArcadeMetrics.Parser.TRANSACTIONS, lineNumber, System.nanoTime() - start);
+    }
+
+    // Reads the next line into the line buffer, treating \n, \r and \r\n as terminators like BufferedReader
+    private boolean readLine() throws IOException {
+        line.clear();
+        boolean sawAny = false;
+
+        while (true) {
+            if (readPos == readLimit) {
+                readLimit = reader.read(readBuffer, 0, readBuffer.length);
+                readPos = 0;
+                if (readLimit <= 0) {
+                    readLimit = 0;
+                    return sawAny;
+                }
+            }
+
+            char c = readBuffer[readPos++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') continue;
+            }
+            if (c == '\n') return true;
+            if (c == '\r') {
+                skipLineFeed = true;
+                return true;
+            }
+
+            line.append(c);
+            sawAny = true;
+        }
+    }
+}
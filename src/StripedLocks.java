@@ -0,0 +1,57 @@
+// StripedLocks class - fixed pool of monitors chosen by dense ordinal (e.g. a customer slot)
+// Two ordinals only contend when they land on the same stripe, so with enough stripes
+// unrelated customers almost never wait on each other.
+public class StripedLocks {
+
+    private final Object[] locks;
+    private final int mask;
+
+    // Creates at least 'stripes' locks, rounded up to a power of two
+    public StripedLocks(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) size <<= 1;
+
+        this.locks = new Object[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // Sized for the machine: a few stripes per core keeps collisions rare
+    public static StripedLocks forAvailableProcessors() {
+        return new StripedLocks(Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    public int size() {
+        return locks.length;
+    }
+
+    // Monitor guarding a dense ordinal (consecutive ordinals fall on consecutive stripes)
+    public Object lockFor(int ordinal) {
+        return locks[stripeOf(ordinal)];
+    }
+
+    // Stripe index of a dense ordinal
+    public int stripeOf(int ordinal) {
+        return ordinal & mask;
+    }
+
+    // Runs 'action' while holding every stripe, taken in index order
+    public void runWithAll(Runnable action) {
+        runWithAll(0, action);
+    }
+
+    private void runWithAll(int stripe, Runnable action) {
+        if (stripe == locks.length) {
+            action.run();
+            return;
+        }
+        synchronized (locks[stripe]) {
+            runWithAll(stripe + 1, action);
+        }
+    }
+}
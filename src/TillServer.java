@@ -0,0 +1,319 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// TillServer class - loopback TCP server taking transaction commands from tills, one line per command
+// Commands are the PLAY / ADD_FUNDS / NEW_CUSTOMER lines TransactionParser reads, and every command gets
+// exactly one reply line, in order:
+//
+//   OK <pence>                 PLAY charged
+//   OK                         ADD_FUNDS or NEW_CUSTOMER applied
+//   REJECTED <status> <detail> PLAY refused (see TransactionStatus)
+//   ERROR <message>            malformed or unknown command, unknown customer for ADD_FUNDS...
+//   BUSY                       command not run, the server is overloaded (see below)
+//
+// Tills may pipeline: send many commands without waiting and read the replies afterwards. Replies are
+// buffered while more commands are already waiting and flushed when the connection goes quiet.
+// Each connection is served by its own virtual thread (Java 21+; older runtimes fall back to small-stack
+// platform threads), so idle tills only cost a parked thread and a socket.
+//
+// Back-pressure: at most 'maxInFlight' commands run at once across all connections. A command that
+// cannot start waits up to 'busyTimeoutMillis' and is answered BUSY after that (or waits for as long as
+// it takes if the timeout is negative, leaving TCP flow control to slow the till down). Connections
+// beyond 'maxConnections' are answered BUSY and closed.
+public class TillServer implements AutoCloseable {
+
+    // Stack size asked for when connections fall back to platform threads
+    private static final long FALLBACK_STACK_SIZE = 128 * 1024;
+
+    private final Arcade arcade;
+    private final ServerSocket serverSocket;
+    private final int maxConnections;
+    private final Semaphore inFlight;
+    private final long busyTimeoutMillis;
+
+    private final ExecutorService connectionThreads;
+    private final boolean virtualThreads;
+    private final Thread acceptor;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder busy = new LongAdder();
+    private final LongAdder refusedConnections = new LongAdder();
+
+    // Listens on 'port' of the loopback interface (0 picks a free port); the arcade must be concurrent
+    public TillServer(Arcade arcade, int port, int maxConnections, int maxInFlight, long busyTimeoutMillis) throws IOException {
+        if (!arcade.isConcurrent()) {
+            throw new IllegalArgumentException("The till server needs an Arcade created in concurrent mode");
+        }
+        if (maxConnections < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Connection and in-flight limits must be positive");
+        }
+        this.arcade = arcade;
+        this.maxConnections = maxConnections;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.busyTimeoutMillis = busyTimeoutMillis;
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+
+        ExecutorService executor = virtualThreadExecutor();
+        this.virtualThreads = executor != null;
+        this.connectionThreads = executor != null ? executor : Executors.newCachedThreadPool(new FallbackThreads());
+
+        acceptor = new Thread(this::acceptLoop, "till-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public TillServer(Arcade arcade, int port) throws IOException {
+        this(arcade, port, 50_000, 4 * Runtime.getRuntime().availableProcessors(), 100);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor(), or null before Java 21
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static final class FallbackThreads implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(null, r, "till-connection-" + count.incrementAndGet(), FALLBACK_STACK_SIZE);
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public long getCommands() {
+        return commands.sum();
+    }
+
+    // Commands answered BUSY because 'maxInFlight' were already running
+    public long getBusyReplies() {
+        return busy.sum();
+    }
+
+    // Connections turned away because 'maxConnections' were open
+    public long getRefusedConnections() {
+        return refusedConnections.sum();
+    }
+
+    // --- Connections ---
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (closed) return;
+                continue; // e.g. too many open files: keep serving the connections we have
+            }
+
+            if (openConnections.incrementAndGet() > maxConnections) {
+                openConnections.decrementAndGet();
+                refusedConnections.increment();
+                refuse(socket);
+                continue;
+            }
+            sockets.add(socket);
+            try {
+                connectionThreads.execute(() -> serve(socket));
+            } catch (RuntimeException e) {
+                // Executor shut down by close()
+                release(socket);
+            }
+        }
+    }
+
+    private static void refuse(Socket socket) {
+        try (Socket s = socket) {
+            s.getOutputStream().write("BUSY\n".getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            // the till went away first
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            TransactionLine line = new TransactionLine();
+            char[] digits = new char[11];
+
+            String text;
+            while ((text = in.readLine()) != null) {
+                line.set(text);
+                commands.increment();
+                if (acquire()) {
+                    try {
+                        execute(line, out, digits);
+                    } finally {
+                        inFlight.release();
+                    }
+                } else {
+                    busy.increment();
+                    out.write("BUSY\n");
+                }
+                // Pipelined commands already waiting: reply to them all before flushing
+                if (!in.ready()) out.flush();
+            }
+        } catch (SocketException e) {
+            // reset by the till, or closed by close()
+        } catch (IOException e) {
+            // broken connection, nothing to reply to
+        } finally {
+            release(socket);
+        }
+    }
+
+    private boolean acquire() {
+        if (busyTimeoutMillis < 0) {
+            inFlight.acquireUninterruptibly();
+            return true;
+        }
+        if (inFlight.tryAcquire()) return true;
+        try {
+            return inFlight.tryAcquire(busyTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void release(Socket socket) {
+        if (sockets.remove(socket)) {
+            openConnections.decrementAndGet();
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+
+    // --- Commands ---
+
+    // Runs one command and writes its reply line, applied as TransactionParser applies it
+    private void execute(TransactionLine line, Writer out, char[] digits) throws IOException {
+        try {
+            TransactionAction action = line.command();
+            if (action == null) {
+                error(out, "Unknown transaction type: " + line.unknownAction());
+                return;
+            }
+
+            int result = TransactionParser.apply(line, action, arcade);
+            if (result < 0) {
+                TransactionStatus status = TransactionStatus.of(result);
+                out.write("REJECTED ");
+                out.write(status.name());
+                out.write(' ');
+                out.write(status.detail(line.field(1), line.field(2)));
+                out.write('\n');
+                return;
+            }
+            if (action == TransactionAction.PLAY) {
+                out.write("OK ");
+                writeInt(out, result, digits);
+                out.write('\n');
+                return;
+            }
+            out.write("OK\n");
+        } catch (Exception e) {
+            error(out, e.getMessage());
+        }
+    }
+
+    private static void error(Writer out, String message) throws IOException {
+        out.write("ERROR ");
+        // Keep the reply on one line whatever the message holds
+        out.write(String.valueOf(message).replace('\n', ' ').replace('\r', ' '));
+        out.write('\n');
+    }
+
+    // Writes a non-negative int without building a String
+    private static void writeInt(Writer out, int value, char[] digits) throws IOException {
+        int pos = digits.length;
+        do {
+            digits[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        out.write(digits, pos, digits.length - pos);
+    }
+
+    // Stops accepting tills and closes every open connection
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            release(socket);
+        }
+        connectionThreads.shutdownNow();
+        try {
+            acceptor.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Serves the sample arcade on the given port (default 7070) until the process is stopped
+    // A second argument dumps the arcade metrics every that many seconds (they are always on JMX)
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        int dumpSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        Arcade arcade = new Arcade("Level Up!", true);
+        MappedCatalogueLoader.loadGames(new File("games.txt"), arcade);
+        MappedCatalogueLoader.loadCustomers(new File("customers.txt"), arcade);
+
+        TillServer server = new TillServer(arcade, port);
+        ArcadeMetrics.global().registerMBean();
+        if (dumpSeconds > 0) ArcadeMetrics.global().startDump(dumpSeconds * 1000L, System.out);
+        System.out.println("Till server for " + arcade.getArcadeName() + " on " + InetAddress.getLoopbackAddress().getHostAddress()
+                + ":" + server.getPort() + (server.usesVirtualThreads() ? " (virtual threads)" : " (platform threads)"));
+        while (true) {
+            Thread.sleep(10_000);
+            System.out.println(server.getOpenConnections() + " tills connected, " + server.getCommands() + " commands, "
+                    + server.getBusyReplies() + " busy, revenue " + arcade.getFormattedRevenue());
+        }
+    }
+}
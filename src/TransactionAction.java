@@ -0,0 +1,46 @@
+// Actions that can appear at the start of a transaction line
+public enum TransactionAction {
+    PLAY("PLAY", 4),
+    ADD_FUNDS("ADD_FUNDS", 3),
+    NEW_CUSTOMER("NEW_CUSTOMER", 6);
+
+    private static final TransactionAction[] VALUES = values();
+
+    private final char[] verb;
+    private final int fields;
+
+    TransactionAction(String verb, int fields) {
+        this.verb = verb.toCharArray();
+        this.fields = fields;
+    }
+
+    // Number of comma-separated fields of a well-formed line, the verb included (see TransactionLine.command)
+    public int fields() {
+        return fields;
+    }
+
+    // Matches the verb held in buf[from, to) ignoring case, without allocating - returns null if unknown
+    public static TransactionAction match(char[] buf, int from, int to) {
+        for (TransactionAction action : VALUES) {
+            if (action.matches(buf, from, to)) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(char[] buf, int from, int to) {
+        if (to - from != verb.length) return false;
+
+        for (int i = 0; i < verb.length; i++) {
+            char c = buf[from + i];
+            char expected = verb[i];
+            if (c == expected) continue;
+            // ASCII lower case, then anything else String.toUpperCase would fold onto the verb
+            if (c >= 'a' && c <= 'z' && c - 32 == expected) continue;
+            if (c >= 0x80 && Character.toUpperCase(c) == expected) continue;
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.Arrays;
+
+// TransactionBatch class - a reusable burst of PLAY and ADD_FUNDS transactions for Arcade.processBatch
+// Items are held by packed ID (see IdCodec) in parallel arrays, so filling and applying a batch allocates
+// nothing. Once applied, result(i) holds what applying item i on its own would have given:
+//   PLAY       pence charged, or a TransactionStatus code, as tryChargeCustomer returns
+//   ADD_FUNDS  0, or TransactionStatus.UNKNOWN_CUSTOMER's code if the customer does not exist
+// A batch is filled and applied by one thread at a time.
+public class TransactionBatch {
+
+    private final TransactionAction[] actions;
+    final long[] customerKeys;
+    final long[] gameKeys;
+    final boolean[] peak;
+    final int[] amounts;
+    final int[] results;
+    private int size;
+
+    // Grouping by customer: item indexes customer by customer (items keep their order within a customer),
+    // where each group ends in 'order', and an open-addressing table from customer key to group
+    final int[] order;
+    final int[] groupEnds;
+    private final int[] groupOf;
+    private final int[] groupTable;
+    private final int tableMask;
+
+    public TransactionBatch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Batch capacity must be at least 1");
+        }
+        actions = new TransactionAction[capacity];
+        customerKeys = new long[capacity];
+        gameKeys = new long[capacity];
+        peak = new boolean[capacity];
+        amounts = new int[capacity];
+        results = new int[capacity];
+        order = new int[capacity];
+        groupEnds = new int[capacity];
+        groupOf = new int[capacity];
+        groupTable = new int[Integer.highestOneBit(capacity) * 4];
+        tableMask = groupTable.length - 1;
+    }
+
+    // --- Filling ---
+
+    public void addPlay(String customerID, String gameID, boolean peak) {
+        addPlay(IdCodec.encode(customerID), IdCodec.encode(gameID), peak);
+    }
+
+    public void addPlay(long customerKey, long gameKey, boolean peak) {
+        int i = claim(TransactionAction.PLAY, customerKey);
+        this.gameKeys[i] = gameKey;
+        this.peak[i] = peak;
+    }
+
+    public void addFunds(String customerID, int amount) {
+        addFunds(IdCodec.encode(customerID), amount);
+    }
+
+    public void addFunds(long customerKey, int amount) {
+        int i = claim(TransactionAction.ADD_FUNDS, customerKey);
+        this.amounts[i] = amount;
+    }
+
+    private int claim(TransactionAction action, long customerKey) {
+        if (size == actions.length) {
+            throw new IllegalStateException("Transaction batch is full");
+        }
+        actions[size] = action;
+        customerKeys[size] = customerKey;
+        return size++;
+    }
+
+    // Empties the batch for reuse
+    public void clear() {
+        size = 0;
+    }
+
+    // Accessor methods
+    public int size() {
+        return size;
+    }
+    public int capacity() {
+        return actions.length;
+    }
+    public boolean isFull() {
+        return size == actions.length;
+    }
+    public TransactionAction action(int i) {
+        return actions[i];
+    }
+
+    // Result of item i once the batch has been applied (see above)
+    public int result(int i) {
+        return results[i];
+    }
+
+    // --- Grouping (used by Arcade.processBatch) ---
+
+    // Fills 'order' and 'groupEnds' with the items grouped by customer, groups in order of each customer's
+    // first item, and returns the number of groups - linear in the batch size, however the items interleave
+    int groupByCustomer() {
+        Arrays.fill(groupTable, -1);
+        int groups = 0;
+        for (int i = 0; i < size; i++) {
+            long key = customerKeys[i];
+            int t = mix(key) & tableMask;
+            while (groupTable[t] >= 0 && customerKeys[order[groupTable[t]]] != key) {
+                t = (t + 1) & tableMask;
+            }
+            if (groupTable[t] < 0) {
+                groupTable[t] = groups;
+                order[groups] = i;          // first item of the group, for comparing keys above
+                groupEnds[groups] = 0;
+                groups++;
+            }
+            groupOf[i] = groupTable[t];
+            groupEnds[groupOf[i]]++;
+        }
+
+        // Counts become end positions, then each item is placed just before its group's end
+        for (int g = 1; g < groups; g++) groupEnds[g] += groupEnds[g - 1];
+        for (int i = size - 1; i >= 0; i--) {
+            order[--groupEnds[groupOf[i]]] = i;
+        }
+        for (int g = 0; g < groups; g++) {
+            groupEnds[g] = g + 1 < groups ? groupEnds[g + 1] : size;
+        }
+        return groups;
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
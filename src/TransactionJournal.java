@@ -0,0 +1,526 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+// TransactionJournal class - append-only binary write-ahead log of every change applied to an arcade
+// Each change is one or more fixed-width 32-byte records with a sequence number (its position in the
+// log) and a CRC32C, so a torn write at the end of the log is detected and cut off on recovery:
+//
+//   int crc | byte type | byte flags | short nameRecords | int value | int extra | long a | long b
+//
+// A CUSTOMER record keeps the age in 'value' and the balance, which is a long, in 'b'.
+// Names (new customers and games) follow as NAME records of up to 26 bytes each.
+// Appends go into an in-memory buffer; a committer thread writes and fsyncs the buffer every few
+// milliseconds (group commit), so many transactions share one fsync. sync() forces a commit now.
+// The log is split into segment files named by their first sequence number; a new segment is
+// started by roll(), after which older segments can be deleted once a snapshot covers them.
+public class TransactionJournal implements TransactionListener, AutoCloseable {
+
+    static final int RECORD_SIZE = 32;
+    private static final int HEADER_SIZE = 32;
+    private static final int SEGMENT_MAGIC = 0x414a4e4c; // "AJNL"
+    private static final int VERSION = 1;
+    private static final int NAME_BYTES = RECORD_SIZE - 6;
+
+    private static final byte GAME = 1;
+    private static final byte CUSTOMER = 2;
+    private static final byte PLAY = 3;
+    private static final byte FUNDS = 4;
+    private static final byte NAME = 5;
+
+    private static final int DEFAULT_BUFFER_RECORDS = 1 << 15;
+    private static final long DEFAULT_COMMIT_MILLIS = 5;
+    private static final long MAX_SEGMENT_BYTES = 256L << 20;
+    // Replay read window; holds the largest record group (a record and Short.MAX_VALUE NAME records)
+    private static final int REPLAY_WINDOW = 4 << 20;
+
+    private final File directory;
+    private final long commitNanos;
+    private final CRC32C crc = new CRC32C();
+    private final byte[] sequenceBytes = new byte[8];
+
+    // Guarded by 'this': the buffer being appended to and the sequence of the next record
+    private ByteBuffer active;
+    private ByteBuffer spare;
+    private long nextSequence;
+    private long durableSequence;
+    private boolean closed;
+    private IOException failure;
+
+    // Guarded by ioLock: the open segment
+    private final Object ioLock = new Object();
+    private FileChannel channel;
+    private long segmentBytes;
+
+    private final Thread committer;
+
+    // Opens a new segment in 'directory' whose first record will be 'nextSequence'
+    public TransactionJournal(File directory, long nextSequence) throws IOException {
+        this(directory, nextSequence, DEFAULT_BUFFER_RECORDS, DEFAULT_COMMIT_MILLIS);
+    }
+
+    public TransactionJournal(File directory, long nextSequence, int bufferRecords, long commitMillis) throws IOException {
+        if (nextSequence < 1) {
+            throw new IllegalArgumentException("Sequence numbers start at 1");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        this.directory = directory;
+        this.commitNanos = commitMillis * 1_000_000L;
+        this.nextSequence = nextSequence;
+        this.durableSequence = nextSequence - 1;
+        this.active = ByteBuffer.allocateDirect(bufferRecords * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.spare = ByteBuffer.allocateDirect(bufferRecords * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        openSegment(nextSequence);
+
+        committer = new Thread(this::commitLoop, "journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    // Sequence number of the last record appended (0 if none yet)
+    public synchronized long lastSequence() {
+        return nextSequence - 1;
+    }
+
+    // Sequence number of the last record known to be on disk
+    public synchronized long durableSequence() {
+        return durableSequence;
+    }
+
+    // --- TransactionListener: called by Arcade under its locks ---
+
+    @Override
+    public void gameAdded(long gameKey, ArcadeGame game) {
+        byte[] name = game.getGameName().getBytes(StandardCharsets.UTF_8);
+        int minimumAge = game instanceof ActiveGame ? ((ActiveGame) game).getMinimumAge() : 0;
+        append(GAME, ArcadeSnapshot.gameType(game), game.getPrice(), minimumAge, gameKey, ArcadeSnapshot.gameFlags(game), name);
+    }
+
+    @Override
+    public void customerAdded(long customerKey, Customer customer) {
+        byte[] name = customer.getCustomerName().getBytes(StandardCharsets.UTF_8);
+        append(CUSTOMER, (byte) customer.discountType().ordinal(), customer.getAge(), 0, customerKey, customer.getBalance(), name);
+    }
+
+    @Override
+    public void charged(long customerKey, long gameKey, boolean peak, int price) {
+        append(PLAY, (byte) (peak ? 1 : 0), price, 0, customerKey, gameKey, null);
+    }
+
+    @Override
+    public void fundsAdded(long customerKey, int amount) {
+        append(FUNDS, (byte) 0, amount, 0, customerKey, 0, null);
+    }
+
+    private synchronized void append(byte type, byte flags, int value, int extra, long a, long b, byte[] name) {
+        int nameRecords = name == null ? 0 : (name.length + NAME_BYTES - 1) / NAME_BYTES;
+        int bytes = (1 + nameRecords) * RECORD_SIZE;
+        if (bytes > active.capacity()) {
+            throw new IllegalArgumentException("Name too long for the journal buffer");
+        }
+        while (active.remaining() < bytes) {
+            // Buffer full: wait for the committer to take it
+            checkOpen();
+            notifyAll();
+            waitQuietly();
+        }
+        checkOpen();
+
+        int start = active.position();
+        active.putInt(0).put(type).put(flags).putShort((short) nameRecords)
+                .putInt(value).putInt(extra).putLong(a).putLong(b);
+        seal(start, nextSequence++);
+
+        for (int i = 0; i < nameRecords; i++) {
+            int from = i * NAME_BYTES;
+            int length = Math.min(NAME_BYTES, name.length - from);
+            start = active.position();
+            active.putInt(0).put(NAME).put((byte) length).put(name, from, length);
+            for (int pad = length; pad < NAME_BYTES; pad++) active.put((byte) 0);
+            seal(start, nextSequence++);
+        }
+
+        if (active.position() >= active.capacity() / 2) {
+            notifyAll();
+        }
+    }
+
+    // Writes the CRC of the record at 'start' (covering its sequence number and bytes 4-31)
+    private void seal(int start, long sequence) {
+        crc.reset();
+        updateSequence(crc, sequenceBytes, sequence);
+        ByteBuffer body = active.duplicate();
+        body.position(start + 4).limit(start + RECORD_SIZE);
+        crc.update(body);
+        active.putInt(start, (int) crc.getValue());
+    }
+
+    // --- Committing ---
+
+    // Writes and fsyncs everything appended so far, then returns
+    public void sync() throws IOException {
+        synchronized (ioLock) {
+            writePending();
+            if (segmentBytes >= MAX_SEGMENT_BYTES) startSegment();
+        }
+    }
+
+    // Waits until the record with the given sequence number is on disk
+    public void awaitDurable(long sequence) throws IOException {
+        synchronized (this) {
+            while (durableSequence < sequence) {
+                if (failure != null) throw failure;
+                if (closed) throw new IOException("Journal closed before record " + sequence + " was written");
+                notifyAll();
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the journal", e);
+                }
+            }
+        }
+    }
+
+    // Starts a new segment at the next sequence number (everything before it is written first)
+    public void roll() throws IOException {
+        synchronized (ioLock) {
+            writePending();
+            startSegment();
+        }
+    }
+
+    // Swaps the buffers and writes out the one that was being appended to (caller holds ioLock)
+    private void writePending() throws IOException {
+        ByteBuffer batch;
+        long upTo;
+        synchronized (this) {
+            if (failure != null) throw failure;
+            batch = active;
+            active = spare;
+            spare = batch;
+            upTo = nextSequence - 1;
+            // Appenders waiting for space can carry on
+            notifyAll();
+        }
+
+        batch.flip();
+        try {
+            if (batch.hasRemaining()) {
+                segmentBytes += batch.remaining();
+                while (batch.hasRemaining()) channel.write(batch);
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+            throw e;
+        } finally {
+            batch.clear();
+        }
+
+        synchronized (this) {
+            durableSequence = upTo;
+            notifyAll();
+        }
+    }
+
+    // Closes the current segment and opens the next (caller holds ioLock)
+    private void startSegment() throws IOException {
+        long start;
+        while (true) {
+            synchronized (this) {
+                // Records appended from here on are written by a later commit, into the new segment
+                if (active.position() == 0) {
+                    start = nextSequence;
+                    break;
+                }
+            }
+            writePending();
+        }
+        channel.close();
+        openSegment(start);
+    }
+
+    private void commitLoop() {
+        while (true) {
+            synchronized (this) {
+                long deadline = System.nanoTime() + commitNanos;
+                while (!closed && active.position() < active.capacity() / 2) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    try {
+                        wait(Math.max(1, left / 1_000_000L));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) return;
+                if (active.position() == 0) continue;
+            }
+            try {
+                sync();
+            } catch (IOException e) {
+                return; // kept in 'failure', appenders see it
+            }
+        }
+    }
+
+    // Writes what is left and closes the segment
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            try {
+                writePending();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private void openSegment(long start) throws IOException {
+        File file = segmentFile(directory, start);
+        // A segment left with no records (e.g. by a crash right after a roll) is started again
+        if (file.exists() && file.length() <= HEADER_SIZE && !file.delete()) {
+            throw new IOException("Cannot replace empty journal segment " + file);
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(SEGMENT_MAGIC).putInt(VERSION).putLong(start);
+        header.position(HEADER_SIZE).flip();
+        while (header.hasRemaining()) channel.write(header);
+        channel.force(true);
+        segmentBytes = HEADER_SIZE;
+    }
+
+    private void checkOpen() {
+        if (closed) throw new IllegalStateException("Journal is closed");
+        if (failure != null) throw new IllegalStateException("Journal write failed: " + failure.getMessage(), failure);
+    }
+
+    private void waitQuietly() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while appending to the journal", e);
+        }
+    }
+
+    // --- Segments and replay ---
+
+    static File segmentFile(File directory, long start) {
+        return new File(directory, String.format("journal-%020d.log", start));
+    }
+
+    // First sequence number of every segment in the directory, in order
+    static long[] segmentStarts(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("journal-") && name.endsWith(".log"));
+        if (files == null) return new long[0];
+        List<Long> starts = new ArrayList<>();
+        for (File f : files) {
+            String digits = f.getName().substring("journal-".length(), f.getName().length() - ".log".length());
+            try {
+                starts.add(Long.parseLong(digits));
+            } catch (NumberFormatException e) {
+                // not one of ours
+            }
+        }
+        long[] result = new long[starts.size()];
+        for (int i = 0; i < result.length; i++) result[i] = starts.get(i);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // Deletes segments whose records all come before 'sequence' (the open segment is never deleted)
+    static void deleteSegmentsBefore(File directory, long sequence) {
+        long[] starts = segmentStarts(directory);
+        for (int i = 0; i + 1 < starts.length; i++) {
+            if (starts[i + 1] <= sequence) {
+                segmentFile(directory, starts[i]).delete();
+            }
+        }
+    }
+
+    // Applies every record after 'afterSequence' to the arcade and returns the last sequence in the log.
+    // A damaged or incomplete record in the newest segment ends the log: it is the tail a crash left, and
+    // it and anything after it are cut off. Damage in an earlier segment cannot come from a crash, so
+    // replay stops with an IOException and leaves every file as it was.
+    public static long replay(File directory, long afterSequence, Arcade arcade) throws IOException {
+        long[] starts = segmentStarts(directory);
+        long expected = -1;
+        long last = afterSequence;
+
+        for (int s = 0; s < starts.length; s++) {
+            if (s + 1 < starts.length && starts[s + 1] <= afterSequence + 1) continue; // wholly covered
+            if (expected == -1 && starts[s] > afterSequence + 1) {
+                throw new IOException("Journal records " + (afterSequence + 1) + " to " + (starts[s] - 1) + " are missing");
+            }
+            if (expected != -1 && starts[s] != expected) {
+                // The previous segment ends early (e.g. crashed while it was being created)
+                throw new IOException("Journal segment " + starts[s] + " does not follow sequence " + (expected - 1));
+            }
+
+            boolean newest = s + 1 == starts.length;
+            long end = replaySegment(segmentFile(directory, starts[s]), starts[s], afterSequence, arcade, newest);
+            expected = end;
+            last = Math.max(last, end - 1);
+        }
+        return last;
+    }
+
+    // Replays one segment, returns the sequence after its last good record. A damaged tail is only cut
+    // off in the newest segment (see replay). The segment is read through a window with plain channel
+    // reads rather than mapped, so nothing maps the file when it is truncated.
+    private static long replaySegment(File file, long start, long afterSequence, Arcade arcade, boolean newest) throws IOException {
+        long size;
+        long offset = HEADER_SIZE;
+        long sequence = start;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            size = channel.size();
+            if (size < HEADER_SIZE) {
+                // Crashed while the segment was being created: it holds no records
+                return start;
+            }
+            ByteBuffer in = ByteBuffer.allocate((int) Math.min(REPLAY_WINDOW, size)).order(ByteOrder.LITTLE_ENDIAN);
+            long windowStart = 0;
+            fill(channel, in, windowStart, size);
+            if (in.getInt(0) != SEGMENT_MAGIC || in.getInt(4) != VERSION || in.getLong(8) != start) {
+                throw new IOException("Not a journal segment: " + file);
+            }
+
+            CRC32C check = new CRC32C();
+            byte[] scratch = new byte[8];
+            Customer.DiscountType[] discounts = Customer.DiscountType.values();
+            while (size - offset >= RECORD_SIZE) {
+                if (offset + RECORD_SIZE > windowStart + in.limit()) fill(channel, in, windowStart = offset, size);
+                int nameRecords = in.getShort((int) (offset - windowStart) + 6);
+                int groupBytes = (1 + nameRecords) * RECORD_SIZE;
+                if (nameRecords < 0 || groupBytes > size - offset) break;
+                if (offset + groupBytes > windowStart + in.limit()) fill(channel, in, windowStart = offset, size);
+                int pos = (int) (offset - windowStart);
+
+                boolean valid = true;
+                for (int r = 0; r <= nameRecords && valid; r++) {
+                    valid = intact(in, check, scratch, pos + r * RECORD_SIZE, sequence + r);
+                }
+                if (!valid) break;
+
+                if (sequence > afterSequence) {
+                    apply(in, pos, nameRecords, sequence, arcade, discounts);
+                }
+                offset += groupBytes;
+                sequence += 1 + nameRecords;
+            }
+        }
+
+        if (offset < size) {
+            if (!newest) {
+                throw new IOException("Journal segment " + file.getName() + " is damaged at record " + sequence
+                        + " but is not the newest segment; it has been left as it is");
+            }
+            // Torn or damaged tail from a crash: keep only the complete records
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(offset);
+                channel.force(true);
+            }
+        }
+        return sequence;
+    }
+
+    // Reads the segment from 'from' into the window, as far as the window or the file goes
+    private static void fill(FileChannel channel, ByteBuffer in, long from, long size) throws IOException {
+        in.clear();
+        in.limit((int) Math.min(in.capacity(), size - from));
+        while (in.hasRemaining()) {
+            if (channel.read(in, from + in.position()) < 0) throw new IOException("Journal segment shrank while being read");
+        }
+        in.flip();
+    }
+
+    private static boolean intact(ByteBuffer in, CRC32C check, byte[] scratch, int pos, long sequence) {
+        check.reset();
+        updateSequence(check, scratch, sequence);
+        ByteBuffer body = in.duplicate();
+        body.position(pos + 4).limit(pos + RECORD_SIZE);
+        check.update(body);
+        return in.getInt(pos) == (int) check.getValue();
+    }
+
+    private static void apply(ByteBuffer in, int pos, int nameRecords, long sequence, Arcade arcade,
+                              Customer.DiscountType[] discounts) throws IOException {
+        byte type = in.get(pos + 4);
+        byte flags = in.get(pos + 5);
+        int value = in.getInt(pos + 8);
+        int extra = in.getInt(pos + 12);
+        long a = in.getLong(pos + 16);
+        long b = in.getLong(pos + 24);
+
+        switch (type) {
+            case GAME:
+                arcade.addArcadeGame(ArcadeSnapshot.buildGame(IdCodec.decode(a), name(in, pos, nameRecords), flags, (byte) b, value, extra));
+                break;
+            case CUSTOMER:
+                arcade.addCustomer(Customer.restore(IdCodec.decode(a), name(in, pos, nameRecords), value, discounts[flags], b));
+                break;
+            case PLAY:
+                // The amount journaled is what was taken, even if the game has been re-priced since
+                int player = arcade.findCustomer(a);
+                int game = arcade.findGame(b);
+                if (player < 0 || game < 0) {
+                    throw new IOException("Journal record " + sequence + " charges unknown " + (player < 0 ? "customer " + IdCodec.decode(a) : "game " + IdCodec.decode(b)));
+                }
+                arcade.replayCharge(player, game, flags != 0, value);
+                break;
+            case FUNDS:
+                int customer = arcade.findCustomer(a);
+                if (customer < 0) {
+                    throw new IOException("Journal record " + sequence + " adds funds to unknown customer " + IdCodec.decode(a));
+                }
+                arcade.addFunds(customer, value);
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type + " at " + sequence);
+        }
+    }
+
+    private static String name(ByteBuffer in, int pos, int nameRecords) {
+        byte[] bytes = new byte[nameRecords * NAME_BYTES];
+        int length = 0;
+        for (int r = 1; r <= nameRecords; r++) {
+            int record = pos + r * RECORD_SIZE;
+            int n = in.get(record + 5);
+            for (int i = 0; i < n; i++) bytes[length++] = in.get(record + 6 + i);
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static void updateSequence(CRC32C check, byte[] scratch, long sequence) {
+        for (int i = 0; i < 8; i++) {
+            scratch[i] = (byte) (sequence >>> (8 * i));
+        }
+        check.update(scratch, 0, 8);
+    }
+}
@@ -0,0 +1,220 @@
+// TransactionLine class - reusable buffer holding one transaction line, split into comma-separated fields
+// Fields are picked out by offset and IDs/numbers are read straight from the buffer, so looking at a
+// well-formed line allocates nothing (see StreamingTransactionParser and TransactionPipeline).
+// Splitting, trimming and number parsing follow line.split(","), trim() and Integer.parseInt exactly.
+// It is also the one place the command formats are checked, for every parser and the till server:
+//
+//   PLAY,<customerId>,<gameId>,<PEAK/OFFPEAK>
+//   ADD_FUNDS,<customerId>,<amount>
+//   NEW_CUSTOMER,<id>,<name>,[STAFF|STUDENT],<balance>,<age>
+class TransactionLine {
+
+    private static final int INITIAL_CAPACITY = 256;
+    // No transaction format has more fields than this, longer lines only need their field count
+    private static final int MAX_FIELDS = 6;
+
+    private char[] chars = new char[INITIAL_CAPACITY];
+    private int length;
+
+    // Field i of the current line is chars[fieldStart[i], fieldEnd[i]), before trimming
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+    private int fieldCount;
+
+    void clear() {
+        length = 0;
+    }
+
+    void append(char c) {
+        if (length == chars.length) grow(length + 1);
+        chars[length++] = c;
+    }
+
+    void set(CharSequence line) {
+        if (line.length() > chars.length) grow(line.length());
+        length = line.length();
+        for (int i = 0; i < length; i++) chars[i] = line.charAt(i);
+    }
+
+    void set(char[] buf, int offset, int count) {
+        if (count > chars.length) grow(count);
+        System.arraycopy(buf, offset, chars, 0, count);
+        length = count;
+    }
+
+    private void grow(int needed) {
+        char[] grown = new char[Math.max(needed, chars.length * 2)];
+        System.arraycopy(chars, 0, grown, 0, length);
+        chars = grown;
+    }
+
+    int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    // Records field offsets with the same semantics as line.split(","), trailing empty fields dropped
+    private void split() {
+        int count = 0;
+        int start = 0;
+        int lastNonEmpty = 0;
+        boolean sawComma = false;
+
+        for (int i = 0; i <= length; i++) {
+            if (i < length && chars[i] != ',') continue;
+            if (i < length) sawComma = true;
+
+            if (count < MAX_FIELDS) {
+                fieldStart[count] = start;
+                fieldEnd[count] = i;
+            }
+            count++;
+            if (i > start) lastNonEmpty = count;
+            start = i + 1;
+        }
+
+        // split() returns the whole line when there is no delimiter, even if it is empty
+        fieldCount = sawComma ? lastNonEmpty : 1;
+    }
+
+    // Splits the line and returns its verb, or null if field 0 is not one (see unknownAction). A line
+    // with the wrong number of fields throws IllegalArgumentException with the message that is reported
+    TransactionAction command() {
+        split();
+        if (fieldCount == 0) {
+            // Matches String.split on a line made only of commas
+            throw new IllegalArgumentException("Index 0 out of bounds for length 0");
+        }
+        TransactionAction action = action();
+        if (action != null && fieldCount != action.fields()) {
+            throw new IllegalArgumentException("Invalid " + action.name() + " format");
+        }
+        return action;
+    }
+
+    // PLAY and ADD_FUNDS: the customer
+    long customerKey() {
+        return key(1);
+    }
+
+    // PLAY: the game and the time of day
+    long gameKey() {
+        return key(2);
+    }
+
+    boolean peak() {
+        return fieldEqualsIgnoreCase(3, "PEAK");
+    }
+
+    // ADD_FUNDS: the amount in pence
+    int amount() {
+        return parseInt(2);
+    }
+
+    // NEW_CUSTOMER: the customer to register. The numbers are parsed first, then a bad ID is refused
+    // with the message the Customer constructor would give, before any String is made
+    Customer newCustomer() throws InvalidCustomerException {
+        Customer.DiscountType discountType = discount(3);
+        int balance = parseInt(4);
+        int age = parseInt(5);
+        if (checkCustomerId(1) != IdCheck.CUSTOMER) throw new IllegalArgumentException(IdValidator.CUSTOMER_ID);
+        return new Customer(field(1), field(2), age, discountType, balance);
+    }
+
+    // Verb in field 0, or null if it is not one (see unknownAction for the message)
+    private TransactionAction action() {
+        return TransactionAction.match(chars, trimStart(0), trimEnd(0));
+    }
+
+    // Field 0 as TransactionParser reports an unknown verb
+    String unknownAction() {
+        return field(0).toUpperCase();
+    }
+
+    private int trimStart(int field) {
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        while (from < to && chars[from] <= ' ') from++;
+        return from;
+    }
+
+    private int trimEnd(int field) {
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        while (to > from && chars[to - 1] <= ' ') to--;
+        return to;
+    }
+
+    // Trimmed field as a new String
+    String field(int field) {
+        int from = trimStart(field);
+        return new String(chars, from, trimEnd(field) - from);
+    }
+
+    // Trimmed field packed as an ID (IdCodec.INVALID if it cannot be one)
+    long key(int field) {
+        return IdCodec.encode(chars, trimStart(field), trimEnd(field));
+    }
+
+    // Trimmed field checked as a customer ID, straight from the buffer
+    IdCheck checkCustomerId(int field) {
+        return IdValidator.checkCustomerId(chars, trimStart(field), trimEnd(field));
+    }
+
+    boolean fieldEqualsIgnoreCase(int field, String expected) {
+        int from = trimStart(field);
+        int to = trimEnd(field);
+        if (to - from != expected.length()) return false;
+
+        // Same per-character rules as String.equalsIgnoreCase
+        for (int i = from; i < to; i++) {
+            char c1 = chars[i];
+            char c2 = expected.charAt(i - from);
+            if (c1 == c2) continue;
+            char u1 = Character.toUpperCase(c1);
+            char u2 = Character.toUpperCase(c2);
+            if (u1 == u2 || Character.toLowerCase(u1) == Character.toLowerCase(u2)) continue;
+            return false;
+        }
+        return true;
+    }
+
+    // Parses a trimmed field directly from the buffer; falls back to Integer.parseInt for anything unusual
+    // so that accepted values and NumberFormatException messages match the original parser exactly
+    int parseInt(int field) {
+        int from = trimStart(field);
+        int to = trimEnd(field);
+        int i = from;
+        boolean negative = false;
+
+        if (i < to && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        // More than 9 digits could overflow, let the slow path decide
+        if (i == to || to - i > 9) {
+            return Integer.parseInt(new String(chars, from, to - from));
+        }
+
+        int value = 0;
+        for (; i < to; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return Integer.parseInt(new String(chars, from, to - from));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    // Discount named in a NEW_CUSTOMER field, NONE for anything else
+    Customer.DiscountType discount(int field) {
+        if (fieldEqualsIgnoreCase(field, "STAFF")) return Customer.DiscountType.CMP_STAFF;
+        if (fieldEqualsIgnoreCase(field, "STUDENT")) return Customer.DiscountType.STUDENT;
+        return Customer.DiscountType.NONE;
+    }
+}
@@ -0,0 +1,19 @@
+// TransactionListener interface - told about every change Arcade applies, in the order it applies them
+// Calls are made just before the change is applied, while Arcade holds the lock guarding it (the
+// customer's lock stripe - the registration lock for a new one - or the catalogue lock for games),
+// so changes to one customer arrive in order. If a call throws, that change is not applied and the
+// exception reaches the caller. Listeners must be quick and must not call back into the arcade.
+public interface TransactionListener {
+
+    // A game is being added, or is replacing one with the same ID
+    void gameAdded(long gameKey, ArcadeGame game);
+
+    // A customer is being registered, or is replacing one with the same ID
+    void customerAdded(long customerKey, Customer customer);
+
+    // A PLAY is being applied and 'price' pence charged
+    void charged(long customerKey, long gameKey, boolean peak, int price);
+
+    // Funds are being added to a customer's balance
+    void fundsAdded(long customerKey, int amount);
+}
@@ -6,68 +6,177 @@ public class TransactionParser {
 
     // Processes a sequence of transactions read form BufferedReader and applies them
     public static void processTransactions(BufferedReader reader, Arcade arcade) throws IOException {
-        String line;
+        processTransactions(reader, arcade, DiagnosticsSink.console());
+    }
+
+    // Same as above, sending failed transactions to the given sink
+    public static void processTransactions(BufferedReader reader, Arcade arcade, DiagnosticsSink diagnostics) throws IOException {
+        TransactionLine line = new TransactionLine();
+        String text;
         int lineNumber = 0;
+        long start = System.nanoTime();
 
-        while ((line = reader.readLine()) != null) {
+        while ((text = reader.readLine()) != null) {
             lineNumber++;
+            line.set(text);
+            processLine(line, lineNumber, arcade, diagnostics);
+        }
+        arcade.getMetrics().parsed(ArcadeMetrics.Parser.TRANSACTIONS, lineNumber, System.nanoTime() - start);
+    }
+
+    // Same as above, applying PLAY and ADD_FUNDS lines in batches of up to 'batchSize' (see Arcade.processBatch)
+    // Any other line, or one that does not parse, first applies the batch so far, so everything still
+    // happens - and is reported - in line order
+    public static void processTransactions(BufferedReader reader, Arcade arcade, DiagnosticsSink diagnostics, int batchSize) throws IOException {
+        LineBatch batch = new LineBatch(batchSize);
+        TransactionLine line = new TransactionLine();
+        String text;
+        int lineNumber = 0;
+        long start = System.nanoTime();
+
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            line.set(text);
+            if (!batch.add(line, lineNumber)) {
+                batch.apply(arcade, diagnostics);
+                processLine(line, lineNumber, arcade, diagnostics);
+            } else if (batch.isFull()) {
+                batch.apply(arcade, diagnostics);
+            }
+        }
+        batch.apply(arcade, diagnostics);
+        arcade.getMetrics().parsed(ArcadeMetrics.Parser.TRANSACTIONS, lineNumber, System.nanoTime() - start);
+    }
+
+    // Parsed PLAY and ADD_FUNDS lines waiting to be applied, with the IDs and line numbers for reports
+    private static final class LineBatch {
+        final TransactionBatch items;
+        final String[] customerIds;
+        final String[] gameIds;
+        final int[] lineNumbers;
+
+        LineBatch(int capacity) {
+            items = new TransactionBatch(capacity);
+            customerIds = new String[capacity];
+            gameIds = new String[capacity];
+            lineNumbers = new int[capacity];
+        }
+
+        boolean isFull() {
+            return items.isFull();
+        }
+
+        // Adds a well-formed PLAY or ADD_FUNDS line; anything else is left for processLine
+        boolean add(TransactionLine line, int lineNumber) {
+            int i = items.size();
             try {
-                String[] parts = line.split(",");
-
-                String action = parts[0].trim().toUpperCase();
-
-                switch (action) {
-                    case "PLAY":
-                        // Format: PLAY,<customerId>,<gameId>,<PEAK/OFFPEAK>
-                        if (parts.length != 4) throw new IllegalArgumentException("Invalid PLAY format");
-                        String customerId = parts[1].trim();
-                        String gameId = parts[2].trim();
-                        boolean isPeak = parts[3].trim().equalsIgnoreCase("PEAK");
-                        arcade.processTransaction(customerId, gameId, isPeak);
-                        break;
-
-                    case "ADD_FUNDS":
-                        // Format: ADD_FUNDS,<customerId>,<amount>
-                        if (parts.length != 3) throw new IllegalArgumentException("Invalid ADD_FUNDS format");
-                        customerId = parts[1].trim();
-                        int amount = Integer.parseInt(parts[2].trim());
-                        arcade.addFunds(customerId, amount);
-                        break;
-
-                    case "NEW_CUSTOMER":
-                        // Format: NEW_CUSTOMER,<id>,<name>,[STAFF|STUDENT],<balance>,<age>
-                        if (parts.length != 6) throw new IllegalArgumentException("Invalid NEW_CUSTOMER format");
-                        String id = parts[1].trim();
-                        String name = parts[2].trim();
-                        String type = parts[3].trim().toUpperCase();
-                        int balance = Integer.parseInt(parts[4].trim());
-                        int age = Integer.parseInt(parts[5].trim());
-
-                        // Determines discount type
-                        Customer.DiscountType discountType;
-                        switch (type) {
-                            case "STAFF":
-                                discountType = Customer.DiscountType.CMP_STAFF;
-                                break;
-                            case "STUDENT":
-                                discountType = Customer.DiscountType.STUDENT;
-                                break;
-                            default:
-                                discountType = Customer.DiscountType.NONE;
-                        }
-
-                        // Create and register new customer
-                        Customer customer = new Customer(id, name, age, discountType, balance);
-                        arcade.registerCustomer(customer);
-                        break;
-
-                    default:
-                        System.err.println("Unknown transaction type on line " + lineNumber + ": " + action);
+                TransactionAction action = line.command();
+                if (action == TransactionAction.PLAY) {
+                    customerIds[i] = line.field(1);
+                    gameIds[i] = line.field(2);
+                    items.addPlay(line.customerKey(), line.gameKey(), line.peak());
+                } else if (action == TransactionAction.ADD_FUNDS) {
+                    int amount = line.amount();
+                    customerIds[i] = line.field(1);
+                    gameIds[i] = null;
+                    items.addFunds(line.customerKey(), amount);
+                } else {
+                    return false;
+                }
+            } catch (IllegalArgumentException e) {
+                // Malformed, including a bad amount (NumberFormatException)
+                return false;
+            }
+            lineNumbers[i] = lineNumber;
+            return true;
+        }
+
+        // Applies the waiting lines and reports their problems as processLine would
+        void apply(Arcade arcade, DiagnosticsSink diagnostics) {
+            if (items.size() == 0) return;
+            int[] results = arcade.processBatch(items);
+            for (int i = 0; i < items.size(); i++) {
+                if (results[i] >= 0) continue;
+                if (items.action(i) == TransactionAction.PLAY) {
+                    reportRejection(diagnostics, lineNumbers[i], TransactionStatus.of(results[i]), customerIds[i], gameIds[i]);
+                } else {
+                    diagnostics.report(Diagnostic.TRANSACTION_ERROR, lineNumbers[i], "Customer not found: " + customerIds[i]);
                 }
+            }
+            items.clear();
+        }
+    }
+
+    // Applies a single transaction line to the arcade and reports any problem
+    // Returns the pence charged (0 for non-PLAY actions), or -1 if the transaction failed
+    static int processLine(String line, int lineNumber, Arcade arcade, DiagnosticsSink diagnostics) {
+        TransactionLine parsed = new TransactionLine();
+        parsed.set(line);
+        return processLine(parsed, lineNumber, arcade, diagnostics);
+    }
 
-            } catch (Exception e) {
-                System.out.println("Error processing transaction " + lineNumber + ": " + e.getMessage());
+    static int processLine(TransactionLine line, int lineNumber, Arcade arcade, DiagnosticsSink diagnostics) {
+        try {
+            TransactionAction action = line.command();
+            if (action == null) {
+                diagnostics.report(Diagnostic.UNKNOWN_TRANSACTION, lineNumber, line.unknownAction());
+                return -1;
+            }
+            int result = apply(line, action, arcade);
+            if (result < 0) {
+                // Rejections come back as a status code, no exception is thrown; IDs are only turned
+                // into Strings when there is an error to report
+                TransactionStatus status = TransactionStatus.of(result);
+                reportRejection(diagnostics, lineNumber, status,
+                        status == TransactionStatus.UNKNOWN_CUSTOMER ? line.field(1) : null,
+                        status == TransactionStatus.UNKNOWN_GAME ? line.field(2) : null);
+                return -1;
             }
+            return result;
+        } catch (Exception e) {
+            diagnostics.report(Diagnostic.TRANSACTION_ERROR, lineNumber, e.getMessage());
+            return -1;
+        }
+    }
+
+    // Applies a line TransactionLine.command() accepted - the dispatch shared by the parsers and TillServer.
+    // Returns the pence charged by a PLAY, a rejected PLAY's negative TransactionStatus code, or 0 for the
+    // other actions; anything else wrong with the line throws, with the message that is reported
+    static int apply(TransactionLine line, TransactionAction action, Arcade arcade) throws InvalidCustomerException {
+        switch (action) {
+            case PLAY:
+                return arcade.tryChargeCustomer(arcade.findCustomer(line.customerKey()), arcade.findGame(line.gameKey()), line.peak());
+
+            case ADD_FUNDS:
+                int amount = line.amount();
+                int customer = arcade.findCustomer(line.customerKey());
+                if (customer < 0) {
+                    // Throws the not-found exception
+                    arcade.addFunds(line.field(1), amount);
+                } else {
+                    arcade.addFunds(customer, amount);
+                }
+                return 0;
+
+            default:
+                arcade.registerCustomer(line.newCustomer());
+                return 0;
+        }
+    }
+
+    // Reports a rejected PLAY; only the ID the status refers to is needed
+    static void reportRejection(DiagnosticsSink diagnostics, int lineNumber, TransactionStatus status, String customerId, String gameId) {
+        switch (status) {
+            case UNKNOWN_CUSTOMER:
+                diagnostics.report(Diagnostic.PLAY_UNKNOWN_CUSTOMER, lineNumber, customerId);
+                break;
+            case UNKNOWN_GAME:
+                diagnostics.report(Diagnostic.PLAY_UNKNOWN_GAME, lineNumber, gameId);
+                break;
+            default:
+                // The remaining messages are constants, nothing is built here
+                diagnostics.report(Diagnostic.PLAY_REJECTED, lineNumber, status.detail(customerId, gameId));
+                break;
         }
     }
 }
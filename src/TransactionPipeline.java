@@ -0,0 +1,467 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// TransactionPipeline class - staged, micro-batched processing of live transaction lines
+// Lines are published into a pre-allocated ring of mutable slots and pass through four stages,
+// each on its own thread: parse -> validate (IDs exist, age limit) -> charge (balances, top-ups,
+// registrations) -> account (counters, error reports). A stage takes every slot the stage before it
+// has finished, up to 'maxBatch', processes them in one go and then publishes its progress, so one
+// sequence write covers a whole batch. Slots are reused once the
+// account stage is done with them; a PLAY or ADD_FUNDS line allocates nothing on the way through.
+//
+// Results match TransactionParser applied to the same lines in publish order (line numbers are
+// publish order too). Only the charge stage changes the arcade, so it need not be concurrent unless
+// something else changes it at the same time. Each charge adds its revenue as it is made, with the
+// balance change, so a checkpoint taken while lines are in flight is consistent.
+public class TransactionPipeline implements AutoCloseable {
+
+    // How a stage (or a producer waiting for a free slot) waits when there is nothing to do
+    public enum WaitStrategy {
+        BUSY_SPIN,  // lowest latency, burns a core per stage
+        YIELDING,   // spins briefly, then yields the CPU
+        SLEEPING,   // spins, yields, then parks for 100us
+        BLOCKING    // waits on a monitor until signalled (lowest CPU use, highest latency)
+    }
+
+    private static final int PARSE = 0;
+    private static final int VALIDATE = 1;
+    private static final int CHARGE = 2;
+    private static final int ACCOUNT = 3;
+    private static final String[] STAGE_NAMES = {"parse", "validate", "charge", "account"};
+
+    // What the slot holds after parsing, and how it ended up
+    private static final byte PLAY = 0;
+    private static final byte FUNDS = 1;
+    private static final byte REGISTER = 2;
+    private static final byte UNKNOWN = 3;   // unknown verb
+    private static final byte FAILED = 4;    // malformed line, bad number, missing customer...
+    private static final byte REJECTED = 5;  // PLAY refused, see 'status'
+
+    private static final class Slot {
+        final TransactionLine line = new TransactionLine();
+        byte kind;
+        long customerKey;
+        long gameKey;
+        boolean peak;
+        int amount;
+        int customer;
+        int game;
+        Customer newCustomer;
+        TransactionStatus status;
+        String error;
+    }
+
+    // Sequences live 16 longs apart so stages on different cores do not share a cache line
+    private static final int PAD = 16;
+    private static final int CLAIMED = 4 * PAD;
+
+    private final Arcade arcade;
+    private final DiagnosticsSink diagnostics;
+    private final WaitStrategy waitStrategy;
+    private final int maxBatch;
+    private final Slot[] slots;
+    private final int mask;
+    private final int indexShift;
+
+    // Last sequence each stage has finished with (-1 before the first), and the next one to claim
+    private final AtomicLongArray sequences = new AtomicLongArray(5 * PAD);
+    // Round in which each slot was last published, so the parse stage knows it is filled in
+    private final AtomicIntegerArray published;
+
+    private final Object signal = new Object();
+    private volatile int blockedWaiters;
+    private volatile boolean accepting = true;
+    private volatile boolean stopping;
+    private final Thread[] threads = new Thread[4];
+
+    // Written by the account stage once per batch
+    private volatile long applied;
+    private volatile long rejected;
+    private volatile long failed;
+
+    // Ring of 'capacity' slots (rounded up to a power of two)
+    public TransactionPipeline(Arcade arcade, int capacity, int maxBatch, WaitStrategy waitStrategy, DiagnosticsSink diagnostics) {
+        if (capacity < 2 || maxBatch < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 2 and batches at least 1");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.arcade = arcade;
+        this.diagnostics = diagnostics;
+        this.waitStrategy = waitStrategy;
+        this.maxBatch = Math.min(maxBatch, size);
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) slots[i] = new Slot();
+        this.mask = size - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(size);
+        this.published = new AtomicIntegerArray(size);
+
+        for (int stage = 0; stage < 4; stage++) {
+            sequences.set(stage * PAD, -1);
+        }
+        for (int stage = 0; stage < 4; stage++) {
+            int s = stage;
+            threads[stage] = new Thread(() -> runStage(s), "pipeline-" + STAGE_NAMES[stage]);
+            threads[stage].setDaemon(true);
+            threads[stage].start();
+        }
+    }
+
+    public TransactionPipeline(Arcade arcade) {
+        this(arcade, 1 << 14, 256, WaitStrategy.YIELDING, DiagnosticsSink.console());
+    }
+
+    // --- Producers (any number of threads) ---
+
+    // Queues one transaction line, returning its sequence number (line number - 1)
+    public long publish(CharSequence line) {
+        long sequence = claim();
+        slots[(int) sequence & mask].line.set(line);
+        markPublished(sequence);
+        return sequence;
+    }
+
+    // Same as above for line characters in buf[offset, offset + length)
+    public long publish(char[] buf, int offset, int length) {
+        long sequence = claim();
+        slots[(int) sequence & mask].line.set(buf, offset, length);
+        markPublished(sequence);
+        return sequence;
+    }
+
+    private long claim() {
+        if (!accepting) {
+            throw new IllegalStateException("Pipeline closed");
+        }
+        long sequence = sequences.getAndIncrement(CLAIMED);
+        // Wait until the account stage has finished with the slot's previous use
+        for (int attempt = 0; sequence - slots.length > sequences.get(ACCOUNT * PAD); attempt++) {
+            idle(attempt);
+        }
+        return sequence;
+    }
+
+    private void markPublished(long sequence) {
+        published.lazySet((int) sequence & mask, round(sequence));
+        signal();
+    }
+
+    private int round(long sequence) {
+        return (int) (sequence >>> indexShift) + 1;
+    }
+
+    // Waits until every line published so far has been through all stages
+    public void drain() {
+        awaitProcessed(sequences.get(CLAIMED) - 1);
+    }
+
+    // Waits until the line with this sequence number has been through all stages
+    public void awaitProcessed(long sequence) {
+        for (int attempt = 0; sequences.get(ACCOUNT * PAD) < sequence; attempt++) {
+            idle(attempt);
+        }
+    }
+
+    // Lines fully processed so far
+    public long getProcessed() {
+        return sequences.get(ACCOUNT * PAD) + 1;
+    }
+
+    public long getApplied() {
+        return applied;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    // Stops accepting lines, finishes the ones already published and stops the stage threads
+    @Override
+    public void close() {
+        accepting = false;
+        drain();
+        stopping = true;
+        wakeAll();
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // --- Stages ---
+
+    private void runStage(int stage) {
+        long next = sequences.get(stage * PAD) + 1;
+        for (int attempt = 0; ; ) {
+            long available = available(stage, next);
+            if (available < next) {
+                if (stopping) return;
+                idle(attempt++);
+                continue;
+            }
+            attempt = 0;
+
+            long end = Math.min(available, next + maxBatch - 1);
+            switch (stage) {
+                case PARSE:
+                    for (long s = next; s <= end; s++) parse(slots[(int) s & mask]);
+                    break;
+                case VALIDATE:
+                    validate(next, end);
+                    break;
+                case CHARGE:
+                    for (long s = next; s <= end; s++) charge(slots[(int) s & mask]);
+                    break;
+                default:
+                    account(next, end);
+                    break;
+            }
+            sequences.lazySet(stage * PAD, end);
+            signal();
+            next = end + 1;
+        }
+    }
+
+    // Last sequence this stage may process, given that it is up to 'next'
+    private long available(int stage, long next) {
+        if (stage != PARSE) {
+            return sequences.get((stage - 1) * PAD);
+        }
+        // Producers may finish out of order: take the unbroken run of published slots
+        long last = next - 1;
+        long limit = next + maxBatch;
+        while (last + 1 < limit && published.get((int) (last + 1) & mask) == round(last + 1)) last++;
+        return last;
+    }
+
+    private void parse(Slot slot) {
+        TransactionLine line = slot.line;
+        slot.newCustomer = null;
+        slot.status = null;
+        slot.error = null;
+        try {
+            TransactionAction action = line.command();
+            if (action == null) {
+                slot.kind = UNKNOWN;
+                slot.error = line.unknownAction();
+                return;
+            }
+
+            switch (action) {
+                case PLAY:
+                    slot.kind = PLAY;
+                    slot.customerKey = line.customerKey();
+                    slot.gameKey = line.gameKey();
+                    slot.peak = line.peak();
+                    break;
+
+                case ADD_FUNDS:
+                    slot.kind = FUNDS;
+                    slot.amount = line.amount();
+                    slot.customerKey = line.customerKey();
+                    break;
+
+                case NEW_CUSTOMER:
+                    slot.kind = REGISTER;
+                    slot.newCustomer = line.newCustomer();
+                    break;
+            }
+        } catch (Exception e) {
+            fail(slot, e.getMessage());
+        }
+    }
+
+    private void validate(long from, long to) {
+        for (long s = from; s <= to; s++) {
+            Slot slot = slots[(int) s & mask];
+            if (slot.kind == PLAY) {
+                slot.customer = arcade.findCustomer(slot.customerKey);
+                slot.game = arcade.findGame(slot.gameKey);
+                slot.status = arcade.admit(slot.customer, slot.game);
+                if (slot.status.isRejection()) slot.kind = REJECTED;
+            } else if (slot.kind == FUNDS) {
+                slot.customer = arcade.findCustomer(slot.customerKey);
+                if (slot.customer < 0) fail(slot, "Customer not found: " + slot.line.field(1));
+            } else if (slot.kind == REGISTER) {
+                // Later lines may use this customer: let the charge stage register it before going on
+                sequences.lazySet(VALIDATE * PAD, s);
+                signal();
+                for (int attempt = 0; sequences.get(CHARGE * PAD) < s; attempt++) {
+                    if (stopping) return;
+                    idle(attempt);
+                }
+            }
+        }
+    }
+
+    private void charge(Slot slot) {
+        try {
+            if (slot.kind == PLAY) {
+                int result = arcade.debit(slot.customer, slot.game, slot.peak);
+                if (result < 0) {
+                    slot.kind = REJECTED;
+                    slot.status = TransactionStatus.of(result);
+                }
+            } else if (slot.kind == FUNDS) {
+                arcade.addFunds(slot.customer, slot.amount);
+            } else if (slot.kind == REGISTER) {
+                arcade.registerCustomer(slot.newCustomer);
+                slot.newCustomer = null;
+            }
+        } catch (RuntimeException e) {
+            fail(slot, e.getMessage());
+        }
+    }
+
+    private void account(long from, long to) {
+        long ok = 0;
+        long refused = 0;
+        long bad = 0;
+
+        for (long s = from; s <= to; s++) {
+            Slot slot = slots[(int) s & mask];
+            int lineNumber = (int) (s + 1);
+            switch (slot.kind) {
+                case PLAY:
+                case FUNDS:
+                case REGISTER:
+                    ok++;
+                    break;
+                case REJECTED:
+                    // IDs are only turned into Strings when there is an error to report
+                    TransactionParser.reportRejection(diagnostics, lineNumber, slot.status,
+                            slot.status == TransactionStatus.UNKNOWN_CUSTOMER ? slot.line.field(1) : null,
+                            slot.status == TransactionStatus.UNKNOWN_GAME ? slot.line.field(2) : null);
+                    refused++;
+                    break;
+                case UNKNOWN:
+                    diagnostics.report(Diagnostic.UNKNOWN_TRANSACTION, lineNumber, slot.error);
+                    bad++;
+                    break;
+                default:
+                    diagnostics.report(Diagnostic.TRANSACTION_ERROR, lineNumber, slot.error);
+                    bad++;
+                    break;
+            }
+        }
+
+        if (ok > 0) applied += ok;
+        if (refused > 0) rejected += refused;
+        if (bad > 0) failed += bad;
+    }
+
+    private static void fail(Slot slot, String message) {
+        slot.kind = FAILED;
+        slot.error = message;
+    }
+
+    // --- Waiting ---
+
+    private void idle(int attempt) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELDING:
+                if (attempt < 100) Thread.onSpinWait();
+                else Thread.yield();
+                break;
+            case SLEEPING:
+                if (attempt < 100) Thread.onSpinWait();
+                else if (attempt < 200) Thread.yield();
+                else LockSupport.parkNanos(100_000);
+                break;
+            default:
+                synchronized (signal) {
+                    blockedWaiters++;
+                    try {
+                        // Timed, so a signal sent just before we started waiting only costs 1ms
+                        signal.wait(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        blockedWaiters--;
+                    }
+                }
+                break;
+        }
+    }
+
+    private void signal() {
+        if (waitStrategy == WaitStrategy.BLOCKING && blockedWaiters > 0) wakeAll();
+    }
+
+    private void wakeAll() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    // Pushes a transaction file through the pipeline with each wait strategy and checks the results
+    // against StreamingTransactionParser; also reports how much the stage threads allocated
+    public static void main(String[] args) throws IOException {
+        File transactions = new File(args.length > 0 ? args[0] : "transactions.txt");
+        char[] text = new String(Files.readAllBytes(transactions.toPath()), Charset.defaultCharset()).toCharArray();
+
+        Arcade expected = Simulation.initialiseArcade("Expected", new File("games.txt"), new File("customers.txt"));
+        try (java.io.Reader reader = new java.io.FileReader(transactions)) {
+            StreamingTransactionParser.processTransactions(reader, expected, new CountingDiagnostics());
+        }
+        System.out.println("Sequential: revenue " + expected.getArcadeRevenue() + ", rejections " + expected.getRejectionCounts());
+
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            Arcade arcade = Simulation.initialiseArcade("Pipelined", new File("games.txt"), new File("customers.txt"));
+            CountingDiagnostics counted = new CountingDiagnostics();
+            long lines = 0;
+            long start = System.nanoTime();
+            long allocated;
+
+            try (TransactionPipeline pipeline = new TransactionPipeline(arcade, 1 << 12, 256, strategy, counted)) {
+                long before = stageAllocations(pipeline);
+                // Lines end at \n, \r or \r\n, as for BufferedReader
+                int from = 0;
+                for (int i = 0; i < text.length; i++) {
+                    if (text[i] != '\n' && text[i] != '\r') continue;
+                    pipeline.publish(text, from, i - from);
+                    lines++;
+                    if (text[i] == '\r' && i + 1 < text.length && text[i + 1] == '\n') i++;
+                    from = i + 1;
+                }
+                if (from < text.length) {
+                    pipeline.publish(text, from, text.length - from);
+                    lines++;
+                }
+                pipeline.drain();
+                allocated = stageAllocations(pipeline) - before;
+            }
+
+            long micros = (System.nanoTime() - start) / 1000;
+            System.out.println(strategy + ": " + lines + " lines in " + micros + "us, revenue " + arcade.getArcadeRevenue()
+                    + (arcade.getArcadeRevenue() == expected.getArcadeRevenue() ? " (same)" : " (DIFFERENT)")
+                    + ", rejections " + arcade.getRejectionCounts() + ", stage threads allocated " + allocated + " bytes");
+        }
+    }
+
+    private static long stageAllocations(TransactionPipeline pipeline) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        long total = 0;
+        for (Thread t : pipeline.threads) {
+            total += ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(t.getId());
+        }
+        return total;
+    }
+}
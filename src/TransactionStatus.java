@@ -0,0 +1,79 @@
+// Outcome of a PLAY transaction, returned instead of thrown by Arcade.tryChargeCustomer
+// Results are plain ints: a charge (>= 0 pence) when applied, otherwise a negative rejection code.
+// The message is only built when a caller asks for it, and matches the exception the throwing API raises.
+public enum TransactionStatus {
+    APPLIED,
+    UNKNOWN_CUSTOMER,
+    UNKNOWN_GAME,
+    INSUFFICIENT_FUNDS,
+    OVERDRAFT_LIMIT,
+    AGE_LIMIT;
+
+    private static final TransactionStatus[] VALUES = values();
+
+    // Result code for a rejection (APPLIED is any result >= 0, so it has no code of its own)
+    public int code() {
+        return -ordinal();
+    }
+
+    public boolean isRejection() {
+        return this != APPLIED;
+    }
+
+    // Status of a result returned by tryChargeCustomer
+    public static TransactionStatus of(int result) {
+        return result >= 0 ? APPLIED : VALUES[-result];
+    }
+
+    // Message for a rejection, as carried by the matching exception
+    public String detail(String customerID, String gameID) {
+        switch (this) {
+            case UNKNOWN_CUSTOMER:
+                return "Customer with ID " + customerID + " does not exist";
+            case UNKNOWN_GAME:
+                return "Game with ID " + gameID + " does not exist";
+            case INSUFFICIENT_FUNDS:
+                return "Insufficient funds.";
+            case OVERDRAFT_LIMIT:
+                return "Student cannot exceed overdraft limit of -500.";
+            case AGE_LIMIT:
+                return "Customer is not old enough to play this game.";
+            default:
+                return "Transaction applied.";
+        }
+    }
+
+    // Exception the exception-based API throws for this rejection (null for APPLIED)
+    public Class<? extends Exception> exceptionType() {
+        switch (this) {
+            case UNKNOWN_CUSTOMER:
+                return InvalidCustomerException.class;
+            case UNKNOWN_GAME:
+                return InvalidGameIdException.class;
+            case INSUFFICIENT_FUNDS:
+            case OVERDRAFT_LIMIT:
+                return InsufficientBalanceException.class;
+            case AGE_LIMIT:
+                return AgeLimitException.class;
+            default:
+                return null;
+        }
+    }
+
+    // Throws the exception the exception-based API uses for this rejection (does nothing for APPLIED)
+    public void raise(String customerID, String gameID) throws InvalidCustomerException, InvalidGameIdException, InsufficientBalanceException, AgeLimitException {
+        switch (this) {
+            case UNKNOWN_CUSTOMER:
+                throw new InvalidCustomerException(detail(customerID, gameID));
+            case UNKNOWN_GAME:
+                throw new InvalidGameIdException(detail(customerID, gameID));
+            case INSUFFICIENT_FUNDS:
+            case OVERDRAFT_LIMIT:
+                throw new InsufficientBalanceException(detail(customerID, gameID));
+            case AGE_LIMIT:
+                throw new AgeLimitException(detail(customerID, gameID));
+            default:
+                break;
+        }
+    }
+}
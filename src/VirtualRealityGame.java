@@ -25,9 +25,7 @@ class VirtualRealityGame extends ActiveGame {
     // Constructor taking values of all fields
     public VirtualRealityGame(String gameID, String gameName, int price, int minimumAge, Equipment vrEquipment) throws InvalidGameIdException{
         super(gameID,gameName,price, minimumAge);
-        if(!gameID.startsWith("AV")){
-            throw new InvalidGameIdException("Invalid Virtual Reality Game ID: must start with 'AV' and be exactly 10 alphanumeric characters");
-        }
+        checkGameType(gameID, IdCheck.VIRTUAL_REALITY_GAME);
         this.vrEquipment = vrEquipment;
     }
 
@@ -41,16 +39,20 @@ class VirtualRealityGame extends ActiveGame {
         if (peak){
             return getPrice(); // No discounts during peak hours
         }
-        // Discounts applied based on VR equipment
+        return offPeakPrice(getPrice(), vrEquipment);
+    }
+
+    // Discounts applied based on VR equipment
+    static int offPeakPrice(int price, Equipment vrEquipment){
         switch (vrEquipment){
             case HEADSET_ONLY:
-                return(int) (getPrice() * 0.9); // 10% discount
+                return(int) (price * 0.9); // 10% discount
             case HEADSET_AND_CONTROLLER:
-                return(int) (getPrice() * 0.95); // 5% discount
+                return(int) (price * 0.95); // 5% discount
             case FULL_BODY_TRACKING:
-                return getPrice(); // No discount
+                return price; // No discount
             default:
-                return getPrice();
+                return price;
         }
     }
 